@@ -0,0 +1,142 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aidn5.hypixelutils.v1.tools.buffer.RingBuffer.OverflowPolicy;
+
+/**
+ * Compares {@link ABuffer} ({@code ArrayList}), {@link AbNewBuffer}
+ * ({@code ArrayBlockingQueue}) and {@link RingBuffer}.
+ *
+ * <p>
+ * Run with {@code ./gradlew jmh}. The "single" benchmarks push a batch and
+ * then pull it on one thread, since {@link ABuffer} is not thread-safe. The
+ * "mpsc" groups push from three threads and pull on one. A producer, whose
+ * offer is rejected by the full buffer, yields before trying again. The
+ * accepted and the rejected offers are reported per iteration as the
+ * "offered" and "rejected" counters.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class BufferBenchmark {
+  private static final int CAPACITY = 4096;
+  private static final int BATCH = 64;
+  private static final Integer ELEMENT = 42;
+
+  private ABuffer<Integer> arrayListBuffer;
+  private AbNewBuffer<Integer> blockingBuffer;
+  private RingBuffer<Integer> ringBuffer;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    arrayListBuffer = new ABuffer<Integer>(0, null) {
+      @Override
+      public void run() {}
+    };
+    blockingBuffer = new AbNewBuffer<Integer>(CAPACITY, 0, null) {
+      @Override
+      protected void next(Integer element) {}
+    };
+    ringBuffer = new RingBuffer<>(CAPACITY, OverflowPolicy.REJECT);
+  }
+
+  @Benchmark
+  public void singleArrayList(Blackhole bh) {
+    for (int i = 0; i < BATCH; i++) {
+      arrayListBuffer.push(ELEMENT);
+    }
+    for (int i = 0; i < BATCH; i++) {
+      bh.consume(arrayListBuffer.pull());
+    }
+  }
+
+  @Benchmark
+  public void singleArrayBlockingQueue(Blackhole bh) {
+    for (int i = 0; i < BATCH; i++) {
+      blockingBuffer.offer(ELEMENT);
+    }
+    for (int i = 0; i < BATCH; i++) {
+      bh.consume(blockingBuffer.poll());
+    }
+  }
+
+  @Benchmark
+  public void singleRingBuffer(Blackhole bh) {
+    for (int i = 0; i < BATCH; i++) {
+      ringBuffer.offer(ELEMENT);
+    }
+    ringBuffer.drainTo(bh::consume, BATCH);
+  }
+
+  @Benchmark
+  @Group("mpscArrayBlockingQueue")
+  @GroupThreads(3)
+  public void arrayBlockingQueueOffer(OfferCounters counters) {
+    counters.count(blockingBuffer.offer(ELEMENT));
+  }
+
+  @Benchmark
+  @Group("mpscArrayBlockingQueue")
+  @GroupThreads(1)
+  public Integer arrayBlockingQueuePoll() {
+    return blockingBuffer.poll();
+  }
+
+  @Benchmark
+  @Group("mpscRingBuffer")
+  @GroupThreads(3)
+  public void ringBufferOffer(OfferCounters counters) {
+    counters.count(ringBuffer.offer(ELEMENT));
+  }
+
+  @Benchmark
+  @Group("mpscRingBuffer")
+  @GroupThreads(1)
+  public int ringBufferDrain(Blackhole bh) {
+    return ringBuffer.drainTo(bh::consume, BATCH);
+  }
+
+  /**
+   * The offers of one producer thread.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class OfferCounters {
+    public long offered;
+    public long rejected;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      offered = 0;
+      rejected = 0;
+    }
+
+    void count(boolean accepted) {
+      if (accepted) {
+        offered++;
+      } else {
+        rejected++;
+        // let the consumer drain the full buffer
+        Thread.yield();
+      }
+    }
+  }
+}
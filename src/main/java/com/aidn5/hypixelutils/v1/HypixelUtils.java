@@ -7,8 +7,6 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -20,6 +18,7 @@ import com.aidn5.hypixelutils.v1.chatsocket.client.RequestReceiveEvent.RequestRe
 import com.aidn5.hypixelutils.v1.chatsocket.client.RequestSendEvent;
 import com.aidn5.hypixelutils.v1.chatsocket.protocols.BaseProtocol;
 import com.aidn5.hypixelutils.v1.chatsocket.wrapper.RequestWrapper;
+import com.aidn5.hypixelutils.v1.chatwrapper.CommandBroker;
 import com.aidn5.hypixelutils.v1.chatwrapper.MapWrapper;
 import com.aidn5.hypixelutils.v1.chatwrapper.WhereamiWrapper;
 import com.aidn5.hypixelutils.v1.common.ChatWrapper;
@@ -29,6 +28,7 @@ import com.aidn5.hypixelutils.v1.common.analytics.McStatistics;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
 import com.aidn5.hypixelutils.v1.eventslistener.HypixelApiListener;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle;
 import com.aidn5.hypixelutils.v1.eventslistener.OnHypixelListener;
 import com.aidn5.hypixelutils.v1.eventslistener.ServerInstanceListener;
 import com.aidn5.hypixelutils.v1.exceptions.HypixelUtilsInternalError;
@@ -38,8 +38,11 @@ import com.aidn5.hypixelutils.v1.players.Player;
 import com.aidn5.hypixelutils.v1.players.UsernameCache;
 import com.aidn5.hypixelutils.v1.serverinstance.ServerInstance;
 import com.aidn5.hypixelutils.v1.tools.AssetHelper;
+import com.aidn5.hypixelutils.v1.tools.ClientExecutor;
+import com.aidn5.hypixelutils.v1.tools.InstrumentedExecutor;
 import com.aidn5.hypixelutils.v1.tools.ReflectionUtil;
 import com.aidn5.hypixelutils.v1.tools.Scoreboard;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
 import com.aidn5.hypixelutils.v1.tools.TickDelay;
 import com.aidn5.hypixelutils.v1.tools.TimeOut;
 import com.aidn5.hypixelutils.v1.tools.buffer.ChatBuffer;
@@ -93,6 +96,7 @@ import net.minecraftforge.fml.common.eventhandler.Event;
  * <ul>
  * <li>{@link MapWrapper}</li>
  * <li>{@link WhereamiWrapper}</li>
+ * <li>{@link CommandBroker}</li>
  * </ul>
  * 
  * 
@@ -110,6 +114,7 @@ import net.minecraftforge.fml.common.eventhandler.Event;
  * <li>{@link OnHypixelListener}</li>
  * <li>{@link HypixelApiListener}</li>
  * <li>{@link ServerInstanceListener}</li>
+ * <li>{@link HypixelLifecycle}</li>
  * </ul>
  * 
  * 
@@ -206,14 +211,70 @@ public final class HypixelUtils {
   public final Minecraft mc;
 
   /**
-   * Thread pool for blocking code.
+   * the most threads of {@link #threadPool}.
+   */
+  public static final int THREAD_POOL_SIZE = ThreadPools.THREAD_POOL_SIZE;
+  /**
+   * the most tasks waiting in {@link #threadPool}.
+   */
+  public static final int THREAD_POOL_QUEUE = ThreadPools.THREAD_POOL_QUEUE;
+
+  /**
+   * Thread pool for short blocking code. Bounded to {@link #THREAD_POOL_SIZE}
+   * threads and {@link #THREAD_POOL_QUEUE} waiting tasks, plus the overflow
+   * thread of {@link InstrumentedExecutor}. Code, which blocks for a long time,
+   * should use {@link #blockingPool}.
+   * 
+   * @since 1.0
+   * 
+   * @see ThreadPools#threadPool
+   */
+  @Nonnull
+  public static final InstrumentedExecutor threadPool = ThreadPools.threadPool;
+
+  /**
+   * the most threads of {@link #blockingPool}.
+   */
+  public static final int BLOCKING_POOL_SIZE = ThreadPools.BLOCKING_POOL_SIZE;
+  /**
+   * the most tasks waiting in {@link #blockingPool}.
+   */
+  public static final int BLOCKING_POOL_QUEUE = ThreadPools.BLOCKING_POOL_QUEUE;
+
+  /**
+   * Thread pool for code, which blocks for a long time (e.g. sending a blob).
+   * Kept apart from {@link #threadPool}, so such code does not starve the
+   * short tasks. Bounded to {@link #BLOCKING_POOL_SIZE} threads and
+   * {@link #BLOCKING_POOL_QUEUE} waiting tasks.
+   * 
+   * @since 1.0
+   * 
+   * @see ThreadPools#blockingPool
+   */
+  @Nonnull
+  public static final InstrumentedExecutor blockingPool = ThreadPools.blockingPool;
+
+  /**
+   * the most threads of {@link #controlPool}.
+   */
+  public static final int CONTROL_POOL_SIZE = ThreadPools.CONTROL_POOL_SIZE;
+  /**
+   * the most tasks waiting in {@link #controlPool}.
+   */
+  public static final int CONTROL_POOL_QUEUE = ThreadPools.CONTROL_POOL_QUEUE;
+
+  /**
+   * Thread pool for short control code, which must run on time (e.g. timeouts
+   * or accepting a connection). Kept apart from {@link #blockingPool}, so long
+   * transfers do not delay it. Bounded to {@link #CONTROL_POOL_SIZE} threads
+   * and {@link #CONTROL_POOL_QUEUE} waiting tasks.
    * 
    * @since 1.0
    * 
-   * @see Executors#newCachedThreadPool()
+   * @see ThreadPools#controlPool
    */
   @Nonnull
-  public static final ExecutorService threadPool = Executors.newCachedThreadPool();
+  public static final InstrumentedExecutor controlPool = ThreadPools.controlPool;
 
   /**
    * a Provided instance of the library used to register listeners, push elements
@@ -227,6 +288,7 @@ public final class HypixelUtils {
   // probably be sent at least 5 times at the same time,
   // which will result in a blocking from the server side
   // with the message "Please don't spam the command!"
+  // (the info commands are already shared through CommandBroker)
   @Nonnull
   private static final HypixelUtils INSTANCE = new HypixelUtils(Minecraft.getMinecraft(), null);
 
@@ -358,10 +420,11 @@ public final class HypixelUtils {
 
 
       // register the listeners to start receive events
-      // to let them save data and make the results on-demand
+      // to let them save data and make the results on-demand.
+      // the chat listeners are only attached while online hypixel
       MinecraftForge.EVENT_BUS.register(onHypixelListener);
-      MinecraftForge.EVENT_BUS.register(hypixelApiListener);
-      MinecraftForge.EVENT_BUS.register(serverInstanceListener);
+      HypixelLifecycle.registerOnlyHypixel(hypixelApiListener);
+      HypixelLifecycle.registerOnlyHypixel(serverInstanceListener);
 
 
       // start any service which needs a stand-alone thread
@@ -750,23 +813,24 @@ public final class HypixelUtils {
 
   /**
    * schedule the GUI to be displayed on the screen.
-   * The GUI will be displayed after one tick.
+   * The GUI will be displayed at the start of the next tick
+   * on the client thread.
    * 
    * <p>
    * Useful to use after processing command,
    * which is triggered by the chat-command.
+   * Can be called from any thread.
    * 
    * @param gui
    *          the GUI to display
    * 
-   * @see #createTickDelay(Runnable, int)
-   * @see TickDelay
+   * @see ClientExecutor
    * @see Minecraft#displayGuiScreen(GuiScreen)
    */
   public static void displayGui(GuiScreen gui) {
-    createTickDelay(() -> {
+    ClientExecutor.execute(() -> {
       Minecraft.getMinecraft().displayGuiScreen(gui);
-    }, 1);
+    });
   }
 
   /**
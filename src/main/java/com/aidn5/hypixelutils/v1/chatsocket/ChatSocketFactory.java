@@ -3,7 +3,8 @@ package com.aidn5.hypixelutils.v1.chatsocket;
 
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 
@@ -64,7 +65,7 @@ import com.aidn5.hypixelutils.v1.exceptions.HypixelUtilsInternalError;
 @IHypixelUtils
 public class ChatSocketFactory {
   @Nonnull
-  private static final HashMap<String, RequestReceived> listeners = new HashMap<>();
+  private static final Map<String, RequestReceived> listeners = new ConcurrentHashMap<>();
   /**
    * Initiate the sockets and listeners by calling their static methods.
    */
@@ -187,6 +188,19 @@ public class ChatSocketFactory {
     return new RequestWrapper(modid, displayChatName);
   }
 
+  /**
+   * Check whether a listener is registered to the id.
+   * 
+   * @param modid
+   *          the id to check.
+   * 
+   * @return
+   *         <code>true</code> if a listener is registered to the id.
+   */
+  public static boolean hasListener(@Nonnull String modid) {
+    return listeners.containsKey(modid);
+  }
+
   /**
    * handle the new connection.<br>
    * <b><i>This is a Backend method. Do NOT use it.</i></b>
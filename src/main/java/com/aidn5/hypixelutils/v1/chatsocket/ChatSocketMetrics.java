@@ -0,0 +1,75 @@
+package com.aidn5.hypixelutils.v1.chatsocket;
+
+import com.aidn5.hypixelutils.v1.chatsocket.protocols.CongestionController;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Read-only view of the runtime state of ChatSocket. Used to monitor the
+ * connections (e.g. to show them in a debug screen).
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class ChatSocketMetrics {
+  private ChatSocketMetrics() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Get the current sending rate, which is shared by all the connections.
+   *
+   * @return
+   *         the current rate in lines per second.
+   *
+   * @see CongestionController
+   */
+  public static double getSendRate() {
+    return CongestionController.getRate();
+  }
+
+  /**
+   * Get the smoothed time the server takes to confirm a sent line.
+   *
+   * @return
+   *         the smoothed round trip time in milliseconds or {@code -1} if not
+   *         measured yet.
+   */
+  public static long getSmoothedRtt() {
+    return CongestionController.getSmoothedRtt();
+  }
+
+  /**
+   * Get how many lines are waiting to be sent.
+   *
+   * @return
+   *         how many lines are waiting to be sent.
+   */
+  public static int getQueuedLines() {
+    return CongestionController.getQueuedLines();
+  }
+
+  /**
+   * Get how many lines have been sent since the start.
+   *
+   * @return
+   *         how many lines have been sent.
+   */
+  public static long getLinesSent() {
+    return CongestionController.getLinesSent();
+  }
+
+  /**
+   * Get how many times the sending rate has been decreased because of lost
+   * lines, spam warnings or slow replies of the server.
+   *
+   * @return
+   *         how many times the sending rate has been decreased.
+   */
+  public static long getLossEvents() {
+    return CongestionController.getLossEvents();
+  }
+}
@@ -0,0 +1,212 @@
+package com.aidn5.hypixelutils.v1.chatsocket;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.client.ChatSocket;
+import com.aidn5.hypixelutils.v1.chatsocket.client.ChatSocketsManager;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.Capabilities;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+
+/**
+ * Dispatch the incoming connection requests off the chat thread.
+ *
+ * <p>
+ * Anyone can send connection requests. Every accepted request allocates a
+ * {@link ChatSocket} with its threads and informs the listener (which may
+ * notify the player in the chat). To prevent flooding, every request is
+ * checked before anything is allocated:
+ * <ul>
+ * <li>the listener of the requested id must exist.</li>
+ * <li>every user can send only {@link #MAX_REQUESTS_PER_USER} requests in
+ * {@link #RATE_WINDOW}.</li>
+ * <li>every user can have only {@link #MAX_PENDING_PER_USER} requests, which
+ * are neither accepted nor declined nor timed out.</li>
+ * <li>only {@link #MAX_QUEUED} requests can wait for dispatching.</li>
+ * </ul>
+ * Requests, which do not pass the checks, are ignored. The other end will time
+ * out.
+ *
+ * <p>
+ * If a {@link com.aidn5.hypixelutils.v1.tools.VirtualClock} is used, the
+ * requests are dispatched on {@link Scheduler} instead, so the simulation
+ * stays in order.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+@IHelpTools(onlyStatic = true)
+public class RequestDispatcher {
+  /**
+   * how many requests can wait for dispatching.
+   */
+  public static final int MAX_QUEUED = 32;
+  /**
+   * how many undecided requests a user can have at the same time.
+   */
+  public static final int MAX_PENDING_PER_USER = 2;
+  /**
+   * how many requests a user can send in {@link #RATE_WINDOW}.
+   */
+  public static final int MAX_REQUESTS_PER_USER = 5;
+  /**
+   * the window of the rate limit in milliseconds.
+   */
+  public static final long RATE_WINDOW = TimeUnit.SECONDS.toMillis(60);
+
+  @Nonnull
+  private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+        Thread th = new Thread(r, "HypixelUtils-RequestDispatcher");
+        th.setDaemon(true);
+        return th;
+      });
+  static {
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * user (lowercase) -> {start of the window, requests in the window}.
+   */
+  @Nonnull
+  private static final Map<String, long[]> rates = new HashMap<>();
+  /**
+   * user (lowercase) -> requests queued and not dispatched yet.
+   */
+  @Nonnull
+  private static final Map<String, Integer> queued = new HashMap<>();
+
+  private RequestDispatcher() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Check the request and dispatch it on a separate thread.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param user
+   *          the user, who sent the request.
+   * @param id
+   *          the id of the programs which are trying to communicate.
+   * @param actionId
+   *          the extra field of the request.
+   * @param connectionId
+   *          the id of the connection. {@code -1} if the id is already used and
+   *          the listener should only be informed.
+   * @param capabilities
+   *          the capabilities sent with the request or <code>null</code>.
+   *
+   * @return
+   *         <code>true</code> if the request is queued for dispatching,
+   *         <code>false</code> if it has been rejected.
+   */
+  @IBackend
+  public static boolean dispatch(@Nonnull String user, @Nonnull String id,
+      @Nonnull String actionId, int connectionId, @Nullable Capabilities capabilities) {
+
+    if (!ChatSocketFactory.hasListener(id)) {
+      return false;
+    }
+
+    final String key = user.toLowerCase();
+    if (!tryAdmit(key, user)) {
+      return false;
+    }
+
+    final Runnable task = () -> {
+      release(key);
+
+      try {
+        ChatSocket cp = new ChatSocket(user, id, actionId, connectionId, false);
+        cp.setRemoteCapabilities(capabilities);
+        if (connectionId != -1) {
+          ChatSocketsManager.addNewConnection(cp);
+        }
+
+        ChatSocketFactory.newRequestReceived(cp);
+
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    };
+
+    try {
+      if (Clock.isVirtual()) {
+        Scheduler.schedule(task, 0, TimeUnit.MILLISECONDS);
+      } else {
+        executor.execute(task);
+      }
+
+      return true;
+
+    } catch (RejectedExecutionException e) {
+      release(key);
+      return false;
+    }
+  }
+
+  private static synchronized boolean tryAdmit(@Nonnull String key, @Nonnull String user) {
+    if (executor.getQueue().size() >= MAX_QUEUED) {
+      return false;
+    }
+
+    final long now = Clock.get().currentTimeMillis();
+    long[] rate = rates.get(key);
+    if (rate == null || rate[0] + RATE_WINDOW < now) {
+      if (rates.size() > 256) {
+        cleanRates(now);
+      }
+
+      rate = new long[] {now, 0};
+      rates.put(key, rate);
+    }
+
+    if (rate[1] >= MAX_REQUESTS_PER_USER) {
+      return false;
+    }
+
+    final int queuedRequests = queued.getOrDefault(key, 0);
+    if (queuedRequests + ChatSocketsManager.countPendingRequests(user) >= MAX_PENDING_PER_USER) {
+      return false;
+    }
+
+    rate[1]++;
+    queued.put(key, queuedRequests + 1);
+    return true;
+  }
+
+  private static synchronized void release(@Nonnull String key) {
+    final int queuedRequests = queued.getOrDefault(key, 0) - 1;
+
+    if (queuedRequests > 0) {
+      queued.put(key, queuedRequests);
+    } else {
+      queued.remove(key);
+    }
+  }
+
+  private static void cleanRates(long now) {
+    Iterator<long[]> iterator = rates.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next()[0] + RATE_WINDOW < now) {
+        iterator.remove();
+      }
+    }
+  }
+}
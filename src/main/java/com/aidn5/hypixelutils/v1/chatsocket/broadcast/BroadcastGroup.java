@@ -0,0 +1,542 @@
+package com.aidn5.hypixelutils.v1.chatsocket.broadcast;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.protocols.ChatBroadcastProtocol;
+import com.aidn5.hypixelutils.v1.chatsocket.protocols.CongestionController;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
+import com.aidn5.hypixelutils.v1.exceptions.HypixelUtilsInternalError;
+import com.aidn5.hypixelutils.v1.exceptions.NotOnHypixelNetwork;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
+
+/**
+ * Group used to send the same payload to many players at once over the party
+ * chat or the guild chat.
+ *
+ * <p>
+ * Every line sent to the chat channel is received by all its members. So,
+ * sending a payload to a whole party takes one line per fragment instead of
+ * one connection with its own handshake per member. Every group has a name.
+ * Only the members, who have created a group with the same name, receive the
+ * payloads. Other groups on the same channel are ignored.
+ *
+ * <p>
+ * The sender of every payload is identified from the prefix of the chat
+ * message (e.g. "Party &gt; [MVP+] aidn5: ..."). Acknowledgements are optional
+ * and cost one line from every recipient. See
+ * {@link #broadcastWithAcks(byte[], Collection, long, TimeUnit)}.
+ *
+ * <p>
+ * <b>Frame:</b>
+ * <table border="2">
+ * <tbody>
+ * <tr><th>Byte(s)</th><th>Contains</th><th>Usage</th></tr>
+ * <tr><td>4</td><td>Integer</td><td>the id of the group. the first 4 bytes of the SHA-256 of its name.</td></tr>
+ * <tr><td>4</td><td>Integer</td><td>the id of the payload. random.</td></tr>
+ * <tr><td>1</td><td>Byte</td><td>type of the frame. data or ack.</td></tr>
+ * <tr><td>1</td><td>Byte</td><td>(data only) flags. whether an ack is requested.</td></tr>
+ * <tr><td>2</td><td>Short</td><td>(data only) index of the fragment.</td></tr>
+ * <tr><td>2</td><td>Short</td><td>(data only) how many fragments the payload has.</td></tr>
+ * <tr><td>N\A</td><td>Byte[]</td><td>(data only) the fragment's data.</td></tr>
+ * </tbody>
+ * </table>
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see ChatBroadcastProtocol
+ */
+@IHypixelUtils
+@IOnlyHypixel
+public class BroadcastGroup {
+  /**
+   * The biggest fragment, which still fits in one line of the party chat.
+   */
+  private static final int FRAGMENT_SIZE = 48;
+  /**
+   * The most fragments of a payload. Every fragment is one line, which must fit
+   * in the queue of {@link CongestionController}.
+   */
+  private static final int MAX_FRAGMENTS = CongestionController.MAX_QUEUED_LINES;
+  /**
+   * The biggest payload, which can be broadcast.
+   */
+  public static final int MAX_PAYLOAD_SIZE = MAX_FRAGMENTS * FRAGMENT_SIZE;
+  /**
+   * How many payloads of the same sender can be received at the same time.
+   */
+  private static final int MAX_PARTIALS_PER_SENDER = 4;
+  /**
+   * How many payloads can be received at the same time.
+   */
+  private static final int MAX_PARTIALS = 64;
+  /**
+   * Drop a payload, if its rest has not been received for this long.
+   */
+  private static final long PARTIAL_EXPIRE = TimeUnit.SECONDS.toMillis(60);
+
+  private static final byte TYPE_DATA = 1;
+  private static final byte TYPE_ACK = 2;
+  private static final byte FLAG_ACK_REQUESTED = 1;
+
+  @Nonnull
+  private static final Map<Integer, BroadcastGroup> groups = new ConcurrentHashMap<>();
+  @Nonnull
+  private static final Random random = new Random();
+
+  @Nonnull
+  private final String name;
+  @Nonnull
+  private final Channel channel;
+  private final int groupId;
+
+  @Nonnull
+  private final Map<String, PartialPayload> partials = new ConcurrentHashMap<>();
+  @Nonnull
+  private final Map<Integer, PendingAcks> pendingAcks = new ConcurrentHashMap<>();
+
+  @Nullable
+  private IBroadcastReceiver receiver;
+
+  /**
+   * Constructor. Creates the group and start receiving its payloads.
+   *
+   * @param name
+   *          the name of the group. All the members must use the same name.
+   * @param channel
+   *          the chat channel to use.
+   *
+   * @throws IllegalStateException
+   *           if a group with the same name is already created.
+   */
+  public BroadcastGroup(@Nonnull String name, @Nonnull Channel channel)
+      throws IllegalStateException {
+    this.name = Objects.requireNonNull(name);
+    this.channel = Objects.requireNonNull(channel);
+    this.groupId = groupId(name);
+
+    if (groups.putIfAbsent(groupId, this) != null) {
+      throw new IllegalStateException("A group with the name " + name + " is already created.");
+    }
+
+    ChatBroadcastProtocol.init();
+  }
+
+  /**
+   * Get the name of the group.
+   *
+   * @return
+   *         the name of the group.
+   */
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the chat channel used by this group.
+   *
+   * @return
+   *         the chat channel used by this group.
+   */
+  @Nonnull
+  public Channel getChannel() {
+    return channel;
+  }
+
+  /**
+   * Set the listener, which receives the payloads of this group.
+   *
+   * @param receiver
+   *          the listener or <code>null</code> to ignore the payloads.
+   */
+  public void setReceiver(@Nullable IBroadcastReceiver receiver) {
+    this.receiver = receiver;
+  }
+
+  /**
+   * Send the payload to all the members of the group.
+   *
+   * @param payload
+   *          the payload to send.
+   *
+   * @throws NotOnHypixelNetwork
+   *           if the client is not online hypixel network.
+   * @throws RejectedExecutionException
+   *           if too many chat lines are waiting to be sent.
+   */
+  public void broadcast(@Nonnull byte[] payload) throws NotOnHypixelNetwork {
+    sendPayload(random.nextInt(), payload, false);
+  }
+
+  /**
+   * Send the payload to all the members of the group and wait for the
+   * acknowledgements of the given recipients.
+   *
+   * @param payload
+   *          the payload to send.
+   * @param recipients
+   *          the users, who are expected to acknowledge the payload.
+   * @param timeout
+   *          how long to wait for the acknowledgements.
+   * @param unit
+   *          the unit of {@code timeout}.
+   *
+   * @return
+   *         a future, which completes with the users who have acknowledged the
+   *         payload. It completes once all the recipients have acknowledged
+   *         the payload or the timeout has passed.
+   *
+   * @throws NotOnHypixelNetwork
+   *           if the client is not online hypixel network.
+   * @throws RejectedExecutionException
+   *           if too many chat lines are waiting to be sent.
+   */
+  @Nonnull
+  public CompletableFuture<Set<String>> broadcastWithAcks(@Nonnull byte[] payload,
+      @Nonnull Collection<String> recipients, long timeout, @Nonnull TimeUnit unit)
+      throws NotOnHypixelNetwork {
+
+    final int messageId = random.nextInt();
+    final PendingAcks pending = new PendingAcks();
+    for (String recipient : recipients) {
+      pending.expected.add(recipient.toLowerCase());
+    }
+
+    pendingAcks.put(messageId, pending);
+    Scheduler.schedule(() -> {
+      pendingAcks.remove(messageId);
+      pending.complete();
+    }, timeout, unit);
+
+    try {
+      sendPayload(messageId, payload, true);
+    } catch (RuntimeException e) {
+      pendingAcks.remove(messageId);
+      throw e;
+    }
+
+    return pending.future;
+  }
+
+  /**
+   * Stop receiving the payloads of this group. The name can be used again for
+   * a new group.
+   */
+  public void close() {
+    groups.remove(groupId, this);
+  }
+
+  private void sendPayload(int messageId, @Nonnull byte[] payload, boolean ackRequested)
+      throws NotOnHypixelNetwork {
+    if (!ChatBroadcastProtocol.canBroadcast()) {
+      throw new NotOnHypixelNetwork();
+    }
+
+    if (payload.length > MAX_PAYLOAD_SIZE) {
+      throw new IllegalArgumentException(
+          "payload is too big to broadcast. The limit is " + MAX_PAYLOAD_SIZE + " bytes.");
+    }
+    final int count = Math.max(1, (payload.length + FRAGMENT_SIZE - 1) / FRAGMENT_SIZE);
+
+    for (int i = 0; i < count; i++) {
+      final int offset = i * FRAGMENT_SIZE;
+      final int size = Math.min(FRAGMENT_SIZE, payload.length - offset);
+
+      ByteBuffer bf = ByteBuffer.allocate(
+          4 // groupId
+              + 4 // messageId
+              + 1 // type
+              + 1 // flags
+              + 2 // index
+              + 2 // count
+              + size); // data
+
+      bf.putInt(groupId);
+      bf.putInt(messageId);
+      bf.put(TYPE_DATA);
+      bf.put(ackRequested ? FLAG_ACK_REQUESTED : 0);
+      bf.putShort((short) i);
+      bf.putShort((short) count);
+      bf.put(payload, offset, size);
+
+      if (!ChatBroadcastProtocol.sendFrame(channel, bf.array())) {
+        // the payload can not be completed without this fragment
+        throw new RejectedExecutionException("too many chat lines are waiting to be sent");
+      }
+    }
+  }
+
+  private void sendAck(int messageId) {
+    ByteBuffer bf = ByteBuffer.allocate(
+        4 // groupId
+            + 4 // messageId
+            + 1); // type
+
+    bf.putInt(groupId);
+    bf.putInt(messageId);
+    bf.put(TYPE_ACK);
+
+    // a dropped ack is like a lost one. The sender times out
+    ChatBroadcastProtocol.sendFrame(channel, bf.array());
+  }
+
+  /**
+   * Process a frame received from the chat.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param channel
+   *          the chat channel the frame has been received from.
+   * @param sender
+   *          the user who sent the frame.
+   * @param frame
+   *          the frame's data.
+   */
+  @IBackend
+  public static void frameReceived(@Nonnull Channel channel, @Nonnull String sender,
+      @Nonnull ByteBuffer frame) {
+    if (frame.remaining() < 9) {
+      return;
+    }
+
+    final BroadcastGroup group = groups.get(frame.getInt());
+    if (group == null || group.channel != channel) {
+      return;
+    }
+
+    final int messageId = frame.getInt();
+    final byte type = frame.get();
+
+    if (type == TYPE_ACK) {
+      PendingAcks pending = group.pendingAcks.get(messageId);
+      if (pending != null && pending.ack(sender)) {
+        group.pendingAcks.remove(messageId);
+      }
+
+    } else if (type == TYPE_DATA && frame.remaining() >= 5) {
+      final boolean ackRequested = (frame.get() & FLAG_ACK_REQUESTED) != 0;
+      final int index = frame.getShort();
+      final int count = frame.getShort();
+      final byte[] data = new byte[frame.remaining()];
+      frame.get(data);
+
+      group.dataReceived(sender, messageId, ackRequested, index, count, data);
+    }
+  }
+
+  private void dataReceived(@Nonnull String sender, int messageId, boolean ackRequested,
+      int index, int count, @Nonnull byte[] data) {
+    // the count comes from the sender. Nothing bigger than a sendable payload
+    // is allocated
+    if (count < 1 || count > MAX_FRAGMENTS || index < 0 || index >= count
+        || data.length > FRAGMENT_SIZE) {
+      return;
+    }
+
+    final String user = sender.toLowerCase();
+    final String key = user + ":" + messageId;
+    PartialPayload partial = partials.get(key);
+    if (partial == null) {
+      cleanPartials();
+
+      if (partials.size() >= MAX_PARTIALS || countPartials(user) >= MAX_PARTIALS_PER_SENDER) {
+        return;
+      }
+
+      partial = new PartialPayload(user, count);
+      partials.put(key, partial);
+    }
+
+    final byte[] payload = partial.put(index, count, data);
+    if (payload == null) {
+      return;
+    }
+    partials.remove(key);
+
+    if (ackRequested) {
+      try {
+        sendAck(messageId);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+
+    final IBroadcastReceiver r = receiver;
+    if (r != null) {
+      ThreadPools.threadPool.executeOrRetry(() -> {
+        r.received(this, sender, payload);
+      });
+    }
+  }
+
+  private int countPartials(@Nonnull String user) {
+    int count = 0;
+    for (PartialPayload partial : partials.values()) {
+      if (partial.sender.equals(user)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int groupId(@Nonnull String name) {
+    try {
+      final byte[] hash = MessageDigest.getInstance("SHA-256")
+          .digest(name.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(hash).getInt();
+
+    } catch (NoSuchAlgorithmException e) {
+      throw new HypixelUtilsInternalError("SHA-256 is not supported on this platform", e);
+    }
+  }
+
+  private void cleanPartials() {
+    final long expireTime = Clock.get().currentTimeMillis() - PARTIAL_EXPIRE;
+
+    Iterator<PartialPayload> iterator = partials.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().created < expireTime) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * The chat channels, which can be used to broadcast.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  public enum Channel {
+    /**
+     * the party chat. "/pc".
+     */
+    PARTY("pc"),
+    /**
+     * the guild chat. "/gc".
+     */
+    GUILD("gc");
+
+    /**
+     * the command used to send a message to this channel.
+     */
+    @Nonnull
+    public final String command;
+
+    private Channel(@Nonnull String command) {
+      this.command = command;
+    }
+  }
+
+  /**
+   * Interface used to receive the payloads of a group.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IBroadcastReceiver {
+    /**
+     * called on a separate thread when a whole payload is received.
+     *
+     * @param group
+     *          the group, which has received the payload.
+     * @param sender
+     *          the user, who sent the payload.
+     * @param payload
+     *          the received payload.
+     */
+    void received(@Nonnull BroadcastGroup group, @Nonnull String sender,
+        @Nonnull byte[] payload);
+  }
+
+  private static class PartialPayload {
+    final long created = Clock.get().currentTimeMillis();
+    @Nonnull
+    final String sender;
+    @Nonnull
+    final byte[][] fragments;
+    int receivedCount = 0;
+    int size = 0;
+
+    PartialPayload(@Nonnull String sender, int count) {
+      this.sender = sender;
+      fragments = new byte[count][];
+    }
+
+    @Nullable
+    synchronized byte[] put(int index, int count, @Nonnull byte[] data) {
+      if (count != fragments.length || fragments[index] != null) {
+        return null;
+      }
+
+      fragments[index] = data;
+      receivedCount++;
+      size += data.length;
+
+      if (receivedCount < fragments.length) {
+        return null;
+      }
+
+      final byte[] payload = new byte[size];
+      int offset = 0;
+      for (byte[] fragment : fragments) {
+        System.arraycopy(fragment, 0, payload, offset, fragment.length);
+        offset += fragment.length;
+      }
+
+      return payload;
+    }
+  }
+
+  private static class PendingAcks {
+    @Nonnull
+    final Set<String> expected = new HashSet<>();
+    @Nonnull
+    final Set<String> acked = new HashSet<>();
+    @Nonnull
+    final CompletableFuture<Set<String>> future = new CompletableFuture<>();
+
+    synchronized boolean ack(@Nonnull String user) {
+      acked.add(user);
+
+      if (acked.containsAll(expected)) {
+        complete();
+        return true;
+      }
+      return false;
+    }
+
+    synchronized void complete() {
+      future.complete(Collections.unmodifiableSet(new HashSet<>(acked)));
+    }
+  }
+}
@@ -0,0 +1,14 @@
+/**
+ * Package contains a facility to send the same payload to many players at once
+ * by using the party chat or the guild chat on the hypixel network as a shared
+ * medium instead of opening a connection to every player.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see com.aidn5.hypixelutils.v1.chatsocket.broadcast.BroadcastGroup
+ * @see com.aidn5.hypixelutils.v1.chatsocket.protocols.ChatBroadcastProtocol
+ */
+
+package com.aidn5.hypixelutils.v1.chatsocket.broadcast;
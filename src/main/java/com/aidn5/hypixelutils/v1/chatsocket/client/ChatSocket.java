@@ -1,27 +1,45 @@
 
 package com.aidn5.hypixelutils.v1.chatsocket.client;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
-import com.aidn5.hypixelutils.v1.HypixelUtils;
 import com.aidn5.hypixelutils.v1.chatsocket.client.RequestSendEvent.RequestResponse;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.Capabilities;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.KeepAlivePacket;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.PacketsRegistry;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.ProtocolPacket;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.ResumePacket;
 import com.aidn5.hypixelutils.v1.chatsocket.protocols.BaseProtocol;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
 
 
 /**
  * The core of a one connection between two ends.
  * Used to handle events between the two clients.
  * 
+ * <p>
+ * The connection can be paused while the chat is interrupted (e.g. while
+ * switching the server) with {@link #pause()}. The packets are then held back
+ * and the connection does not time out for {@link #GRACE_PERIOD}. On
+ * {@link #resume()}, both ends exchange how many packets they have received
+ * (if the other end supports {@link Capabilities#FEATURE_RESUME}) and send the
+ * lost packets again from the last {@link #RESEND_BUFFER_SIZE} sent ones.
+ * 
  * @author aidn5
  *
  * @since 1.0
@@ -35,6 +53,19 @@ public class ChatSocket {
    */
   @Nonnull
   public final PacketsRegistry packetsRegistry = new PacketsRegistry();
+  /**
+   * how long the connection is kept from timing out while it is paused.
+   */
+  public static final long GRACE_PERIOD = TimeUnit.SECONDS.toMillis(30);
+  /**
+   * how many sent packets are kept to send them again when resuming.
+   */
+  public static final int RESEND_BUFFER_SIZE = 256;
+  /**
+   * how long to wait for the other end to reply to the resume packet before
+   * continuing without sending the lost packets again.
+   */
+  public static final long RESUME_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
   /**
    * whether this client is the one which requested to connect and that
    * the other end is the client, which accepted the connection request.
@@ -80,8 +111,31 @@ public class ChatSocket {
 
   private long lastTimeSentPacket = -1;
 
+  /**
+   * the best common capabilities of both ends. Decided in the handshake.
+   */
+  @Nonnull
+  private Capabilities capabilities = Capabilities.LEGACY;
+
   private Status status = Status.PENDING;
 
+  @Nonnull
+  private final Object resumeLock = new Object();
+  // counts of the packets, which are passed to/from Connection.
+  // Used to know which packets are lost when resuming.
+  private int sentCount = 0;
+  private int receivedCount = 0;
+  @Nonnull
+  private final Deque<BasePacket> sentHistory = new ArrayDeque<>();
+  @Nonnull
+  private final Deque<BasePacket> heldPackets = new ArrayDeque<>();
+  private boolean paused = false;
+  private boolean resuming = false;
+  @Nullable
+  private ScheduledFuture<?> graceTicker = null;
+  @Nullable
+  private ScheduledFuture<?> resumeTimeout = null;
+
   private IResponseRequest connectionCallback;
   private boolean responseRequestCalled = false;
 
@@ -117,13 +171,41 @@ public class ChatSocket {
     return lastTimeSentPacket;
   }
 
+  /**
+   * Get the best common capabilities of both ends. {@link Capabilities#LEGACY}
+   * till the handshake is done or if the other end is an older client.
+   * 
+   * @return
+   *         the capabilities used by this connection.
+   */
+  @Nonnull
+  public Capabilities getCapabilities() {
+    return capabilities;
+  }
+
+  /**
+   * Set the capabilities received with the connection request.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   * 
+   * @param remote
+   *          the capabilities of the other end or <code>null</code> if the
+   *          request has none.
+   */
+  @IBackend
+  public void setRemoteCapabilities(@Nullable Capabilities remote) {
+    capabilities = Capabilities.LOCAL.intersect(remote != null ? remote : Capabilities.LEGACY);
+  }
+
   /**
    * Accept the request connection by sending the packet.
    */
   void sendConnectionAcceptPacket() {
     checkConnection(Status.PENDING);
 
-    sendPacket(new ProtocolPacket(id, actionId, ProtocolPacket.ACTION_ACCEPT));
+    // only the chosen common capabilities are sent back.
+    // older clients will just ignore them.
+    sendPacket(new ProtocolPacket(id, actionId, ProtocolPacket.ACTION_ACCEPT, capabilities));
     status = Status.OPEN;
   }
 
@@ -174,7 +256,7 @@ public class ChatSocket {
 
         if (!responseRequestCalled) {
           responseRequestCalled = true;
-          HypixelUtils.threadPool.submit(() -> {
+          ThreadPools.threadPool.executeOrRetry(() -> {
             connectionCallback.response(RequestResponse.TIMED_OUT, null);
           });
         }
@@ -182,7 +264,8 @@ public class ChatSocket {
     });
 
     try {
-      sendPacket(new ProtocolPacket(id, actionId, ProtocolPacket.ACTION_REQUEST));
+      sendPacket(new ProtocolPacket(id, actionId, ProtocolPacket.ACTION_REQUEST,
+          Capabilities.LOCAL));
 
     } catch (Exception e) {
       status = Status.CLOSED;
@@ -206,7 +289,7 @@ public class ChatSocket {
         sendPacket(new ProtocolPacket(id, actionId, ProtocolPacket.ACTION_CLOSE));
 
       } catch (Exception e) {
-        status = Status.CLOSED;
+        markClosed();
         throw e;
       }
 
@@ -220,7 +303,20 @@ public class ChatSocket {
 
     }
 
+    markClosed();
+  }
+
+  /**
+   * Mark the connection as closed and inform the {@link Connection} if it was
+   * opened.
+   */
+  private void markClosed() {
+    final boolean wasOpen = (status == Status.OPEN);
     status = Status.CLOSED;
+
+    if (wasOpen) {
+      connection.closed();
+    }
   }
 
   /**
@@ -233,6 +329,17 @@ public class ChatSocket {
     return (status == Status.CLOSED);
   }
 
+  /**
+   * Check whether the connection is a received request, which is neither
+   * accepted nor declined yet.
+   * 
+   * @return
+   *         true if the connection is waiting for the user to accept/decline it.
+   */
+  public boolean isConnectionPending() {
+    return (status == Status.PENDING && !isServer);
+  }
+
   /**
    * Check whether the connection is ready to send and receive data.
    * 
@@ -253,13 +360,225 @@ public class ChatSocket {
   void sendPacket(@Nonnull BasePacket packet) {
     checkConnection(Status.OPEN, Status.PENDING, Status.REQUESTING);
 
-    lastTimeSentPacket = System.currentTimeMillis();
+    synchronized (resumeLock) {
+      if (isCounted(packet)) {
+        sentCount++;
+        sentHistory.addLast(packet);
+        if (sentHistory.size() > RESEND_BUFFER_SIZE) {
+          sentHistory.removeFirst();
+        }
+      }
+
+      sendOrHold(packet);
+    }
+  }
+
+  /**
+   * Pause sending the packets while the chat is interrupted. The packets are
+   * held back till {@link #resume()} and the connection does not time out for
+   * {@link #GRACE_PERIOD}.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   */
+  @IBackend
+  public void pause() {
+    synchronized (resumeLock) {
+      if (paused || isConnectionClosed()) {
+        return;
+      }
+      paused = true;
+
+      final long pausedAt = Clock.get().currentTimeMillis();
+      graceTicker = Scheduler.scheduleWithFixedDelay(() -> {
+        synchronized (resumeLock) {
+          if (Clock.get().currentTimeMillis() - pausedAt < GRACE_PERIOD) {
+            connection.getTimeout().tick();
+          } else {
+            // the connection will time out normally
+            cancelGraceTicker();
+          }
+        }
+      }, 1, 1, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Resume sending the packets after {@link #pause()}. The lost packets are
+   * sent again, if the other end supports {@link Capabilities#FEATURE_RESUME}.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   */
+  @IBackend
+  public void resume() {
+    synchronized (resumeLock) {
+      if (!paused) {
+        return;
+      }
+      paused = false;
+      cancelGraceTicker();
+
+      if (status != Status.OPEN || !capabilities.hasFeature(Capabilities.FEATURE_RESUME)) {
+        sendHeldPackets();
+        return;
+      }
+
+      // packets received from now on are dropped till the other end replies.
+      // the other end sends them again after its reply.
+      resuming = true;
+      try {
+        transmit(new ResumePacket(receivedCount, false));
+
+      } catch (Exception e) {
+        e.printStackTrace();
+        resumed(-1);
+        return;
+      }
+
+      resumeTimeout = Scheduler.schedule(() -> {
+        synchronized (resumeLock) {
+          if (resuming) {
+            resumed(-1);
+          }
+        }
+      }, RESUME_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Check whether the connection is paused or waiting for the other end to
+   * resume.
+   * 
+   * @return
+   *         <code>true</code> if the packets are held back at the moment.
+   */
+  public boolean isPaused() {
+    return paused || resuming;
+  }
+
+  private void receiveResumePacket(@Nonnull ResumePacket packet) {
+    checkConnection(Status.OPEN);
+
+    synchronized (resumeLock) {
+      if (resuming) {
+        // either the reply or the other end is resuming at the same time.
+        // In both cases the packet has the count we need.
+        resumed(packet.getReceivedCount());
+
+      } else if (!packet.isReply()) {
+        sendOrHold(new ResumePacket(receivedCount, true));
+        resend(packet.getReceivedCount());
+      }
+    }
+  }
+
+  /**
+   * Finish resuming. Must be called while holding {@link #resumeLock}.
+   * 
+   * @param peerReceivedCount
+   *          how many packets the other end has received or {@code -1} to just
+   *          send the held packets.
+   */
+  private void resumed(int peerReceivedCount) {
+    resuming = false;
+    if (resumeTimeout != null) {
+      resumeTimeout.cancel(false);
+      resumeTimeout = null;
+    }
+
+    if (peerReceivedCount >= 0) {
+      // the held packets are in the history and are sent again from there
+      heldPackets.removeIf(ChatSocket::isCounted);
+      if (!resend(peerReceivedCount)) {
+        return;
+      }
+    }
+
+    sendHeldPackets();
+  }
+
+  /**
+   * Send again the packets the other end has not received.
+   * Must be called while holding {@link #resumeLock}.
+   * 
+   * @param peerReceivedCount
+   *          how many packets the other end has received.
+   * 
+   * @return
+   *         <code>false</code> if the lost packets are not kept anymore and the
+   *         connection has been closed.
+   */
+  private boolean resend(int peerReceivedCount) {
+    final int missing = sentCount - peerReceivedCount;
+    if (missing <= 0) {
+      return true;
+    }
+
+    if (missing > sentHistory.size()) {
+      // the data can not be completed anymore
+      heldPackets.clear();
+      markClosed();
+      return false;
+    }
+
+    int skip = sentHistory.size() - missing;
+    Iterator<BasePacket> iterator = sentHistory.iterator();
+    while (iterator.hasNext()) {
+      BasePacket packet = iterator.next();
+      if (skip-- > 0) {
+        continue;
+      }
+
+      sendOrHold(packet);
+    }
+
+    return true;
+  }
+
+  private void sendOrHold(@Nonnull BasePacket packet) {
+    if (paused || resuming) {
+      heldPackets.addLast(packet);
+      return;
+    }
+
+    transmit(packet);
+  }
+
+  private void sendHeldPackets() {
+    BasePacket packet;
+    while ((packet = heldPackets.pollFirst()) != null) {
+      try {
+        transmit(packet);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private void transmit(@Nonnull BasePacket packet) {
+    lastTimeSentPacket = Clock.get().currentTimeMillis();
     connection.getTimeout().tick();
 
     BaseProtocol.sendPacket(this, packet);
     connection.getTimeout().tick();
   }
 
+  private void cancelGraceTicker() {
+    if (graceTicker != null) {
+      graceTicker.cancel(false);
+      graceTicker = null;
+    }
+  }
+
+  /**
+   * Check whether the packet is passed to/from {@link Connection} and counted
+   * to be sent again when resuming.
+   */
+  private static boolean isCounted(@Nonnull BasePacket packet) {
+    return !(packet instanceof ProtocolPacket)
+        && !(packet instanceof KeepAlivePacket)
+        && !(packet instanceof ResumePacket);
+  }
+
   /**
    * Handle the received packet with its own {@link PacketsRegistry}.
    * 
@@ -280,18 +599,23 @@ public class ChatSocket {
       receiveConnectionKeepAlivePacket(((KeepAlivePacket) packet).shouldRespond());
       return;
 
+    } else if (packet instanceof ResumePacket) {
+      receiveResumePacket((ResumePacket) packet);
+      return;
+
     } else if (packet instanceof ProtocolPacket) {
       ProtocolPacket pp = (ProtocolPacket) packet;
       validateProtocolPacket(pp);
 
       if (pp.getAction() == ProtocolPacket.ACTION_ACCEPT) {
+        setRemoteCapabilities(pp.getCapabilities());
         receiveConnectionAcceptPacket();
 
       } else if (pp.getAction() == ProtocolPacket.ACTION_DECLINE) {
         receiveConnectionDeclinedPacket();
 
       } else if (pp.getAction() == ProtocolPacket.ACTION_CLOSE) {
-        status = Status.CLOSED;
+        markClosed();
 
       } else {
         throw new IllegalArgumentException(
@@ -301,6 +625,14 @@ public class ChatSocket {
       return;
     }
 
+    synchronized (resumeLock) {
+      if (resuming) {
+        // the other end sends it again after replying to the resume packet
+        return;
+      }
+      receivedCount++;
+    }
+
     connection.packetReceived(packet);
   }
 
@@ -323,14 +655,14 @@ public class ChatSocket {
         if (isConnectionClosed()) {
           status = Status.CLOSED;
 
-          HypixelUtils.threadPool.submit(() -> {
+          ThreadPools.threadPool.executeOrRetry(() -> {
             connectionCallback.response(RequestResponse.TIMED_OUT, null);
           });
 
         } else {
           status = Status.OPEN;
 
-          HypixelUtils.threadPool.submit(() -> {
+          ThreadPools.threadPool.executeOrRetry(() -> {
             connectionCallback.response(RequestResponse.ACCEPTED, connection);
           });
         }
@@ -338,6 +670,36 @@ public class ChatSocket {
     }
   }
 
+  /**
+   * Handle the event of the server replying that it could not deliver a packet
+   * of this connection to the other end. Used to fail at once instead of
+   * waiting for the timeout.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   */
+  @IBackend
+  public void deliveryFailed() {
+    synchronized (ChatSocket.this) {
+      if (status == Status.REQUESTING) {
+        // see #sendRequestConnectionPacket()
+        connection.getTimeout().setTimeOutListener(null);
+        status = Status.CLOSED;
+
+        if (!responseRequestCalled) {
+          responseRequestCalled = true;
+
+          ThreadPools.threadPool.executeOrRetry(() -> {
+            connectionCallback.response(RequestResponse.UNREACHABLE, null);
+          });
+        }
+
+      } else {
+        // blocked readers of the connection will fail at once
+        markClosed();
+      }
+    }
+  }
+
   /**
    * Handle the connection-rejected event.
    */
@@ -354,7 +716,7 @@ public class ChatSocket {
 
         status = Status.CLOSED;
 
-        HypixelUtils.threadPool.submit(() -> {
+        ThreadPools.threadPool.executeOrRetry(() -> {
           connectionCallback.response(RequestResponse.REJECTED, null);
         });
       }
@@ -439,11 +801,16 @@ public class ChatSocket {
    * connection.
    * 
    * @return
-   *         a random number, which is made of 4 bits.
+   *         a random number, which is made of 4 bytes. Never {@code -1}, which
+   *         marks a request without a connection.
    */
   static int generateConnectionId() {
     Random r = new Random();
-    return r.nextInt();
+    int id;
+    do {
+      id = r.nextInt();
+    } while (id == -1);
+    return id;
   }
 
   /**
@@ -33,12 +33,69 @@ public class ChatSocketsManager {
    * @see #getConnection(int)
    */
   public static void addNewConnection(ChatSocket chatSocket) throws IllegalArgumentException {
-    if (getConnection(chatSocket.connectionId) != null) {
-      throw new IllegalArgumentException(
-          "There is already connection with the id " + chatSocket.connectionId);
+    synchronized (chatSockets) {
+      if (getConnection(chatSocket.connectionId) != null) {
+        throw new IllegalArgumentException(
+            "There is already connection with the id " + chatSocket.connectionId);
+      }
+
+      chatSockets.add(chatSocket);
+    }
+  }
+
+  /**
+   * Count the received requests from the user, which are neither accepted nor
+   * declined nor timed out yet.
+   * 
+   * @param user
+   *          the user, who sent the requests.
+   * @return
+   *         how many requests of the user are still pending.
+   * 
+   * @see ChatSocket#isConnectionPending()
+   */
+  public static int countPendingRequests(String user) {
+    synchronized (chatSockets) {
+      int count = 0;
+
+      for (ChatSocket cp : chatSockets) {
+        if (cp != null && cp.isConnectionPending() && cp.user.equalsIgnoreCase(user)) {
+          count++;
+        }
+      }
+
+      return count;
     }
+  }
+
+  /**
+   * Pause all the connections while the chat is interrupted.
+   * 
+   * @see ChatSocket#pause()
+   */
+  public static void pauseAll() {
+    synchronized (chatSockets) {
+      for (ChatSocket cp : chatSockets) {
+        cp.pause();
+      }
+    }
+  }
 
-    chatSockets.add(chatSocket);
+  /**
+   * Resume all the paused connections.
+   * 
+   * @see ChatSocket#resume()
+   */
+  public static void resumeAll() {
+    synchronized (chatSockets) {
+      for (ChatSocket cp : chatSockets) {
+        try {
+          cp.resume();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    }
   }
 
   /**
@@ -8,17 +8,26 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.Capabilities;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.DataPacket;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.IPacketReceiver;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.PacketsRegistry;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IChatWrapper;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
 import com.aidn5.hypixelutils.v1.tools.TimeOut;
 import com.aidn5.hypixelutils.v1.tools.io.NetInput;
 import com.aidn5.hypixelutils.v1.tools.io.NetOutput;
@@ -30,6 +39,25 @@ import scala.Char;
 /**
  * Protocol, which used to communicate with the other end.
  * 
+ * <p>
+ * The connection offers two modes, which can be used side by side:
+ * <ul>
+ * <li>a byte stream: {@link #getInputStream()} and {@link #getOutputStream()}.
+ * </li>
+ * <li>whole messages: {@link #sendMessage(byte[])} and
+ * {@link #receiveMessage()} or {@link #setMessageReceiver(IMessageReceiver)}.
+ * The boundaries of the messages are kept, so there is no need to prefix
+ * them with their length.</li>
+ * </ul>
+ * 
+ * <p>
+ * The bytes written to the output stream are collected till a whole line is
+ * full. A line, which is not full, is sent automatically after
+ * {@link #DEFAULT_FLUSH_DELAY} (see {@link #setFlushDelay(long, TimeUnit)}),
+ * so small writes share lines without stalling when {@link OutputStream#flush()}
+ * is forgotten. Use {@link #setNoDelay(boolean)} to send them as soon as
+ * possible instead.
+ * 
  * @author aidn5
  *
  * @since 1.0
@@ -53,14 +81,53 @@ public class Connection implements IPacketReceiver {
   @Nonnull
   private final NetOutput streamNetOutput = new StreamNetOutput(os);
 
+  /**
+   * how long the written bytes may wait for more bytes to fill a line, before
+   * they are sent automatically.
+   */
+  public static final long DEFAULT_FLUSH_DELAY = 100;
+  /**
+   * the biggest message in bytes, which can be sent or received by
+   * {@link #sendMessage(byte[])}. Bigger incoming messages are dropped before
+   * allocating them.
+   */
+  public static final int MAX_MESSAGE_SIZE = 64 * 1024;
+  /**
+   * how many received messages can wait for {@link #receiveMessage()}. The
+   * messages received while it is full are dropped.
+   */
+  public static final int MAX_QUEUED_MESSAGES = 64;
+
+  // same as the output stream, because of chat limitations
+  private static final int MESSAGE_FRAGMENT_SIZE = 30;
+  @Nonnull
+  private final Object sendMessageLock = new Object();
+  @Nonnull
+  private final BlockingQueue<byte[]> receivedMessages =
+      new LinkedBlockingQueue<>(MAX_QUEUED_MESSAGES);
+  @Nullable
+  private byte[] incomingMessage = null;
+  private int incomingMessagePointer = 0;
+  @Nullable
+  private IMessageReceiver messageReceiver = null;
+
   @Nullable
   private IPacketReceiver customPacketReceiver = null;
   @Nullable
   private Runnable onTimeOut = null;
+  @Nullable
+  private volatile Runnable onClose = null;
+  @Nonnull
+  private final AtomicBoolean closeNotified = new AtomicBoolean(false);
 
   private boolean connectionTimedOut = false;
   private boolean forceKeepAlive = false;
 
+  // how often to check whether a keep-alive should be sent
+  private static final long KEEP_ALIVE_CHECK = 500;
+  @Nullable
+  private ScheduledFuture<?> keepAliveTask = null;
+
   @IBackend
   Connection(@Nonnull ChatSocket parent) {
     this.parentConnection = Objects.requireNonNull(parent);
@@ -79,26 +146,25 @@ public class Connection implements IPacketReceiver {
       }
     });
 
-    final Thread forceKeepAliveThread = new Thread(() -> {
-      try {
-        while (true) {
-          Thread.sleep(10);
-          if (forceKeepAlive) {
-            if (parentConnection.getLastTimeSentPacket() + timeout.getTimeOut() < System
-                .currentTimeMillis() + 10000) {
-              sendKeepAlive();
-            }
-          }
+    keepAliveTask = Scheduler.scheduleWithFixedDelay(() -> {
+      // the task ends with the connection
+      if (connectionClosed()) {
+        if (keepAliveTask != null) {
+          keepAliveTask.cancel(false);
         }
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-        Thread.currentThread().interrupt();
         return;
       }
-    });
 
-    forceKeepAliveThread.setDaemon(true);
-    forceKeepAliveThread.start();
+      if (forceKeepAlive && parentConnection.isConnectionOpened()
+          && parentConnection.getLastTimeSentPacket() + timeout.getTimeOut() < Clock.get()
+              .currentTimeMillis() + 10000) {
+        try {
+          sendKeepAlive();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    }, KEEP_ALIVE_CHECK, KEEP_ALIVE_CHECK, TimeUnit.MILLISECONDS);
   }
 
   /**
@@ -149,6 +215,18 @@ public class Connection implements IPacketReceiver {
     return parentConnection.actionId;
   }
 
+  /**
+   * Get the best common capabilities of both ends, which are decided in the
+   * handshake.
+   * 
+   * @return
+   *         the capabilities used by this connection.
+   */
+  @Nonnull
+  public Capabilities getCapabilities() {
+    return parentConnection.getCapabilities();
+  }
+
   /**
    * Get the class which controls the timeout.
    * 
@@ -168,6 +246,37 @@ public class Connection implements IPacketReceiver {
     this.onTimeOut = onTimeOut;
   }
 
+  /**
+   * set a listener to be called once when the connection is closed. Either end
+   * closing it, timing out and losing the packets all count. The listener is
+   * called on a separate thread. It is not called if the connection is closed
+   * already.
+   *
+   * @param onClose
+   *          the listener or <code>null</code> to remove it.
+   */
+  public void setOnCloseListener(@Nullable Runnable onClose) {
+    this.onClose = onClose;
+  }
+
+  /**
+   * Inform the listener of {@link #setOnCloseListener(Runnable)}. Only the
+   * first call has an effect.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   */
+  @IBackend
+  void closed() {
+    if (!closeNotified.compareAndSet(false, true)) {
+      return;
+    }
+
+    final Runnable onClose = this.onClose;
+    if (onClose != null) {
+      ThreadPools.threadPool.executeOrRetry(onClose);
+    }
+  }
+
   /**
    * return a stream, which can used to receive data from the other end.
    * 
@@ -240,6 +349,167 @@ public class Connection implements IPacketReceiver {
     return streamNetOutput;
   }
 
+  /**
+   * Send the whole message to the other end. The other end receives it as one
+   * message with the same boundaries via {@link #receiveMessage()} or
+   * {@link #setMessageReceiver(IMessageReceiver)}.
+   * 
+   * <p>
+   * The message is split into {@link DataPacket} fragments. Messages sent
+   * from multiple threads at the same time are never interleaved.
+   * 
+   * @param message
+   *          the message to send. can be empty.
+   * 
+   * @throws IOException
+   *           if the connection is not opened, the other end does not support
+   *           messages (see {@link Capabilities#FEATURE_MESSAGES}), the
+   *           message is bigger than {@link #MAX_MESSAGE_SIZE} or the message
+   *           could not be sent.
+   */
+  public void sendMessage(@Nonnull byte[] message) throws IOException {
+    Objects.requireNonNull(message);
+
+    if (message.length > MAX_MESSAGE_SIZE) {
+      throw new IOException("The message is bigger than " + MAX_MESSAGE_SIZE + " bytes.");
+    }
+
+    if (!parentConnection.isConnectionOpened()) {
+      throw new IOException("Connection not opened yet to send data.");
+    }
+
+    final Capabilities capabilities = getCapabilities();
+    if (!capabilities.hasFeature(Capabilities.FEATURE_MESSAGES)) {
+      throw new IOException("The other end does not support messages.");
+    }
+
+    final int fragmentSize = Math.min(MESSAGE_FRAGMENT_SIZE, capabilities.getMaxLinePayload());
+
+    synchronized (sendMessageLock) {
+      int pointer = 0;
+      do {
+        final int size = Math.min(fragmentSize, message.length - pointer);
+        final byte[] fragment = new byte[size];
+        System.arraycopy(message, pointer, fragment, 0, size);
+
+        final boolean atEnd = pointer + size >= message.length;
+
+        try {
+          parentConnection.sendPacket(new DataPacket(fragment, message.length, pointer, atEnd));
+
+        } catch (Exception e) {
+          throw new IOException("Could not send the message.", e);
+        }
+
+        pointer += size;
+      } while (pointer < message.length);
+    }
+  }
+
+  /**
+   * Wait till a whole message is received and return it.
+   * 
+   * <p>
+   * Messages are only queued for this method, if no
+   * {@link #setMessageReceiver(IMessageReceiver)} is set.
+   * 
+   * @return
+   *         the next received message.
+   * 
+   * @throws IOException
+   *           if the connection is closed/timed-out before receiving a message
+   *           or if the thread is interrupted.
+   * 
+   * @see #sendMessage(byte[])
+   */
+  @Nonnull
+  public byte[] receiveMessage() throws IOException {
+    byte[] message = receiveMessage(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    if (message == null) {
+      throw new IOException("Connection closed");
+    }
+
+    return message;
+  }
+
+  /**
+   * Wait till a whole message is received or the duration has passed.
+   * 
+   * @param duration
+   *          the longest duration to wait.
+   * @param unit
+   *          the unit of {@code duration}.
+   * 
+   * @return
+   *         the next received message or <code>null</code> if the duration has
+   *         passed without receiving any message.
+   * 
+   * @throws IOException
+   *           if the connection is closed/timed-out before receiving a message
+   *           or if the thread is interrupted.
+   * 
+   * @see #receiveMessage()
+   */
+  @Nullable
+  public byte[] receiveMessage(long duration, @Nonnull TimeUnit unit) throws IOException {
+    final long deadline = System.currentTimeMillis() + Math.min(unit.toMillis(duration),
+        Long.MAX_VALUE - System.currentTimeMillis());
+
+    try {
+      while (true) {
+        // messages received before closing the connection are still delivered
+        byte[] message = receivedMessages.poll(
+            Math.max(0, Math.min(50, deadline - System.currentTimeMillis())),
+            TimeUnit.MILLISECONDS);
+
+        if (message != null) {
+          return message;
+        }
+
+        if (connectionTimedOut()) {
+          throw new IOException("Connection timed out.");
+        }
+
+        if (connectionClosed()) {
+          throw new IOException("Connection closed");
+        }
+
+        if (System.currentTimeMillis() >= deadline) {
+          return null;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("read interrupted", e);
+    }
+  }
+
+  /**
+   * Set a listener to receive every message once it is completely received.
+   * Every message is dispatched on a separate thread, so multiple messages can
+   * be processed at the same time.
+   * 
+   * <p>
+   * Messages, which are already queued for {@link #receiveMessage()}, are
+   * dispatched to the new listener.
+   * 
+   * @param receiver
+   *          the listener or <code>null</code> to queue the messages for
+   *          {@link #receiveMessage()} instead.
+   */
+  public void setMessageReceiver(@Nullable IMessageReceiver receiver) {
+    synchronized (receivedMessages) {
+      this.messageReceiver = receiver;
+
+      if (receiver != null) {
+        byte[] message;
+        while ((message = receivedMessages.poll()) != null) {
+          dispatchMessage(receiver, message);
+        }
+      }
+    }
+  }
+
   /**
    * Set custom packet receiver to receive and process the custom packets that are
    * registered by {@link PacketsRegistry}.
@@ -253,6 +523,20 @@ public class Connection implements IPacketReceiver {
     this.customPacketReceiver = icpc;
   }
 
+  /**
+   * Get the current custom packet receiver.
+   * 
+   * @return
+   *         the receiver of the custom packets or <code>null</code> if none is
+   *         set.
+   * 
+   * @see #setCustomPacketReceiver(IPacketReceiver)
+   */
+  @Nullable
+  public IPacketReceiver getCustomPacketReceiver() {
+    return customPacketReceiver;
+  }
+
   /**
    * Get the packet registry to register custom packets, which can be used with
    * the custom packet receiver.
@@ -267,6 +551,99 @@ public class Connection implements IPacketReceiver {
     return parentConnection.packetsRegistry;
   }
 
+  /**
+   * Send a custom packet to the other end. The packet must be registered in
+   * {@link #getPacketsRegistry()} on both ends.
+   * 
+   * @param packet
+   *          the packet to send.
+   * 
+   * @throws IOException
+   *           if the connection is not opened or the packet could not be sent.
+   * 
+   * @see #setCustomPacketReceiver(IPacketReceiver)
+   */
+  public void sendPacket(@Nonnull BasePacket packet) throws IOException {
+    if (!parentConnection.isConnectionOpened()) {
+      throw new IOException("Connection not opened yet to send data.");
+    }
+
+    try {
+      parentConnection.sendPacket(Objects.requireNonNull(packet));
+
+    } catch (Exception e) {
+      throw new IOException("Could not send the packet " + packet.getClass().getName(), e);
+    }
+  }
+
+  /**
+   * Set how long the bytes written to {@link #getOutputStream()} may wait for
+   * more bytes to fill a line. After that they are sent automatically, even if
+   * the line is not full. The delay is counted from the first byte of the
+   * line.
+   * 
+   * @param delay
+   *          the longest delay. negative to disable the automatic flushing and
+   *          only send when a line is full or {@link OutputStream#flush()} is
+   *          called. Default is {@link #DEFAULT_FLUSH_DELAY} milliseconds.
+   * @param unit
+   *          the unit of {@code delay}.
+   * 
+   * @return
+   *         this instance.
+   */
+  @Nonnull
+  public Connection setFlushDelay(long delay, @Nonnull TimeUnit unit) {
+    os.flushDelay = delay < 0 ? -1 : unit.toMillis(delay);
+    return this;
+  }
+
+  /**
+   * Get how long the bytes written to {@link #getOutputStream()} may wait for
+   * more bytes to fill a line.
+   * 
+   * @return
+   *         the delay in milliseconds or {@code -1} if the automatic flushing
+   *         is disabled.
+   * 
+   * @see #setFlushDelay(long, TimeUnit)
+   */
+  public long getFlushDelay() {
+    return os.flushDelay;
+  }
+
+  /**
+   * Send the bytes written to {@link #getOutputStream()} as soon as possible
+   * without waiting for more bytes to fill the line. Bytes written at the same
+   * moment (e.g. by one {@link OutputStream#write(byte[])}) are still sent
+   * together. Like {@code TCP_NODELAY}, this lowers the latency at the cost of
+   * sending more lines.
+   * 
+   * @param noDelay
+   *          whether the written bytes should be sent as soon as possible.
+   * 
+   * @return
+   *         this instance.
+   */
+  @Nonnull
+  public Connection setNoDelay(boolean noDelay) {
+    os.noDelay = noDelay;
+    return this;
+  }
+
+  /**
+   * Check whether the bytes written to {@link #getOutputStream()} are sent as
+   * soon as possible.
+   * 
+   * @return
+   *         <code>true</code> if the written bytes are sent as soon as possible.
+   * 
+   * @see #setNoDelay(boolean)
+   */
+  public boolean isNoDelay() {
+    return os.noDelay;
+  }
+
   /**
    * Flush the {@link OutputStream} from {@link #getOutputStream()} and then try
    * to close the connection. This method has no effect, if the connection is
@@ -352,7 +729,10 @@ public class Connection implements IPacketReceiver {
   @Override
   @IBackend
   public <T extends BasePacket> void packetReceived(T packet) {
-    if (packet instanceof DataPacket) {
+    if (packet instanceof DataPacket && ((DataPacket) packet).getTotal() >= 0) {
+      messageFragmentReceived((DataPacket) packet);
+
+    } else if (packet instanceof DataPacket) {
       DataPacket dataPacket = (DataPacket) packet;
 
       for (byte b : dataPacket.getRawData()) {
@@ -372,6 +752,85 @@ public class Connection implements IPacketReceiver {
     }
   }
 
+  private synchronized void messageFragmentReceived(@Nonnull DataPacket fragment) {
+    // a new message always starts from 0.
+    // Any unfinished message before it has lost its rest.
+    if (fragment.getCurrentPointer() == 0) {
+      final int total = fragment.getTotal();
+      if (total < 0 || total > MAX_MESSAGE_SIZE) {
+        // the size is chosen by the other end. never allocate it blindly
+        incomingMessage = null;
+        return;
+      }
+
+      incomingMessage = new byte[total];
+      incomingMessagePointer = 0;
+    }
+
+    final byte[] data = fragment.getRawData();
+    if (incomingMessage == null
+        || incomingMessage.length != fragment.getTotal()
+        || incomingMessagePointer != fragment.getCurrentPointer()
+        || incomingMessagePointer + data.length > incomingMessage.length) {
+
+      // fragment from a message with lost parts. drop the whole message
+      incomingMessage = null;
+      return;
+    }
+
+    System.arraycopy(data, 0, incomingMessage, incomingMessagePointer, data.length);
+    incomingMessagePointer += data.length;
+
+    if (!fragment.isAtEnd()) {
+      return;
+    }
+
+    final byte[] message = incomingMessage;
+    incomingMessage = null;
+    if (incomingMessagePointer != message.length) {
+      return;
+    }
+
+    synchronized (receivedMessages) {
+      if (messageReceiver != null) {
+        dispatchMessage(messageReceiver, message);
+      } else {
+        // dropped if nobody reads the messages, instead of growing forever
+        receivedMessages.offer(message);
+      }
+    }
+  }
+
+  private void dispatchMessage(@Nonnull IMessageReceiver receiver, @Nonnull byte[] message) {
+    ThreadPools.threadPool.executeOrRetry(() -> {
+      receiver.messageReceived(this, message);
+    });
+  }
+
+  /**
+   * Interface used to receive the whole messages sent by
+   * {@link Connection#sendMessage(byte[])}.
+   * 
+   * @author aidn5
+   *
+   * @since 1.0
+   * 
+   * @see Connection#setMessageReceiver(IMessageReceiver)
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IMessageReceiver {
+    /**
+     * called on a separate thread when a whole message is received.
+     * 
+     * @param connection
+     *          the connection, which has received the message.
+     * @param message
+     *          the received message.
+     */
+    void messageReceived(@Nonnull Connection connection, @Nonnull byte[] message);
+  }
+
   @IBackend
   @IHypixelUtils
   public class InputStreamChatSocket extends InputStream {
@@ -447,6 +906,11 @@ public class Connection implements IPacketReceiver {
 
     private boolean atEnd = false;
 
+    private volatile long flushDelay = DEFAULT_FLUSH_DELAY;
+    private volatile boolean noDelay = false;
+    @Nullable
+    private ScheduledFuture<?> flushTask = null;
+
     private OutputStreamChatSocket(int bufferSize) {
       if (bufferSize <= 0) {
         throw new IllegalArgumentException("bufferSize must be bigger than null");
@@ -501,6 +965,20 @@ public class Connection implements IPacketReceiver {
       }
 
       buff[currentPointer++] = (byte) b;
+
+      if (currentPointer >= buff.length && parentConnection.isConnectionOpened()) {
+        // a whole line is available
+        flush();
+      } else if (currentPointer == 1) {
+        scheduleFlush(noDelay ? 0 : flushDelay);
+      }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+      // the bytes are written at once, so the flush scheduled
+      // by the first byte can not send a part of them alone
+      super.write(b, off, len);
     }
 
     @Override
@@ -509,6 +987,8 @@ public class Connection implements IPacketReceiver {
         throw new IOException("Connection not opened yet to send data.");
       }
 
+      cancelFlush();
+
       if (currentPointer == 0) {
         return;
       }
@@ -526,5 +1006,40 @@ public class Connection implements IPacketReceiver {
         throw new IOException("Could not flush the output stream of the connection.", e);
       }
     }
+
+    private void scheduleFlush(long delay) {
+      if (delay < 0 || flushTask != null) {
+        return;
+      }
+
+      flushTask = Scheduler.schedule(this::autoFlush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelFlush() {
+      if (flushTask != null) {
+        flushTask.cancel(false);
+        flushTask = null;
+      }
+    }
+
+    private synchronized void autoFlush() {
+      flushTask = null;
+
+      if (currentPointer == 0 || connectionClosed()) {
+        return;
+      }
+
+      // wait for the connection to open
+      if (!parentConnection.isConnectionOpened()) {
+        scheduleFlush(Math.max(flushDelay, DEFAULT_FLUSH_DELAY));
+        return;
+      }
+
+      try {
+        flush();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
   }
 }
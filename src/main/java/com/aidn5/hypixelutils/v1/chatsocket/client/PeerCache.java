@@ -0,0 +1,323 @@
+package com.aidn5.hypixelutils.v1.chatsocket.client;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.client.RequestSendEvent.RequestResponse;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Cache of the responses of the other players to the connection requests.
+ *
+ * <p>
+ * Every response to {@link RequestSendEvent#sendNewRequest(String, IResponseRequest)}
+ * is saved for a while. Sending the same request to the same user again in
+ * this period fails at once with the saved response instead of sending a
+ * chat line and waiting for the timeout. The response
+ * {@link RequestResponse#UNREACHABLE} (offline user) is saved for the user
+ * itself regardless of the id and actionId of the request. A timeout can have
+ * many causes (e.g. a lost line). So, {@link RequestResponse#TIMED_OUT} is only
+ * saved for a few seconds to not send the same request again at once.
+ *
+ * <p>
+ * How long every response is saved can be changed with
+ * {@link #setTtl(RequestResponse, long, TimeUnit)}. The cache can be saved to
+ * a file with {@link #setCacheFile(File)}, {@link #saveCache()} and
+ * {@link #loadCache()}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see RequestSendEvent#setIgnoreCache(boolean)
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class PeerCache {
+  @Nonnull
+  private static final Map<RequestResponse, Long> ttls = new EnumMap<>(RequestResponse.class);
+  static {
+    ttls.put(RequestResponse.ACCEPTED, TimeUnit.HOURS.toMillis(1));
+    ttls.put(RequestResponse.REJECTED, TimeUnit.MINUTES.toMillis(10));
+    ttls.put(RequestResponse.TIMED_OUT, TimeUnit.SECONDS.toMillis(30));
+    ttls.put(RequestResponse.UNREACHABLE, TimeUnit.MINUTES.toMillis(2));
+  }
+
+  /**
+   * "user:id:actionId" or "user" for {@link RequestResponse#UNREACHABLE}.
+   */
+  @Nonnull
+  private static final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+
+  @Nullable
+  private static File cacheFile = null;
+
+  private PeerCache() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Set how long a response is saved.
+   *
+   * @param response
+   *          the response to change its duration.
+   * @param duration
+   *          how long the response is saved. {@code 0} to never save it.
+   * @param unit
+   *          the unit of {@code duration}.
+   */
+  public static void setTtl(@Nonnull RequestResponse response, long duration,
+      @Nonnull TimeUnit unit) {
+    synchronized (ttls) {
+      ttls.put(response, unit.toMillis(duration));
+    }
+  }
+
+  /**
+   * Get the saved response of the user to the request.
+   *
+   * @param user
+   *          the user, who has been requested.
+   * @param id
+   *          the id of the request.
+   * @param actionId
+   *          the actionId of the request.
+   *
+   * @return
+   *         the saved response or <code>null</code> if nothing is saved or the
+   *         saved response has expired.
+   */
+  @Nullable
+  public static RequestResponse getResponse(@Nonnull String user, @Nonnull String id,
+      @Nonnull String actionId) {
+    final long now = Clock.get().currentTimeMillis();
+
+    CachedResponse cr = cache.get(user.toLowerCase());
+    if (cr != null && !isExpired(cr, now)) {
+      return cr.response;
+    }
+
+    cr = cache.get(key(user, id, actionId));
+    if (cr != null && !isExpired(cr, now)) {
+      return cr.response;
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the actionIds of the id, which the user has accepted before.
+   *
+   * @param user
+   *          the user to check.
+   * @param id
+   *          the id of the programs.
+   *
+   * @return
+   *         the actionIds, which the user has accepted and not expired yet.
+   */
+  @Nonnull
+  public static Set<String> getSupportedActionIds(@Nonnull String user, @Nonnull String id) {
+    final String prefix = user.toLowerCase() + ":" + id + ":";
+    final long now = Clock.get().currentTimeMillis();
+    final Set<String> actionIds = new HashSet<>();
+
+    for (Entry<String, CachedResponse> entry : cache.entrySet()) {
+      CachedResponse cr = entry.getValue();
+      if (cr.response == RequestResponse.ACCEPTED && !isExpired(cr, now)
+          && entry.getKey().startsWith(prefix)) {
+        actionIds.add(entry.getKey().substring(prefix.length()));
+      }
+    }
+
+    return actionIds;
+  }
+
+  /**
+   * Save the response of the user to the request.
+   *
+   * @param user
+   *          the user, who has been requested.
+   * @param id
+   *          the id of the request.
+   * @param actionId
+   *          the actionId of the request.
+   * @param response
+   *          the response of the user.
+   */
+  public static void putResponse(@Nonnull String user, @Nonnull String id,
+      @Nonnull String actionId, @Nonnull RequestResponse response) {
+    if (cache.size() > 1000) {
+      cleanCache();
+    }
+
+    final CachedResponse cr = new CachedResponse();
+    cr.response = response;
+    cr.time = Clock.get().currentTimeMillis();
+
+    if (response == RequestResponse.UNREACHABLE) {
+      cache.put(user.toLowerCase(), cr);
+
+    } else {
+      // the user is reachable again
+      cache.remove(user.toLowerCase());
+      cache.put(key(user, id, actionId), cr);
+    }
+  }
+
+  /**
+   * Remove all the saved responses of the user. Used when the user is known to
+   * be online again or to have installed the mod.
+   *
+   * @param user
+   *          the user to forget.
+   */
+  public static void forget(@Nonnull String user) {
+    final String name = user.toLowerCase();
+    final String prefix = name + ":";
+
+    cache.keySet().removeIf(key -> key.equals(name) || key.startsWith(prefix));
+  }
+
+  /**
+   * Remove all the saved responses.
+   */
+  public static void clearCache() {
+    cache.clear();
+  }
+
+  /**
+   * Remove the expired responses.
+   */
+  public static void cleanCache() {
+    final long now = Clock.get().currentTimeMillis();
+
+    Iterator<CachedResponse> iterator = cache.values().iterator();
+    while (iterator.hasNext()) {
+      if (isExpired(iterator.next(), now)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Set the file to save the cache in. If it is <code>null</code>,
+   * {@link #saveCache()} and {@link #loadCache()} will be disabled.
+   *
+   * @param file
+   *          the file to save the cache in.
+   */
+  public static void setCacheFile(@Nullable File file) {
+    cacheFile = file;
+  }
+
+  /**
+   * Load the saved responses from {@link #setCacheFile(File)}. The expired
+   * ones are ignored.
+   */
+  public static void loadCache() {
+    final File file = cacheFile;
+    if (file == null || !file.exists()) {
+      return;
+    }
+
+    try {
+      synchronized (PeerCache.class) {
+        byte[] data = Files.readAllBytes(file.toPath());
+
+        Type listType = new TypeToken<ArrayList<CachedResponse>>() {}.getType();
+        List<CachedResponse> saved =
+            new Gson().fromJson(new String(data, StandardCharsets.UTF_8), listType);
+        if (saved == null) {
+          return;
+        }
+
+        final long now = Clock.get().currentTimeMillis();
+        for (CachedResponse cr : saved) {
+          if (cr != null && cr.key != null && cr.response != null && !isExpired(cr, now)) {
+            cache.putIfAbsent(cr.key, cr);
+          }
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Save the responses to {@link #setCacheFile(File)}.
+   */
+  public static void saveCache() {
+    final File file = cacheFile;
+    if (file == null) {
+      return;
+    }
+
+    cleanCache();
+
+    List<CachedResponse> toSave = new ArrayList<>();
+    for (Entry<String, CachedResponse> entry : cache.entrySet()) {
+      CachedResponse cr = entry.getValue();
+      cr.key = entry.getKey();
+      toSave.add(cr);
+    }
+
+    try {
+      synchronized (PeerCache.class) {
+        Type listType = new TypeToken<ArrayList<CachedResponse>>() {}.getType();
+        String json = new Gson().toJson(toSave, listType);
+
+        try (OutputStream out = new FileOutputStream(file)) {
+          out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static boolean isExpired(@Nonnull CachedResponse cr, long now) {
+    final Long ttl;
+    synchronized (ttls) {
+      ttl = ttls.get(cr.response);
+    }
+
+    return ttl == null || cr.time + ttl < now;
+  }
+
+  @Nonnull
+  private static String key(@Nonnull String user, @Nonnull String id, @Nonnull String actionId) {
+    return user.toLowerCase() + ":" + id + ":" + actionId;
+  }
+
+  private static class CachedResponse {
+    /**
+     * only set when saving to the file.
+     */
+    String key;
+    RequestResponse response;
+    long time;
+  }
+}
@@ -81,7 +81,8 @@ public class RequestReceiveEvent {
    *         <code>true</code> if the connection is still waiting.
    */
   public boolean canSend() {
-    return chatSocket.connectionId > 0 && !chatSocket.isConnectionClosed();
+    // -1 marks a request, which only informs the listener
+    return chatSocket.connectionId != -1 && !chatSocket.isConnectionClosed();
   }
 
   /**
@@ -119,6 +120,16 @@ public class RequestReceiveEvent {
     chatSocket.sendConnectionDeclinePacket();
   }
 
+  /**
+   * Close the requested connection without informing the other end, which will
+   * time out. Used to release the connection of an ignored request. This method
+   * has no effect, if the connection is already closed.
+   */
+  @IBackend
+  public void dropConnection() {
+    chatSocket.closeConnection();
+  }
+
   /**
    * Interface used to inform the user about new request connections.
    * 
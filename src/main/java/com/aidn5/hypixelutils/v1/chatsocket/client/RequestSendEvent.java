@@ -5,6 +5,7 @@ import javax.annotation.Nonnull;
 
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.players.Player;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
 
 /**
  * A holder Holds the connection's id and its metadata can be saved and reused
@@ -21,6 +22,8 @@ public class RequestSendEvent {
   @Nonnull
   private final String actionId;
 
+  private boolean ignoreCache = false;
+
   /**
    * Constructor.
    * 
@@ -66,22 +69,71 @@ public class RequestSendEvent {
     return actionId;
   }
 
+  /**
+   * Check whether {@link PeerCache} is ignored when sending requests.
+   * 
+   * @return
+   *         <code>true</code> if every request is sent even if the user is
+   *         known to be offline or to have rejected it.
+   */
+  public boolean isIgnoreCache() {
+    return ignoreCache;
+  }
+
+  /**
+   * Set whether {@link PeerCache} should be ignored when sending requests.
+   * Default is <code>false</code>.
+   * 
+   * @param ignoreCache
+   *          <code>true</code> to always send the requests.
+   * 
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public RequestSendEvent setIgnoreCache(boolean ignoreCache) {
+    this.ignoreCache = ignoreCache;
+    return this;
+  }
+
   /**
    * Send a new request to the other user.
    * 
+   * <p>
+   * If the user has rejected/ignored this request or has been offline a short
+   * while ago (see {@link PeerCache}), the callback is called at once with the
+   * saved response and nothing is sent. The response of every sent request is
+   * saved in {@link PeerCache}.
+   * 
    * @param user
    *          the user, who is at the other end of the connection.
    * @param callback
    *          callback to receive when a response is given.
+   * 
+   * @see #setIgnoreCache(boolean)
    */
   public void sendNewRequest(@Nonnull String user, IResponseRequest callback) {
     Player.validateUsername(user);
 
+    if (!ignoreCache) {
+      final RequestResponse cached = PeerCache.getResponse(user, getId(), getActionId());
+
+      if (cached != null && cached != RequestResponse.ACCEPTED) {
+        ThreadPools.threadPool.executeOrRetry(() -> {
+          callback.response(cached, null);
+        });
+        return;
+      }
+    }
+
     ChatSocket chatSocket = new ChatSocket(
         user, getId(), getActionId(), ChatSocket.generateConnectionId(), true);
 
     ChatSocketsManager.addNewConnection(chatSocket);
-    chatSocket.sendConnectionRequestPacket(callback);
+    chatSocket.sendConnectionRequestPacket((rr, cp) -> {
+      PeerCache.putResponse(user, getId(), getActionId(), rr);
+      callback.response(rr, cp);
+    });
   }
 
   /**
@@ -108,6 +160,11 @@ public class RequestSendEvent {
      * and that the client has just ignored or didn't receive the request. the
      * connection is closed and should create a new one to connect if needed.
      */
-    TIMED_OUT;
+    TIMED_OUT,
+    /**
+     * Indicates that the server could not deliver the request, because the client
+     * is offline or does not accept private messages. the connection is closed.
+     */
+    UNREACHABLE;
   }
 }
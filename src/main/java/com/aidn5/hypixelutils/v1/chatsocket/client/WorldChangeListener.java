@@ -0,0 +1,99 @@
+package com.aidn5.hypixelutils.v1.chatsocket.client;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.eventslistener.ServerInstanceListener.ServerInstanceEvent;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Pause the connections while switching the server/world, since the chat
+ * lines sent at this time are mostly lost, and resume them after.
+ * 
+ * <p>
+ * The connections are resumed as soon as the server instance is known
+ * ({@link ServerInstanceEvent}) or {@link #RESUME_DELAY} after the world is
+ * loaded, since the server ignores the commands sent right after joining.
+ * 
+ * <p>
+ * Registered by
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.transport.ForgeChatTransport}.
+ * Headless hosts call {@link ChatSocketsManager#pauseAll()} and
+ * {@link ChatSocketsManager#resumeAll()} themselves.
+ * 
+ * @author aidn5
+ *
+ * @since 1.0
+ * 
+ * @see ChatSocket#pause()
+ */
+@IHypixelUtils
+@IBackend
+public class WorldChangeListener {
+  /**
+   * how long to wait after loading the world before resuming the connections.
+   */
+  public static final long RESUME_DELAY = TimeUnit.SECONDS.toMillis(3);
+
+  private static final WorldChangeListener instance = new WorldChangeListener();
+
+  @Nullable
+  private ScheduledFuture<?> resumeTask = null;
+
+  private WorldChangeListener() {
+    MinecraftForge.EVENT_BUS.register(this);
+  }
+
+  /**
+   * Make sure the listener is registered.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   */
+  @IBackend
+  public static void init() {
+    // the instance is created and registered when the class is loaded
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onWorldUnload(WorldEvent.Unload event) {
+    synchronized (this) {
+      cancelResume();
+      ChatSocketsManager.pauseAll();
+    }
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onWorldLoad(WorldEvent.Load event) {
+    synchronized (this) {
+      cancelResume();
+      resumeTask = Scheduler.schedule(
+          ChatSocketsManager::resumeAll, RESUME_DELAY, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onServerInstance(ServerInstanceEvent event) {
+    synchronized (this) {
+      cancelResume();
+      ChatSocketsManager.resumeAll();
+    }
+  }
+
+  private void cancelResume() {
+    if (resumeTask != null) {
+      resumeTask.cancel(false);
+      resumeTask = null;
+    }
+  }
+}
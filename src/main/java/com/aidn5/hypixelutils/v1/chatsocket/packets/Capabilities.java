@@ -0,0 +1,217 @@
+package com.aidn5.hypixelutils.v1.chatsocket.packets;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * The wire features a client supports. They are exchanged in the handshake
+ * ({@link ProtocolPacket#ACTION_REQUEST} and {@link ProtocolPacket#ACTION_ACCEPT})
+ * and the best common set is used for the connection.
+ *
+ * <p>
+ * The capabilities are appended at the end of {@link ProtocolPacket}. Older
+ * clients ignore them and do not send any. A connection with such a client
+ * uses {@link #LEGACY}. So, new features can be shipped one by one while
+ * still working with older clients.
+ *
+ * <p>
+ * <b>Format:</b>
+ * <table border="2">
+ * <tbody>
+ * <tr><th>Byte(s)</th><th>Contains</th><th>Usage</th></tr>
+ * <tr><td>1</td><td>Byte</td><td>protocol version. See {@link #getVersion()}</td></tr>
+ * <tr><td>2</td><td>Short</td><td>max data per line. See {@link #getMaxLinePayload()}</td></tr>
+ * <tr><td>1</td><td>Byte</td><td>supported codecs. "CODEC_**" flags</td></tr>
+ * <tr><td>1</td><td>Byte</td><td>supported features. "FEATURE_**" flags</td></tr>
+ * </tbody>
+ * </table>
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public final class Capabilities {
+  /**
+   * the packets are encoded with base64.
+   */
+  public static final byte CODEC_BASE64 = 1;
+
+  /**
+   * the data can be compressed.
+   */
+  public static final byte FEATURE_COMPRESSION = 1;
+  /**
+   * the lost packets are sent again.
+   */
+  public static final byte FEATURE_RELIABLE = 2;
+  /**
+   * many streams can share the same connection.
+   */
+  public static final byte FEATURE_MULTIPLEXING = 4;
+  /**
+   * whole messages can be sent. See
+   * {@link com.aidn5.hypixelutils.v1.chatsocket.client.Connection#sendMessage(byte[])}.
+   */
+  public static final byte FEATURE_MESSAGES = 8;
+  /**
+   * the connection can be resumed after the chat has been interrupted. See
+   * {@link ResumePacket}.
+   */
+  public static final byte FEATURE_RESUME = 16;
+
+  /**
+   * The capabilities of the clients, which do not send any.
+   */
+  @Nonnull
+  public static final Capabilities LEGACY = new Capabilities((byte) 1, (short) 30,
+      CODEC_BASE64, (byte) 0);
+  /**
+   * The capabilities of this client.
+   */
+  @Nonnull
+  public static final Capabilities LOCAL = new Capabilities((byte) 2, (short) 30,
+      CODEC_BASE64, (byte) (FEATURE_MESSAGES | FEATURE_RESUME));
+
+  /**
+   * the size of the capabilities in bytes.
+   */
+  static final int SIZE = 1 + 2 + 1 + 1;
+
+  private final byte version;
+  private final short maxLinePayload;
+  private final byte codecs;
+  private final byte features;
+
+  /**
+   * Constructor.
+   *
+   * @param version
+   *          the protocol version.
+   * @param maxLinePayload
+   *          how many bytes of data can be sent in one line.
+   * @param codecs
+   *          the supported codecs. "CODEC_**" flags.
+   * @param features
+   *          the supported features. "FEATURE_**" flags.
+   */
+  public Capabilities(byte version, short maxLinePayload, byte codecs, byte features) {
+    this.version = version;
+    this.maxLinePayload = maxLinePayload;
+    this.codecs = codecs;
+    this.features = features;
+  }
+
+  /**
+   * Get the protocol version. {@code 1} is the version before the capabilities
+   * were added.
+   *
+   * @return
+   *         the protocol version.
+   */
+  public byte getVersion() {
+    return version;
+  }
+
+  /**
+   * Get how many bytes of data can be sent in one line.
+   *
+   * @return
+   *         how many bytes of data can be sent in one line.
+   */
+  public short getMaxLinePayload() {
+    return maxLinePayload;
+  }
+
+  /**
+   * Check whether the codec is supported.
+   *
+   * @param codec
+   *          the codec to check. "CODEC_**" flag.
+   *
+   * @return
+   *         <code>true</code> if the codec is supported.
+   */
+  public boolean hasCodec(byte codec) {
+    return (codecs & codec) == codec;
+  }
+
+  /**
+   * Check whether the feature is supported.
+   *
+   * @param feature
+   *          the feature to check. "FEATURE_**" flag.
+   *
+   * @return
+   *         <code>true</code> if the feature is supported.
+   */
+  public boolean hasFeature(byte feature) {
+    return (features & feature) == feature;
+  }
+
+  /**
+   * Get the best common capabilities between this and the other one.
+   *
+   * @param other
+   *          the capabilities of the other end.
+   *
+   * @return
+   *         the capabilities, which both ends support.
+   */
+  @Nonnull
+  public Capabilities intersect(@Nonnull Capabilities other) {
+    byte commonCodecs = (byte) (codecs & other.codecs);
+    if (commonCodecs == 0) {
+      // base64 is always supported
+      commonCodecs = CODEC_BASE64;
+    }
+
+    return new Capabilities(
+        (byte) Math.min(version, other.version),
+        (short) Math.max(1, Math.min(maxLinePayload, other.maxLinePayload)),
+        commonCodecs,
+        (byte) (features & other.features));
+  }
+
+  /**
+   * Write the capabilities to the buffer.
+   *
+   * @param bf
+   *          the buffer to write to. Must have at least {@link #SIZE} bytes
+   *          remaining.
+   */
+  void write(@Nonnull ByteBuffer bf) {
+    bf.put(version);
+    bf.putShort(maxLinePayload);
+    bf.put(codecs);
+    bf.put(features);
+  }
+
+  /**
+   * Read the capabilities from the buffer.
+   *
+   * @param bf
+   *          the buffer to read from.
+   *
+   * @return
+   *         the read capabilities or {@link #LEGACY} if the buffer does not
+   *         have enough bytes.
+   */
+  @Nonnull
+  static Capabilities read(@Nonnull ByteBuffer bf) {
+    if (bf.remaining() < SIZE) {
+      return LEGACY;
+    }
+
+    return new Capabilities(bf.get(), bf.getShort(), bf.get(), bf.get());
+  }
+
+  @Override
+  public String toString() {
+    return "Capabilities{version=" + version + ", maxLinePayload=" + maxLinePayload
+        + ", codecs=" + codecs + ", features=" + features + "}";
+  }
+}
@@ -41,11 +41,14 @@ public class DataPacket extends BasePacket {
    *          the raw data to send to the other client.
    *          (can also be a chunk of the total data)
    * @param total
-   *          the total data size from all chunks
+   *          the total data size from all chunks.
+   *          {@code -1} if the data is part of a stream.
    * @param currentPointer
-   *          the current position of this data
+   *          the current position of this data in the message.
+   *          {@code -1} if the data is part of a stream.
    * @param isAtEnd
-   *          indicates whether this packet is the last packet of the stream.
+   *          indicates whether this packet is the last packet of the stream
+   *          or of the message.
    */
   public DataPacket(@Nonnull byte[] data, int total, int currentPointer, boolean isAtEnd) {
     this.rawData = Objects.requireNonNull(data);
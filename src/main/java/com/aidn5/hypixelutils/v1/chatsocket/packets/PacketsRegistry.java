@@ -1,6 +1,7 @@
 
 package com.aidn5.hypixelutils.v1.chatsocket.packets;
 
+import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map.Entry;
 
@@ -8,7 +9,6 @@ import com.aidn5.hypixelutils.v1.chatsocket.client.Connection;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.exceptions.HypixelUtilsInternalError;
-import com.aidn5.hypixelutils.v1.tools.ReflectionUtil;
 
 /**
  * Class contains all the registered packets for the current connection. Every
@@ -28,6 +28,11 @@ import com.aidn5.hypixelutils.v1.tools.ReflectionUtil;
  * {@link IPacketReceiver} by
  * {@link Connection#setCustomPacketReceiver(IPacketReceiver)}.
  * 
+ * <p>
+ * Keys from 1 to 99 are reserved for the packets of the library itself
+ * (like {@link com.aidn5.hypixelutils.v1.chatsocket.transfer.BlobTransfer}).
+ * Custom packets should use keys outside this range.
+ * 
  * @author aidn5
  *
  * @since 1.0
@@ -43,6 +48,7 @@ public class PacketsRegistry {
     addPacket((short) 1, ProtocolPacket.class);
     addPacket((short) 2, DataPacket.class);
     addPacket((short) 3, KeepAlivePacket.class);
+    addPacket((short) 4, ResumePacket.class);
   }
 
   /**
@@ -132,7 +138,10 @@ public class PacketsRegistry {
   @IBackend
   public static <T extends BasePacket> T getPacket(Class<T> packetClass, byte[] packetData) {
     try {
-      T packet = ReflectionUtil.newInstance(packetClass);
+      // not ReflectionUtil, which needs forge
+      Constructor<T> constructor = packetClass.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      T packet = constructor.newInstance();
       packet.readData(packetData);
       return packet;
     } catch (ReflectiveOperationException e) {
@@ -3,6 +3,8 @@ package com.aidn5.hypixelutils.v1.chatsocket.packets;
 
 import java.nio.ByteBuffer;
 
+import javax.annotation.Nullable;
+
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
@@ -41,6 +43,12 @@ public class ProtocolPacket extends BasePacket {
    * used to define their intends from each other.
    */
   private String actionId;
+  /**
+   * the capabilities of the sender. Only sent with {@link #ACTION_REQUEST} and
+   * {@link #ACTION_ACCEPT}. Older clients do not send them.
+   */
+  @Nullable
+  private Capabilities capabilities;
 
   @SuppressWarnings("unused")
   // Constructed in BaseProtocol.java by reflection.
@@ -60,12 +68,32 @@ public class ProtocolPacket extends BasePacket {
    *          what the packet want from the other end to do with it.
    */
   public ProtocolPacket(String id, String actionId, byte action) {
+    this(id, actionId, action, null);
+  }
+
+  /**
+   * Constructor to create new Packet with capabilities.
+   * 
+   * @param id
+   *          the id of the programs which are trying to communicate with each
+   *          other.
+   * @param actionId
+   *          an extra field for the program.
+   *          used to define their intends from each other.
+   * @param action
+   *          what the packet want from the other end to do with it.
+   * @param capabilities
+   *          the capabilities to send with the packet or <code>null</code>.
+   */
+  public ProtocolPacket(String id, String actionId, byte action,
+      @Nullable Capabilities capabilities) {
     id = id.trim();
     actionId = actionId.trim();
 
     this.id = id;
     this.actionId = actionId;
     this.action = action;
+    this.capabilities = capabilities;
   }
 
   /**
@@ -104,6 +132,18 @@ public class ProtocolPacket extends BasePacket {
     return action;
   }
 
+  /**
+   * Get the capabilities of the sender.
+   * 
+   * @return
+   *         the capabilities of the sender or <code>null</code> if the packet
+   *         has none (e.g. sent by an older client).
+   */
+  @Nullable
+  public Capabilities getCapabilities() {
+    return capabilities;
+  }
+
   @Override
   public byte[] getBytes() {
     byte[] idArray = getId().getBytes();
@@ -112,7 +152,8 @@ public class ProtocolPacket extends BasePacket {
     ByteBuffer bf = ByteBuffer.allocate(
         1
             + 1 + idArray.length
-            + 1 + actionIdArray.length);
+            + 1 + actionIdArray.length
+            + (capabilities != null ? Capabilities.SIZE : 0));
 
     bf.put(action);
 
@@ -122,6 +163,11 @@ public class ProtocolPacket extends BasePacket {
     bf.put((byte) actionIdArray.length);
     bf.put(actionIdArray);
 
+    // appended at the end. So, older clients just ignore it
+    if (capabilities != null) {
+      capabilities.write(bf);
+    }
+
     return bf.array();
   }
 
@@ -141,5 +187,9 @@ public class ProtocolPacket extends BasePacket {
     actionIdArray = new byte[bf.get()];
     bf.get(actionIdArray);
     actionId = new String(actionIdArray);
+
+    if (bf.hasRemaining()) {
+      capabilities = Capabilities.read(bf);
+    }
   }
 }
@@ -0,0 +1,80 @@
+package com.aidn5.hypixelutils.v1.chatsocket.packets;
+
+import java.nio.ByteBuffer;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Packet used to resume a connection after the chat has been interrupted
+ * (e.g. by switching the server). It tells the other end how many packets have
+ * been received. So, the other end can send the lost ones again.
+ * 
+ * <p>
+ * Only sent to clients, which support
+ * {@link Capabilities#FEATURE_RESUME}.
+ * 
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+public class ResumePacket extends BasePacket {
+  private int receivedCount;
+  private boolean isReply;
+
+  @SuppressWarnings("unused")
+  private ResumePacket() {}
+
+  /**
+   * Constructor to create the packet.
+   * 
+   * @param receivedCount
+   *          how many packets have been received from the other end.
+   * @param isReply
+   *          whether the packet is a reply to a resume packet from the other
+   *          end.
+   */
+  public ResumePacket(int receivedCount, boolean isReply) {
+    this.receivedCount = receivedCount;
+    this.isReply = isReply;
+  }
+
+  /**
+   * Get how many packets the other end has received.
+   * 
+   * @return
+   *         how many packets the other end has received.
+   */
+  public int getReceivedCount() {
+    return receivedCount;
+  }
+
+  /**
+   * Check whether the packet is a reply to a resume packet.
+   * 
+   * @return
+   *         <code>true</code> if the packet is a reply.
+   */
+  public boolean isReply() {
+    return isReply;
+  }
+
+  @Override
+  public void readData(byte[] data) {
+    ByteBuffer bf = ByteBuffer.wrap(data);
+    receivedCount = bf.getInt();
+    isReply = (bf.get() == 1);
+  }
+
+  @Override
+  public byte[] getBytes() {
+    ByteBuffer bf = ByteBuffer.allocate(4 + 1);
+
+    bf.putInt(receivedCount);
+    bf.put((byte) (isReply ? 1 : 0));
+
+    return bf.array();
+  }
+}
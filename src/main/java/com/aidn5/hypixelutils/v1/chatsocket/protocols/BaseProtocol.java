@@ -2,19 +2,31 @@
 package com.aidn5.hypixelutils.v1.chatsocket.protocols;
 
 import java.nio.ByteBuffer;
-
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.commons.codec.binary.Base64;
 
-import com.aidn5.hypixelutils.v1.chatsocket.ChatSocketFactory;
+import com.aidn5.hypixelutils.v1.chatsocket.RequestDispatcher;
 import com.aidn5.hypixelutils.v1.chatsocket.client.ChatSocket;
 import com.aidn5.hypixelutils.v1.chatsocket.client.ChatSocketsManager;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.PacketsRegistry;
 import com.aidn5.hypixelutils.v1.chatsocket.packets.ProtocolPacket;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport.ITransportListener;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
 
 /**
  * Class handles the incoming and the outgoing packets from protocols.
@@ -27,6 +39,9 @@ import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
  * They must also support receiving packets, by passing them to
  * {@link com.aidn5.hypixelutils.v1.chatsocket.protocols.BaseProtocol
  * #receivePacket(String, boolean, java.nio.ByteBuffer)}.
+ * Protocols receive and send the chat lines through
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport}
+ * and never through the minecraft client directly.
  * 
  * <p>
  * <b>Packet:</b>
@@ -61,7 +76,7 @@ import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
  */
 @IHypixelUtils
 @IBackend
-public abstract class BaseProtocol {
+public abstract class BaseProtocol implements ITransportListener {
   /**
    * added to the first byte before the packet.
    * 
@@ -87,6 +102,37 @@ public abstract class BaseProtocol {
    * process new connections.
    */
   private static PacketsRegistry defaultPR = new PacketsRegistry();
+  /**
+   * How long the server may take to reply to a sent line. A delivery-failure
+   * reply is only tied to lines sent in this period.
+   */
+  private static final long REPLY_WINDOW = TimeUnit.SECONDS.toMillis(2);
+  /**
+   * How many times a line is sent again after the server replied with
+   * {@link DeliveryFailure#TOO_FAST}.
+   */
+  private static final int MAX_RETRIES = 3;
+  /**
+   * The lines, which are sent and not yet confirmed by the server. The server
+   * replies in the same order the lines are sent.
+   */
+  private static final Deque<SentLine> sentLines = new ArrayDeque<>();
+  /**
+   * How many lines of one connection can wait to be sent.
+   */
+  private static final int MAX_QUEUED_PER_CONNECTION = CongestionController.MAX_QUEUED_LINES;
+  /**
+   * connection -> its lines, which wait to be sent.
+   * 
+   * <p>
+   * Only one line of every connection is given to {@link CongestionController}
+   * at a time. The next one waits till the server has confirmed it (or the
+   * {@link #REPLY_WINDOW} has passed). So, a line sent again after
+   * {@link DeliveryFailure#TOO_FAST} is never received after the lines sent
+   * after it. Stream packets have no sequence number and would be corrupted
+   * otherwise.
+   */
+  private static final Map<ChatSocket, LineQueue> queues = new IdentityHashMap<>();
 
   /**
    * Search for an active protocol to use to send the packet.
@@ -103,15 +149,7 @@ public abstract class BaseProtocol {
   public static void sendPacket(ChatSocket chatSocket, BasePacket packet)
       throws RuntimeException {
 
-    final byte shiftNumber;
-    synchronized (defaultPR) {
-      if (shiftNumberCount > 250) {
-        shiftNumberCount = 0;
-      }
-
-      shiftNumber = ++shiftNumberCount;
-    }
-
+    final byte shiftNumber = nextShiftNumber();
     final byte[] packetData = packet.getBytes();
 
     final ByteBuffer bf = ByteBuffer.allocate(1 + 4 + 2 + packetData.length);
@@ -125,7 +163,7 @@ public abstract class BaseProtocol {
     for (BaseProtocol protocol : ProtocolsRegistry.getProtocols()) {
       if (protocol.isProtocolActive()) {
         String startIndicator = String.format(START_INDICATOR, chatSocket.isServer ? "s" : "c");
-        protocol.sendPacket(chatSocket.user, startIndicator, finalPacket);
+        queueLine(new SentLine(protocol, chatSocket, startIndicator, finalPacket, 0));
         return;
       }
     }
@@ -170,12 +208,11 @@ public abstract class BaseProtocol {
       // check for new incoming request connections
       if (packet.getAction() == ProtocolPacket.ACTION_REQUEST) {
 
+        // the request is checked and dispatched on a separate thread.
+        // Nothing is allocated, if it gets rejected
         if (chatSocket == null) {
-          ChatSocket cp = new ChatSocket(user, packet.getId(), packet.getActionId(),
-              connectionId, false);
-          ChatSocketsManager.addNewConnection(cp);
-          ChatSocketFactory.newRequestReceived(cp);
-
+          RequestDispatcher.dispatch(user, packet.getId(), packet.getActionId(), connectionId,
+              packet.getCapabilities());
 
         } else {
           // what are the odds for a random integer
@@ -184,8 +221,8 @@ public abstract class BaseProtocol {
           // request to only inform the listener that someone is trying to connect
           // but failed to generated unused hash for the this user.
           // passing -1 will do the job
-          ChatSocketFactory.newRequestReceived(
-              new ChatSocket(user, packet.getId(), packet.getActionId(), -1, false));
+          RequestDispatcher.dispatch(user, packet.getId(), packet.getActionId(), -1,
+              packet.getCapabilities());
         }
 
         return;
@@ -200,7 +237,8 @@ public abstract class BaseProtocol {
           // it means that both clients sent the close message at the same time
           // sending it to the handler will rise an exception since the connection
           // marked as closed. Ignoring it is the best course to do here
-          if (packet.getAction() == ProtocolPacket.ACTION_CLOSE) {
+          if (packet.getAction() == ProtocolPacket.ACTION_CLOSE
+              && chatSocket.isConnectionClosed()) {
             return;
           }
         }
@@ -230,6 +268,344 @@ public abstract class BaseProtocol {
     }
   }
 
+  /**
+   * Inform that the server has delivered the line to the user. Protocols call
+   * this when they detect the echo of their own sent line (e.g. "To user: ...").
+   * 
+   * @param user
+   *          the user, who has received the line.
+   */
+  protected static void lineDelivered(String user) {
+    final List<SentLine> done = new ArrayList<>();
+    synchronized (sentLines) {
+      removeExpiredLines(done);
+
+      Iterator<SentLine> iterator = sentLines.iterator();
+      while (iterator.hasNext()) {
+        SentLine line = iterator.next();
+        if (line.chatSocket.user.equalsIgnoreCase(user)) {
+          iterator.remove();
+          CongestionController.lineConfirmed(Clock.get().currentTimeMillis() - line.time);
+          done.add(line);
+          break;
+        }
+      }
+    }
+
+    for (SentLine line : done) {
+      lineDone(line);
+    }
+  }
+
+  /**
+   * Inform that the server could not deliver a line, without knowing to whom
+   * the line was sent. See {@link #deliveryFailed(DeliveryFailure, String)}.
+   * 
+   * @param failure
+   *          the reason the server gave.
+   */
+  protected static void deliveryFailed(DeliveryFailure failure) {
+    deliveryFailed(failure, null);
+  }
+
+  /**
+   * Inform that the server could not deliver a line. Protocols call this when
+   * they detect the failure reply of the server. The failure is tied to the
+   * connection, which has sent a line to that user. The connection either
+   * sends the line again after a while or fails at once instead of waiting for
+   * the timeout.
+   * 
+   * <p>
+   * The reply might also be about a message, which the player has sent
+   * (e.g. "/msg" to an offline friend). So, if the reply does not name the
+   * user, it is only tied to a connection when all the unconfirmed lines are
+   * sent to the same user, and opened connections are never closed by it.
+   * 
+   * @param failure
+   *          the reason the server gave.
+   * @param user
+   *          the user named in the reply or <code>null</code> if the reply
+   *          does not name one.
+   */
+  protected static void deliveryFailed(DeliveryFailure failure, @Nullable String user) {
+    final List<SentLine> expired = new ArrayList<>();
+    final SentLine line;
+    synchronized (sentLines) {
+      removeExpiredLines(expired);
+      line = pollSentLine(user);
+    }
+
+    for (SentLine expiredLine : expired) {
+      lineDone(expiredLine);
+    }
+
+    if (failure == DeliveryFailure.TOO_FAST) {
+      CongestionController.lineLost();
+    }
+
+    if (line != null) {
+      lineFailed(line, failure, user != null);
+    }
+  }
+
+  /**
+   * Send the line again after a while or fail its connection.
+   * 
+   * <p>
+   * The line is sent again before the other lines of its connection, which
+   * have been waiting for it. So, the other end still receives the packets in
+   * the order they were sent.
+   * 
+   * @param certain
+   *          whether the failure is surely about this line. Otherwise, an
+   *          opened connection is left to its timeout.
+   */
+  private static void lineFailed(@Nonnull SentLine line, @Nonnull DeliveryFailure failure,
+      boolean certain) {
+    final ChatSocket chatSocket = line.chatSocket;
+    if (chatSocket.isConnectionClosed()) {
+      lineDone(line);
+      return;
+    }
+
+    if (failure.canRetry && line.retries < MAX_RETRIES) {
+      synchronized (queues) {
+        final LineQueue queue = queues.computeIfAbsent(chatSocket, k -> new LineQueue());
+        if (queue.inFlight == line) {
+          queue.inFlight = null;
+        }
+        queue.waiting.addFirst(line.retry());
+        queue.backingOff = true;
+      }
+
+      // back off: 1s, 2s, 4s
+      Scheduler.schedule(() -> {
+        synchronized (queues) {
+          final LineQueue queue = queues.get(chatSocket);
+          if (queue != null) {
+            queue.backingOff = false;
+          }
+        }
+        sendNext(chatSocket);
+      }, 1000L << line.retries, TimeUnit.MILLISECONDS);
+
+      return;
+    }
+
+    if (!certain && chatSocket.isConnectionOpened()) {
+      // the reply might be about another message. the timeout decides
+      lineDone(line);
+      return;
+    }
+
+    dropLines(chatSocket);
+    chatSocket.deliveryFailed();
+  }
+
+  /**
+   * Remove the unconfirmed line the failure reply is about.
+   * 
+   * @param user
+   *          the user named in the reply or <code>null</code>.
+   * 
+   * @return
+   *         the oldest line sent to the user or <code>null</code> if the
+   *         reply can not be tied to any line.
+   */
+  @Nullable
+  private static SentLine pollSentLine(@Nullable String user) {
+    if (user != null) {
+      Iterator<SentLine> iterator = sentLines.iterator();
+      while (iterator.hasNext()) {
+        SentLine line = iterator.next();
+        if (line.chatSocket.user.equalsIgnoreCase(user)) {
+          iterator.remove();
+          return line;
+        }
+      }
+      return null;
+    }
+
+    final SentLine first = sentLines.peekFirst();
+    if (first == null) {
+      return null;
+    }
+
+    for (SentLine line : sentLines) {
+      if (!line.chatSocket.user.equalsIgnoreCase(first.chatSocket.user)) {
+        // more than one recipient. nothing to tie the reply to
+        return null;
+      }
+    }
+
+    return sentLines.pollFirst();
+  }
+
+  /**
+   * Queue the line behind the other lines of its connection. If
+   * {@link #MAX_QUEUED_PER_CONNECTION} lines are already waiting, the
+   * connection fails, since dropping a line would corrupt its data.
+   */
+  private static void queueLine(@Nonnull SentLine line) {
+    boolean full = false;
+    synchronized (queues) {
+      final LineQueue queue = queues.computeIfAbsent(line.chatSocket, k -> new LineQueue());
+      if (queue.waiting.size() >= MAX_QUEUED_PER_CONNECTION) {
+        full = true;
+      } else {
+        queue.waiting.addLast(line);
+      }
+    }
+
+    if (full) {
+      dropLines(line.chatSocket);
+      line.chatSocket.deliveryFailed();
+      return;
+    }
+
+    sendNext(line.chatSocket);
+  }
+
+  /**
+   * Give the next line of the connection to {@link CongestionController}, if
+   * none of its lines is waiting for the server or backing off. If its queue is
+   * full, the line is handled like a {@link DeliveryFailure#TOO_FAST} reply.
+   */
+  private static void sendNext(@Nonnull ChatSocket chatSocket) {
+    final SentLine line;
+    synchronized (queues) {
+      final LineQueue queue = queues.get(chatSocket);
+      if (queue == null || queue.inFlight != null || queue.backingOff) {
+        return;
+      }
+
+      line = queue.waiting.pollFirst();
+      if (line == null) {
+        queues.remove(chatSocket);
+        return;
+      }
+      queue.inFlight = line;
+    }
+
+    if (!CongestionController.send(() -> transmit(line))) {
+      lineFailed(line, DeliveryFailure.TOO_FAST, true);
+    }
+  }
+
+  /**
+   * Send the line. Runs on the pacer of {@link CongestionController}.
+   */
+  private static void transmit(@Nonnull SentLine line) {
+    if (line.retries > 0 && line.chatSocket.isConnectionClosed()) {
+      lineDone(line);
+      return;
+    }
+
+    line.time = Clock.get().currentTimeMillis();
+    try {
+      line.protocol.sendPacket(line.chatSocket.user, line.startIndicator, line.packet);
+
+    } catch (Exception e) {
+      e.printStackTrace();
+      dropLines(line.chatSocket);
+      line.chatSocket.deliveryFailed();
+      return;
+    }
+
+    final List<SentLine> expired = new ArrayList<>();
+    synchronized (sentLines) {
+      removeExpiredLines(expired);
+      sentLines.addLast(line);
+    }
+
+    if (line.protocol.confirmsDelivery()) {
+      // the next line of the connection waits for the reply of the server.
+      // if it never comes, the line expires
+      Scheduler.schedule(BaseProtocol::expireLines, REPLY_WINDOW + 1, TimeUnit.MILLISECONDS);
+    } else {
+      // no reply will come
+      expired.add(line);
+    }
+
+    for (SentLine expiredLine : expired) {
+      lineDone(expiredLine);
+    }
+  }
+
+  /**
+   * Let the connection of the line send its next line.
+   */
+  private static void lineDone(@Nonnull SentLine line) {
+    synchronized (queues) {
+      final LineQueue queue = queues.get(line.chatSocket);
+      if (queue == null || queue.inFlight != line) {
+        return;
+      }
+      queue.inFlight = null;
+    }
+
+    sendNext(line.chatSocket);
+  }
+
+  /**
+   * Forget the waiting lines of the failed connection.
+   */
+  private static void dropLines(@Nonnull ChatSocket chatSocket) {
+    synchronized (queues) {
+      queues.remove(chatSocket);
+    }
+  }
+
+  private static void expireLines() {
+    final List<SentLine> expired = new ArrayList<>();
+    synchronized (sentLines) {
+      removeExpiredLines(expired);
+    }
+
+    for (SentLine line : expired) {
+      lineDone(line);
+    }
+  }
+
+  /**
+   * Remove the lines not confirmed in {@link #REPLY_WINDOW}. Must be called
+   * while holding the lock of {@link #sentLines}.
+   *
+   * @param expired
+   *          the list to add the removed lines to.
+   */
+  private static void removeExpiredLines(@Nonnull List<SentLine> expired) {
+    final long expireTime = Clock.get().currentTimeMillis() - REPLY_WINDOW;
+
+    while (!sentLines.isEmpty() && sentLines.peekFirst().time < expireTime) {
+      SentLine line = sentLines.pollFirst();
+      expired.add(line);
+
+      // the server never confirmed it
+      if (line.protocol.confirmsDelivery()) {
+        CongestionController.lineLost();
+      }
+    }
+  }
+
+  /**
+   * Get a new number to shift the next packet with.
+   * 
+   * @return
+   *         a number between 1 and 251.
+   * 
+   * @see #dataShifting(byte[], byte, boolean)
+   */
+  protected static byte nextShiftNumber() {
+    synchronized (defaultPR) {
+      if (shiftNumberCount > 250) {
+        shiftNumberCount = 0;
+      }
+
+      return ++shiftNumberCount;
+    }
+  }
+
   /**
    * Push all the data {@code shiftNumber} times. Helps to change the packet's
    * data to prevent chat-anti-spam from recognizing the packet and blocking it
@@ -255,18 +631,15 @@ public abstract class BaseProtocol {
    * @return
    *         new data array with data shifted.
    */
-  private static byte[] dataShifting(byte[] data, byte shiftNumber, boolean dicipher) {
-    byte finalShift = shiftNumber;
-
-    while (finalShift > data.length) {
-      finalShift -= data.length;
-    }
-
-    if (finalShift < 0) {
-      finalShift = (byte) (-256 - finalShift);
+  protected static byte[] dataShifting(byte[] data, byte shiftNumber, boolean dicipher) {
+    byte[] newArray = new byte[data.length];
+    if (data.length == 0) {
+      return newArray;
     }
 
-    byte[] newArray = new byte[data.length];
+    // the shift numbers above 127 are negative bytes.
+    // shifting by the whole length gives the same data
+    final int finalShift = Math.abs(shiftNumber) % data.length;
 
     if (dicipher) {
       System.arraycopy(data, finalShift, newArray, 0, data.length - finalShift);
@@ -311,6 +684,66 @@ public abstract class BaseProtocol {
     return Base64.decodeBase64(s);
   }
 
+  /**
+   * A line, which has been sent and not yet confirmed by the server.
+   */
+  private static class SentLine {
+    /**
+     * when the line has been sent.
+     */
+    volatile long time;
+    final BaseProtocol protocol;
+    final ChatSocket chatSocket;
+    final String startIndicator;
+    final byte[] packet;
+    final int retries;
+
+    SentLine(BaseProtocol protocol, ChatSocket chatSocket, String startIndicator,
+        byte[] packet, int retries) {
+      this.protocol = protocol;
+      this.chatSocket = chatSocket;
+      this.startIndicator = startIndicator;
+      this.packet = packet;
+      this.retries = retries;
+    }
+
+    /**
+     * Get a copy to send again after a failure.
+     */
+    SentLine retry() {
+      return new SentLine(protocol, chatSocket, startIndicator, packet, retries + 1);
+    }
+  }
+
+  /**
+   * The lines of one connection, which wait to be sent.
+   */
+  private static class LineQueue {
+    final Deque<SentLine> waiting = new ArrayDeque<>();
+    /**
+     * the line given to {@link CongestionController} and not yet confirmed by
+     * the server.
+     */
+    @Nullable
+    SentLine inFlight;
+    /**
+     * whether a failed line waits to be sent again.
+     */
+    boolean backingOff;
+  }
+
+  /**
+   * Check whether this protocol calls {@link #lineDelivered(String)} for every
+   * delivered line. If so, the lines, which are not confirmed in time, are
+   * considered lost and slow down the sending rate.
+   * 
+   * @return
+   *         <code>true</code> if this protocol confirms every delivered line.
+   */
+  protected boolean confirmsDelivery() {
+    return false;
+  }
+
   /**
    * Send the packet using this Protocol.
    * 
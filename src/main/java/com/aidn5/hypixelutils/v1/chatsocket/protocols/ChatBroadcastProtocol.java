@@ -0,0 +1,183 @@
+package com.aidn5.hypixelutils.v1.chatsocket.protocols;
+
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.chatsocket.broadcast.BroadcastGroup;
+import com.aidn5.hypixelutils.v1.chatsocket.broadcast.BroadcastGroup.Channel;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
+
+/**
+ * Protocol used to send one line to many players at once by using the party
+ * chat ("/pc") or the guild chat ("/gc") on the hypixel network as a shared
+ * medium.
+ *
+ * <p>
+ * This protocol is <b>not</b> used for the connections between two players.
+ * It is not registered in {@link ProtocolsRegistry} and
+ * {@link #isProtocolActive()} is always <code>false</code>. It is used by
+ * {@link BroadcastGroup} instead.
+ *
+ * <p>
+ * <b>Packet:</b>
+ * <i>Example: "Party &gt; [MVP+] aidn5: &amp;HUCBv1:AQZ0ZXN0SWQDYXNk"</i><br>
+ * The start indicator is {@link #START_INDICATOR}. The rest is encoded with
+ * {@code Base64}. The first byte is the shift number like in
+ * {@link BaseProtocol}. The rest of the bytes are shifted and passed to
+ * {@link BroadcastGroup}. The sender is identified from the prefix of the chat
+ * message.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see BroadcastGroup
+ */
+@IHypixelUtils
+@IBackend
+@IOnlyHypixel
+public class ChatBroadcastProtocol extends BaseProtocol {
+  /**
+   * Indicates the start of the packet.
+   *
+   * <p>
+   * <b>explains: </b> & = special char as a starter, HU = Hypixel-Utils, CB =
+   * Chat-Broadcast, v1 = Version-1.
+   */
+  public static final String START_INDICATOR = "&HUCBv1:";
+
+  // e.g. "Party > [MVP+] Spitsy: &HUCBv1:whar@"?Asd.+"
+  // group(1) = "Spitsy", group(2) = "whar@"?Asd.+"
+  private static final Pattern partyP = Pattern
+      .compile("^Party > (?:\\[.{2,30}\\] |)(\\w{1,16}): &HUCBv1:(.{1,9999})$");
+  // e.g. "Guild > [MVP+] Spitsy [Member]: &HUCBv1:whar@"?Asd.+"
+  private static final Pattern guildP = Pattern
+      .compile("^Guild > (?:\\[.{2,30}\\] |)(\\w{1,16})(?: \\[.{1,30}\\]|): &HUCBv1:(.{1,9999})$");
+
+  @Nonnull
+  private static final ChatBroadcastProtocol instance = new ChatBroadcastProtocol();
+
+  private ChatBroadcastProtocol() {
+    ChatTransport.get().addListener(this);
+  }
+
+  /**
+   * Start listening to the chat. This method has no effect, if the protocol
+   * is already listening.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   */
+  @IBackend
+  public static void init() {
+    // the instance is created and registered when the class is loaded
+  }
+
+  /**
+   * Send the frame of a {@link BroadcastGroup} to the chat channel. The frame
+   * is paced by {@link CongestionController} like any other line.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param channel
+   *          the chat channel to send the frame to.
+   * @param frame
+   *          the frame to send.
+   *
+   * @return
+   *         <code>true</code> if queued, <code>false</code> if the queue of
+   *         {@link CongestionController} is full and the frame is dropped.
+   */
+  @IBackend
+  public static boolean sendFrame(@Nonnull Channel channel, @Nonnull byte[] frame) {
+    final byte shiftNumber = nextShiftNumber();
+
+    final ByteBuffer bf = ByteBuffer.allocate(1 + frame.length);
+    bf.put(shiftNumber);
+    bf.put(dataShifting(frame, shiftNumber, false));
+
+    final byte[] packet = bf.array();
+    return CongestionController.send(() -> {
+      instance.sendPacket(channel.command, START_INDICATOR, packet);
+    });
+  }
+
+  @Override
+  public boolean lineReceived(String message) {
+    if (!message.contains(START_INDICATOR)) {
+      return false;
+    }
+
+    Channel channel = Channel.PARTY;
+    Matcher m = partyP.matcher(message);
+    if (!m.find()) {
+      channel = Channel.GUILD;
+      m = guildP.matcher(message);
+      if (!m.find()) {
+        return false;
+      }
+    }
+
+    // our own frames are echoed back by the server
+    final String sender = m.group(1);
+    if (sender.equalsIgnoreCase(ChatTransport.get().getCurrentUser())) {
+      return true;
+    }
+
+    try {
+      final ByteBuffer bf = ByteBuffer.wrap(stringToPacket(m.group(2)));
+      final byte shiftNumber = bf.get();
+      final byte[] shiftedFrame = new byte[bf.remaining()];
+      bf.get(shiftedFrame);
+
+      BroadcastGroup.frameReceived(channel, sender,
+          ByteBuffer.wrap(dataShifting(shiftedFrame, shiftNumber, true)));
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+
+    return true;
+  }
+
+  /**
+   * Send the packet to the chat channel.
+   *
+   * @param channelCommand
+   *          the command of the chat channel (e.g. "pc").
+   * @param startIndicator
+   *          the indicator of the packet. {@link #START_INDICATOR}.
+   * @param packet
+   *          the packet to send.
+   */
+  @Override
+  protected void sendPacket(String channelCommand, String startIndicator, byte[] packet) {
+    ChatTransport.get()
+        .sendLine("/" + channelCommand + " " + startIndicator + packetToString(packet));
+  }
+
+  /**
+   * Always <code>false</code>. This protocol can not be used for the
+   * connections between two players.
+   */
+  @Override
+  protected boolean isProtocolActive() {
+    return false;
+  }
+
+  /**
+   * Check whether the broadcasts can be sent at this moment.
+   *
+   * @return
+   *         <code>true</code> if the client is online hypixel network.
+   */
+  @IBackend
+  public static boolean canBroadcast() {
+    return ChatTransport.get().isOnHypixel();
+  }
+}
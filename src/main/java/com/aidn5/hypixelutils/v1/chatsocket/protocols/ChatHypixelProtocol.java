@@ -5,16 +5,11 @@ import java.nio.ByteBuffer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.aidn5.hypixelutils.v1.HypixelUtils;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
 
-import net.minecraft.client.Minecraft;
-import net.minecraftforge.client.event.ClientChatReceivedEvent;
-import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-
 /**
  * Protocol specialized in sending and receiving packets on the hypixel network.
  * 
@@ -33,19 +28,24 @@ public class ChatHypixelProtocol extends BaseProtocol {
   private static Pattern chatToP = Pattern
       .compile("^To (?:\\[.{2,30}\\] |)(.{3,99}): &HUCSv1(s|c):(.{1,9999})$");
 
+  // replies of the server when a private message could not be delivered
+  private static Pattern offlineP = Pattern
+      .compile("^That player is not online!$");
+  // group(1) = the user
+  private static Pattern notFoundP = Pattern
+      .compile("^Can't find a player by the name of '(.{1,99})'$");
+  private static Pattern cannotMessageP = Pattern
+      .compile("^(?:You cannot message this player\\.|That player has messages disabled\\.)$");
+  private static Pattern tooFastP = Pattern
+      .compile("^You are sending commands too fast! Please slow down\\.$");
+
   @SuppressWarnings("unused")
   private ChatHypixelProtocol() {
-    MinecraftForge.EVENT_BUS.register(this);
+    ChatTransport.get().addListener(this);
   }
 
-  @SubscribeEvent
-  public void onChat(ClientChatReceivedEvent event) {
-    if (event.type != 0) {
-      return;
-    }
-
-    final String message = event.message.getUnformattedText();
-
+  @Override
+  public boolean lineReceived(String message) {
     Matcher m = chatFromP.matcher(message);
     if (m.find()) {
       String user = m.group(1);
@@ -58,23 +58,41 @@ public class ChatHypixelProtocol extends BaseProtocol {
         e.printStackTrace();
       }
 
-      event.setCanceled(true);
-      return;
+      return true;
+    }
+
+    m = chatToP.matcher(message);
+    if (m.find()) {
+      lineDelivered(m.group(1));
+      return true;
     }
 
-    if (chatToP.matcher(message).find()) {
-      event.setCanceled(true);
+    m = notFoundP.matcher(message);
+    if (m.find()) {
+      deliveryFailed(DeliveryFailure.PLAYER_OFFLINE, m.group(1));
+    } else if (offlineP.matcher(message).find()) {
+      deliveryFailed(DeliveryFailure.PLAYER_OFFLINE);
+    } else if (cannotMessageP.matcher(message).find()) {
+      deliveryFailed(DeliveryFailure.CANNOT_MESSAGE);
+    } else if (tooFastP.matcher(message).find()) {
+      deliveryFailed(DeliveryFailure.TOO_FAST);
     }
+
+    return false;
   }
 
   @Override
   protected void sendPacket(String user, String startIndicator, byte[] packet) {
-    Minecraft.getMinecraft().thePlayer
-        .sendChatMessage("/msg " + user + " " + startIndicator + packetToString(packet));
+    ChatTransport.get().sendLine("/msg " + user + " " + startIndicator + packetToString(packet));
+  }
+
+  @Override
+  protected boolean confirmsDelivery() {
+    return true;
   }
 
   @Override
   protected boolean isProtocolActive() {
-    return HypixelUtils.defaultInstance().onHypixel();
+    return ChatTransport.get().isOnHypixel();
   }
 }
@@ -3,10 +3,16 @@ package com.aidn5.hypixelutils.v1.chatsocket.protocols;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.exceptions.HypixelUtilsInternalError;
@@ -16,12 +22,6 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
-import net.minecraft.client.Minecraft;
-import net.minecraftforge.client.event.ClientChatReceivedEvent;
-import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-import net.minecraftforge.fml.common.network.FMLNetworkEvent;
-
 /**
  * Chat protocol used as the last resort to send and receive packets. This
  * protocol is always active. It contains many famous chat patterns.
@@ -30,6 +30,12 @@ import net.minecraftforge.fml.common.network.FMLNetworkEvent;
  * It is also unstable and can produce unexpected results. {@link BaseProtocol}
  * will filter any non-valid packet.
  * 
+ * <p>
+ * The format of every server is learned while the protocol is used (see
+ * {@link #lineReceived(String)}). After that only one pattern is tried per
+ * chat line instead of the whole list. The whole list is tried again when the
+ * learned format stops matching.
+ * 
  * @author aidn5
  * 
  * @since 1.0
@@ -37,7 +43,6 @@ import net.minecraftforge.fml.common.network.FMLNetworkEvent;
 @IHypixelUtils
 @IBackend
 public class ChatUniversalProtocol extends BaseProtocol {
-  // TODO: create the universal patterns. Change it to list
   // Join some servers and start /msg'ing people to get more patterns samples
 
   private static final List<Pattern> fromList = new ArrayList<>();
@@ -67,61 +72,199 @@ public class ChatUniversalProtocol extends BaseProtocol {
     }
   }
 
+  /**
+   * every packet line contains this. Lines without it are skipped before
+   * trying any pattern.
+   */
+  private static final String PACKET_MARKER = "&HUCSv1";
+  /**
+   * how many servers keep their learned format.
+   */
+  private static final int MAX_CACHED_SERVERS = 32;
+  /**
+   * how many packets in a row a "from" pattern must match before only it is
+   * tried.
+   */
+  private static final int FROM_CONFIRMATIONS = 3;
+  /**
+   * the rank and the nickname marker, which may be before a name. e.g.
+   * "[Iron] ~".
+   */
+  private static final Pattern rankP = Pattern.compile("(?:\\[[^\\]]{1,30}\\] ?)?~?$");
+
+  /**
+   * server address (lowercase) -> the learned format of the server.
+   */
+  private static final Map<String, LearnedFormat> formats =
+      new LinkedHashMap<String, LearnedFormat>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LearnedFormat> eldest) {
+          return size() > MAX_CACHED_SERVERS;
+        }
+      };
+
   private boolean isActive = false;
 
+  /**
+   * the last sent line, whose echo has not been seen yet. Used to learn the
+   * "to" format of the server.
+   */
+  @Nullable
+  private volatile SentEcho pendingEcho = null;
+
   @SuppressWarnings("unused")
   private ChatUniversalProtocol() {
-    MinecraftForge.EVENT_BUS.register(this);
+    ChatTransport.get().addListener(this);
   }
 
-  // @SubscribeEvent
-  public void onChat(ClientChatReceivedEvent event) {
-    if (event.type != 0) {
-      return;
+  /**
+   * Search the line for a packet.
+   *
+   * <p>
+   * The patterns of {@code ChatUniversalPatterns.json} are only used till the
+   * format of the current server is known. The "from" format is the pattern,
+   * which has matched {@link #FROM_CONFIRMATIONS} received packets in a row. If
+   * a packet is only matched by another pattern of the list, the learned one is
+   * dropped and has to be confirmed again. The "to" format is compiled from the
+   * echo of the first line sent on the server. Both are kept per server
+   * address.
+   */
+  @Override
+  public boolean lineReceived(String message) {
+    if (!message.contains(PACKET_MARKER)) {
+      return false;
     }
 
-    final String message = event.message.getUnformattedText();
+    final LearnedFormat format = getFormat();
 
-    for (Pattern pattern : fromList) {
+    // our own line echoed back. checked first,
+    // so it never gets mistaken as a received packet
+    final SentEcho echo = pendingEcho;
+    if (echo != null && message.endsWith(echo.payload)) {
+      pendingEcho = null;
+
+      if (format.to == null || !format.to.matcher(message).find()) {
+        format.to = learnToFormat(message, echo);
+      }
+
+      lineDelivered(echo.user);
+      return true;
+    }
 
-      Matcher m = pattern.matcher(message);
+    final Pattern from = format.getFrom();
+    if (from != null && receive(from.matcher(message))) {
+      return true;
+    }
+
+    // remove all outgoing packet messages from the chat.
+    // checked before trying the whole "from" list again
+    if (format.to != null) {
+      Matcher m = format.to.matcher(message);
       if (m.find()) {
-        String user = m.group(1);
-        String isServer = m.group(2); // one letter: "c" or "s"
-        String packet = m.group(3);
-
-        try {
-          receivePacket(user, isServer.contains("s"), ByteBuffer.wrap(stringToPacket(packet)));
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
+        lineDelivered(m.group(1));
+        return true;
+      }
+    }
 
-        event.setCanceled(true);
+    // the "from" format is not confirmed yet or has stopped matching
+    for (Pattern pattern : fromList) {
+      if (pattern != from && receive(pattern.matcher(message))) {
+        format.fromMatched(pattern);
+        return true;
       }
     }
 
-    // remove all outgoing packet messages from the chat
-    for (Pattern pattern : toList) {
-      Matcher m = pattern.matcher(message);
-      if (m.find()) {
-        event.setCanceled(true);
+    if (format.to == null) {
+      for (Pattern pattern : toList) {
+        if (pattern.matcher(message).find()) {
+          return true;
+        }
       }
     }
+
+    return false;
+  }
+
+  private boolean receive(Matcher m) {
+    if (!m.find()) {
+      return false;
+    }
+
+    String user = m.group(1);
+    String isServer = m.group(2); // one letter: "c" or "s"
+    String packet = m.group(3);
+
+    try {
+      receivePacket(user, isServer.contains("s"), ByteBuffer.wrap(stringToPacket(packet)));
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+
+    return true;
+  }
+
+  /**
+   * Compile a pattern matching the echo of the sent lines on this server.
+   *
+   * @param message
+   *          the echo of the sent line.
+   * @param echo
+   *          the sent line.
+   *
+   * @return
+   *         the compiled pattern or <code>null</code> if the format could not
+   *         be detected.
+   */
+  @Nullable
+  private static Pattern learnToFormat(String message, SentEcho echo) {
+    // e.g. "[me -> [Iron] ~aidn5] " or "To [MVP+] aidn5: "
+    final String prefix = message.substring(0, message.length() - echo.payload.length());
+    final int userIndex = prefix.toLowerCase().lastIndexOf(echo.user.toLowerCase());
+    if (userIndex == -1) {
+      return null;
+    }
+
+    // the rank of the user changes from one user to another
+    final String beforeUser = rankP.matcher(prefix.substring(0, userIndex)).replaceFirst("");
+    final String afterUser = prefix.substring(userIndex + echo.user.length());
+
+    try {
+      return Pattern.compile("^" + Pattern.quote(beforeUser)
+          + "(?:\\[[^\\]]{1,30}\\] ?|)~?([a-zA-Z_][a-zA-Z0-9_]{2,15})"
+          + Pattern.quote(afterUser) + "&HUCSv1(s|c):(.{1,9999})$");
+
+    } catch (PatternSyntaxException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private static LearnedFormat getFormat() {
+    String address = ChatTransport.get().getServerAddress();
+    address = address == null ? "" : address.toLowerCase();
+
+    synchronized (formats) {
+      return formats.computeIfAbsent(address, k -> new LearnedFormat());
+    }
   }
 
   @Override
   protected void sendPacket(String user, String startIndicator, byte[] packet) {
-    Minecraft.getMinecraft().thePlayer
-        .sendChatMessage("/msg " + user + " " + startIndicator + packetToString(packet));
+    final String payload = startIndicator + packetToString(packet);
+    pendingEcho = new SentEcho(user, payload);
+
+    ChatTransport.get().sendLine("/msg " + user + " " + payload);
   }
 
-  @SubscribeEvent
-  public void onLoggedOut(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
+  @Override
+  public void disconnected() {
     isActive = false;
   }
 
-  @SubscribeEvent
-  public void onLoggedIn(FMLNetworkEvent.ClientConnectedToServerEvent event) {
+  @Override
+  public void connected() {
     isActive = true;
   }
 
@@ -130,4 +273,46 @@ public class ChatUniversalProtocol extends BaseProtocol {
     return isActive;
   }
 
+  private static class LearnedFormat {
+    @Nullable
+    private Pattern fromCandidate;
+    private int fromMatches;
+    @Nullable
+    volatile Pattern to;
+
+    /**
+     * Get the confirmed "from" format.
+     *
+     * @return
+     *         the "from" format or <code>null</code> if it is not confirmed
+     *         yet.
+     */
+    @Nullable
+    synchronized Pattern getFrom() {
+      return fromMatches >= FROM_CONFIRMATIONS ? fromCandidate : null;
+    }
+
+    /**
+     * Count a received packet matched by the pattern of the list. Another
+     * pattern than the last one starts the confirmation again.
+     */
+    synchronized void fromMatched(Pattern pattern) {
+      if (pattern == fromCandidate) {
+        fromMatches++;
+      } else {
+        fromCandidate = pattern;
+        fromMatches = 1;
+      }
+    }
+  }
+
+  private static class SentEcho {
+    final String user;
+    final String payload;
+
+    SentEcho(String user, String payload) {
+      this.user = user;
+      this.payload = payload;
+    }
+  }
 }
@@ -5,16 +5,10 @@ import java.nio.ByteBuffer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
-import net.minecraft.client.Minecraft;
-import net.minecraftforge.client.event.ClientChatReceivedEvent;
-import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-import net.minecraftforge.fml.common.network.FMLNetworkEvent;
-
-
 /**
  * Protocols works on the minecraft vanilla chat private chat style and system.
  * 
@@ -40,21 +34,19 @@ public class ChatVanillaProtocol extends BaseProtocol {
   private static Pattern messageToP = Pattern
       .compile("^You whisper to ([a-zA-Z_][a-zA-Z0-9_]{2,15}): &HUCSv1(s|c)(.{1,9999})$");
 
+  // reply of the server when the player of a private message could not be found
+  private static Pattern notFoundP = Pattern
+      .compile("^(?:That player cannot be found|Player not found\\.?)$");
+
   private boolean isActive = false;
 
   @SuppressWarnings("unused")
   private ChatVanillaProtocol() {
-    MinecraftForge.EVENT_BUS.register(this);
+    ChatTransport.get().addListener(this);
   }
 
-  @SubscribeEvent
-  public void onChat(ClientChatReceivedEvent event) {
-    if (event.type != 0) {
-      return;
-    }
-
-    final String message = event.message.getUnformattedText();
-
+  @Override
+  public boolean lineReceived(String message) {
     Matcher m = messageFromP.matcher(message);
     if (m.find()) {
       isActive = true;
@@ -69,25 +61,36 @@ public class ChatVanillaProtocol extends BaseProtocol {
         e.printStackTrace();
       }
 
-      event.setCanceled(true);
-      return;
+      return true;
     }
 
-    if (messageToP.matcher(message).find()) {
-      event.setCanceled(true);
+    m = messageToP.matcher(message);
+    if (m.find()) {
+      lineDelivered(m.group(1));
       isActive = true;
+      return true;
     }
+
+    if (isActive && notFoundP.matcher(message).find()) {
+      deliveryFailed(DeliveryFailure.PLAYER_OFFLINE);
+    }
+
+    return false;
   }
 
-  @SubscribeEvent
-  public void onLoggedOut(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
+  @Override
+  public void disconnected() {
     isActive = false;
   }
 
   @Override
   protected void sendPacket(String user, String startIndicator, byte[] packet) {
-    Minecraft.getMinecraft().thePlayer
-        .sendChatMessage("/msg " + user + " " + startIndicator + packetToString(packet));
+    ChatTransport.get().sendLine("/msg " + user + " " + startIndicator + packetToString(packet));
+  }
+
+  @Override
+  protected boolean confirmsDelivery() {
+    return true;
   }
 
   @Override
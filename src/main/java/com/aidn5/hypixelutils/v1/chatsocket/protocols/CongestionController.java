@@ -0,0 +1,267 @@
+package com.aidn5.hypixelutils.v1.chatsocket.protocols;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+
+/**
+ * Pace the chat lines sent by the protocols with an AIMD (additive increase,
+ * multiplicative decrease) rate in lines per second.
+ *
+ * <p>
+ * The server limits how many lines a player can send and the limit changes
+ * with the load. So, the rate is shared by all the connections and it is
+ * learned from the replies of the server:
+ * <ul>
+ * <li>every line confirmed in time increases the rate slightly.</li>
+ * <li>spam warnings ({@link DeliveryFailure#TOO_FAST}), lines the server never
+ * confirmed and sudden increases of the round trip time halve the rate (at
+ * most once per round trip).</li>
+ * </ul>
+ * The lines are sent in the same order they are queued. The pacer is a task
+ * on {@link Scheduler}, which reschedules itself for the time of the next line
+ * (read from {@link Clock}). So, no thread is used and it follows a
+ * {@link com.aidn5.hypixelutils.v1.tools.VirtualClock}. At most
+ * {@link #MAX_QUEUED_LINES} lines wait. More lines are rejected by
+ * {@link #send(Runnable)}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see com.aidn5.hypixelutils.v1.chatsocket.ChatSocketMetrics
+ */
+@IHypixelUtils
+@IBackend
+@IHelpTools(onlyStatic = true)
+public class CongestionController {
+  /**
+   * the lowest rate in lines per second.
+   */
+  public static final double MIN_RATE = 0.5;
+  /**
+   * the highest rate in lines per second.
+   */
+  public static final double MAX_RATE = 5;
+  /**
+   * the rate to start with in lines per second.
+   */
+  public static final double INITIAL_RATE = 1.5;
+  /**
+   * how much the rate increases per second while every line is confirmed.
+   */
+  public static final double INCREASE = 0.25;
+  /**
+   * the rate is multiplied with it on loss.
+   */
+  public static final double DECREASE_FACTOR = 0.5;
+  /**
+   * a round trip time bigger than the smoothed one times this factor is
+   * considered as a spike.
+   */
+  private static final double RTT_SPIKE_FACTOR = 3;
+  private static final long MIN_RTT_SPIKE = 500;
+  /**
+   * how many lines can wait to be sent.
+   */
+  public static final int MAX_QUEUED_LINES = 64;
+
+  // guarded by the class lock
+  @Nonnull
+  private static final Deque<Runnable> lines = new ArrayDeque<>();
+  private static boolean pacerScheduled = false;
+
+  private static double rate = INITIAL_RATE;
+  /**
+   * smoothed round trip time in milliseconds. {@code -1} if not measured yet.
+   */
+  private static double smoothedRtt = -1;
+  private static long lastDecrease = 0;
+  private static long nextSendTime = 0;
+
+  private static long linesSent = 0;
+  private static long lossEvents = 0;
+  private static long rejectedLines = 0;
+
+  private CongestionController() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Queue the line to be sent when the rate allows it.
+   *
+   * @param line
+   *          the task, which sends the line.
+   *
+   * @return
+   *         <code>true</code> if queued, <code>false</code> if
+   *         {@link #MAX_QUEUED_LINES} lines are already waiting.
+   */
+  public static synchronized boolean send(@Nonnull Runnable line) {
+    if (lines.size() >= MAX_QUEUED_LINES) {
+      rejectedLines++;
+      return false;
+    }
+
+    lines.addLast(line);
+    if (!pacerScheduled) {
+      pacerScheduled = true;
+      Scheduler.schedule(CongestionController::pace,
+          Math.max(0, nextSendTime - Clock.get().currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+    return true;
+  }
+
+  /**
+   * Inform that the server has confirmed a line.
+   *
+   * @param rttMillis
+   *          how long the server took to confirm the line.
+   */
+  public static synchronized void lineConfirmed(long rttMillis) {
+    if (smoothedRtt < 0) {
+      smoothedRtt = rttMillis;
+
+    } else if (rttMillis > Math.max(MIN_RTT_SPIKE, smoothedRtt * RTT_SPIKE_FACTOR)) {
+      // not counted in the average to not hide the next spike
+      decrease();
+      return;
+
+    } else {
+      smoothedRtt = smoothedRtt * 0.875 + rttMillis * 0.125;
+    }
+
+    // divided by the rate to increase by INCREASE per second
+    rate = Math.min(MAX_RATE, rate + INCREASE / rate);
+  }
+
+  /**
+   * Inform that a line has been lost or the server warned about spamming.
+   */
+  public static synchronized void lineLost() {
+    decrease();
+  }
+
+  /**
+   * Get the current rate.
+   *
+   * @return
+   *         the current rate in lines per second.
+   */
+  public static synchronized double getRate() {
+    return rate;
+  }
+
+  /**
+   * Get the smoothed round trip time of the lines.
+   *
+   * @return
+   *         the smoothed round trip time in milliseconds or {@code -1} if not
+   *         measured yet.
+   */
+  public static synchronized long getSmoothedRtt() {
+    return (long) smoothedRtt;
+  }
+
+  /**
+   * Get how many lines are waiting to be sent.
+   *
+   * @return
+   *         how many lines are waiting to be sent.
+   */
+  public static synchronized int getQueuedLines() {
+    return lines.size();
+  }
+
+  /**
+   * Get how many lines have been rejected, because the queue was full.
+   *
+   * @return
+   *         how many lines have been rejected.
+   */
+  public static synchronized long getRejectedLines() {
+    return rejectedLines;
+  }
+
+  /**
+   * Get how many lines have been sent since the start.
+   *
+   * @return
+   *         how many lines have been sent.
+   */
+  public static synchronized long getLinesSent() {
+    return linesSent;
+  }
+
+  /**
+   * Get how many times the rate has been decreased since the start.
+   *
+   * @return
+   *         how many times the rate has been decreased.
+   */
+  public static synchronized long getLossEvents() {
+    return lossEvents;
+  }
+
+  private static void decrease() {
+    final long now = Clock.get().currentTimeMillis();
+
+    // one burst of losses is one event
+    final long window = smoothedRtt < 0 ? 1000 : Math.max(1000, (long) smoothedRtt);
+    if (lastDecrease + window > now) {
+      return;
+    }
+
+    lastDecrease = now;
+    lossEvents++;
+    rate = Math.max(MIN_RATE, rate * DECREASE_FACTOR);
+  }
+
+  /**
+   * Send the next line if the rate allows it and reschedule for the line after
+   * it. Runs on {@link Scheduler}.
+   */
+  private static void pace() {
+    final Runnable line;
+    synchronized (CongestionController.class) {
+      final long now = Clock.get().currentTimeMillis();
+      if (nextSendTime > now) {
+        Scheduler.schedule(CongestionController::pace, nextSendTime - now,
+            TimeUnit.MILLISECONDS);
+        return;
+      }
+
+      line = lines.pollFirst();
+      if (line == null) {
+        pacerScheduled = false;
+        return;
+      }
+
+      nextSendTime = now + (long) (1000 / rate);
+      linesSent++;
+    }
+
+    try {
+      line.run();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+
+    synchronized (CongestionController.class) {
+      if (lines.isEmpty()) {
+        pacerScheduled = false;
+      } else {
+        Scheduler.schedule(CongestionController::pace,
+            Math.max(0, nextSendTime - Clock.get().currentTimeMillis()), TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+}
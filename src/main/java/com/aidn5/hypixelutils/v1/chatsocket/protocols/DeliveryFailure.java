@@ -0,0 +1,40 @@
+package com.aidn5.hypixelutils.v1.chatsocket.protocols;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Reasons the server gives when it could not deliver a private message.
+ * Protocols detect these replies from the chat and pass them to
+ * {@link BaseProtocol#deliveryFailed(DeliveryFailure)}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+public enum DeliveryFailure {
+  /**
+   * The other user is offline or does not exist.
+   */
+  PLAYER_OFFLINE(false),
+  /**
+   * The other user does not accept private messages from this client.
+   */
+  CANNOT_MESSAGE(false),
+  /**
+   * The server has dropped the message, because too many commands were sent in
+   * a short time. The message can be sent again after a while.
+   */
+  TOO_FAST(true);
+
+  /**
+   * whether the message can be sent again after a while.
+   */
+  public final boolean canRetry;
+
+  private DeliveryFailure(boolean canRetry) {
+    this.canRetry = canRetry;
+  }
+}
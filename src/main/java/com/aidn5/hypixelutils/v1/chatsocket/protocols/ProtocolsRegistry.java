@@ -1,6 +1,7 @@
 
 package com.aidn5.hypixelutils.v1.chatsocket.protocols;
 
+import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map.Entry;
@@ -11,7 +12,6 @@ import javax.annotation.Nonnull;
 
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
-import com.aidn5.hypixelutils.v1.tools.ReflectionUtil;
 
 /**
  * Registry holds all the protocols, which are responsible for sending and
@@ -41,7 +41,11 @@ public class ProtocolsRegistry {
   public static void registerNewProtocol(@Nonnull Class<? extends BaseProtocol> protocolClass)
       throws ReflectiveOperationException {
     try {
-      BaseProtocol newProtocol = ReflectionUtil.newInstance(Objects.requireNonNull(protocolClass));
+      // not ReflectionUtil, which needs forge
+      Constructor<? extends BaseProtocol> constructor =
+          Objects.requireNonNull(protocolClass).getDeclaredConstructor();
+      constructor.setAccessible(true);
+      BaseProtocol newProtocol = constructor.newInstance();
       protocols.put(protocolClass, newProtocol);
 
     } catch (ReflectiveOperationException e) {
@@ -0,0 +1,450 @@
+package com.aidn5.hypixelutils.v1.chatsocket.rpc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.chatsocket.ChatSocketFactory;
+import com.aidn5.hypixelutils.v1.chatsocket.client.Connection;
+import com.aidn5.hypixelutils.v1.chatsocket.client.RequestSendEvent.RequestResponse;
+import com.aidn5.hypixelutils.v1.chatsocket.wrapper.RequestWrapper;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.players.Player;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+
+/**
+ * Request/response layer on top of a {@link Connection}. Named methods are
+ * called on the other end and their results are returned as futures.
+ *
+ * <p>
+ * Every call has its own correlation id. So, many calls can be in flight at
+ * the same time over the same connection and their replies can arrive in any
+ * order. The calls are received as whole messages (see
+ * {@link Connection#sendMessage(byte[])}) and every call is processed on a
+ * separate thread.
+ *
+ * <p>
+ * The methods are registered per modid with
+ * {@link RequestWrapper#registerRpcMethod(String, IRpcMethod)}. The other end
+ * opens a session with {@link #open(String, String)} once and reuses it for
+ * all the following calls to the same user.
+ *
+ * <p>
+ * <b>Usage example:</b>
+ *
+ * <pre>
+ * <code>
+ * // the end, which answers
+ * RequestWrapper wrapper = ChatSocketFactory.createWrapper("mymod", "MyMod");
+ * wrapper.registerRpcMethod("getLevel", (connection, args) -&gt; levelAsBytes());
+ *
+ * // the end, which asks
+ * RpcChannel.open("mymod", "aidn5").thenCompose(channel -&gt; {
+ *   return channel.call("getLevel", new byte[0]);
+ * }).thenAccept(level -&gt; {
+ *   // ...
+ * });
+ * </code>
+ * </pre>
+ *
+ * <p>
+ * <i>The message mode of the connection is used by this channel. The
+ * connection should not be used to send or receive any other messages.</i>
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see RequestWrapper#registerRpcMethod(String, IRpcMethod)
+ */
+@IHypixelUtils
+public class RpcChannel {
+  /**
+   * The actionId used by the connections of the rpc sessions.
+   */
+  @Nonnull
+  public static final String RPC_ACTION_ID = "rpc";
+
+  private static final byte TYPE_CALL = 1;
+  private static final byte TYPE_REPLY = 2;
+  private static final byte TYPE_ERROR = 3;
+
+  @Nonnull
+  private static final Map<String, CompletableFuture<RpcChannel>> sessions =
+      new ConcurrentHashMap<>();
+
+  @Nonnull
+  private final Connection connection;
+  @Nonnull
+  private final Map<String, IRpcMethod> methods;
+
+  @Nonnull
+  private final Map<Integer, CompletableFuture<byte[]>> pendingCalls = new ConcurrentHashMap<>();
+  @Nonnull
+  private final AtomicInteger nextCallId = new AtomicInteger();
+
+  private long defaultTimeout = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * Constructor. Used to wrap an already opened connection.
+   *
+   * @param connection
+   *          the connection to use for the calls.
+   * @param methods
+   *          the methods, which the other end can call. The map is used
+   *          directly and can be changed later.
+   */
+  public RpcChannel(@Nonnull Connection connection, @Nonnull Map<String, IRpcMethod> methods) {
+    this.connection = Objects.requireNonNull(connection);
+    this.methods = Objects.requireNonNull(methods);
+
+    connection.setMessageReceiver((c, message) -> {
+      messageReceived(message);
+    });
+
+    // the replies will never come. Fail the calls without waiting for their timeouts
+    connection.setOnCloseListener(() -> {
+      failPendingCalls(connection.connectionTimedOut()
+          ? "The connection has timed out." : "The connection has been closed.");
+    });
+  }
+
+  /**
+   * Open a session with the user or reuse the already opened one.
+   *
+   * <p>
+   * The session is shared between all the callers of the same {@code modid}
+   * and {@code user}. So, multiple questions to the same user are sent over
+   * one connection instead of requesting a new connection for every question.
+   *
+   * @param modid
+   *          the id of the listener to request when connecting.
+   * @param user
+   *          the user, who is at the other end of the connection.
+   *
+   * @return
+   *         a future, which completes with the channel once the other end has
+   *         accepted the connection, or completes exceptionally with
+   *         {@link RpcException} if the request is rejected or timed out.
+   */
+  @Nonnull
+  public static CompletableFuture<RpcChannel> open(@Nonnull String modid, @Nonnull String user) {
+    Player.validateUsername(user);
+    final String key = modid + ":" + user.toLowerCase();
+
+    // only the future is created inside compute(). The request is sent after
+    // it returns, since its callback changes the map too
+    final CompletableFuture<RpcChannel> newSession = new CompletableFuture<>();
+    final CompletableFuture<RpcChannel> session = sessions.compute(key, (k, old) -> {
+      if (old != null && !old.isCompletedExceptionally()
+          && !(old.isDone() && old.join().isClosed())) {
+        return old;
+      }
+      return newSession;
+    });
+
+    if (session != newSession) {
+      return session;
+    }
+
+    try {
+      ChatSocketFactory.createRequest(modid, RPC_ACTION_ID).sendNewRequest(user, (rr, cp) -> {
+        if (rr == RequestResponse.ACCEPTED && cp != null) {
+          newSession.complete(new RpcChannel(cp, new ConcurrentHashMap<>()));
+
+        } else {
+          sessions.remove(key, newSession);
+          newSession.completeExceptionally(
+              new RpcException("Could not open the session. The request " + rr.name()));
+        }
+      });
+
+    } catch (RuntimeException e) {
+      sessions.remove(key, newSession);
+      newSession.completeExceptionally(new RpcException("Could not open the session.", e));
+    }
+
+    return newSession;
+  }
+
+  /**
+   * Get the connection, which is used for the calls.
+   *
+   * @return
+   *         the connection of this channel.
+   */
+  @Nonnull
+  public Connection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Check whether the connection of this channel is closed.
+   *
+   * @return
+   *         <code>true</code> if no calls can be made anymore.
+   */
+  public boolean isClosed() {
+    return connection.connectionClosed();
+  }
+
+  /**
+   * Register a method, which the other end can call over this channel.
+   *
+   * @param name
+   *          the name of the method.
+   * @param method
+   *          the method to invoke.
+   */
+  public void registerMethod(@Nonnull String name, @Nonnull IRpcMethod method) {
+    methods.put(Objects.requireNonNull(name), Objects.requireNonNull(method));
+  }
+
+  /**
+   * Set the timeout used by {@link #call(String, byte[])}. Default is 30
+   * seconds.
+   *
+   * @param duration
+   *          the duration to wait for a reply.
+   * @param unit
+   *          the unit of {@code duration}.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public RpcChannel setDefaultTimeout(long duration, @Nonnull TimeUnit unit) {
+    this.defaultTimeout = unit.toMillis(duration);
+    return this;
+  }
+
+  /**
+   * Call the method on the other end with the default timeout.
+   *
+   * @param method
+   *          the name of the method to call.
+   * @param args
+   *          the arguments to send to the method.
+   *
+   * @return
+   *         a future of the result.
+   *
+   * @see #call(String, byte[], long, TimeUnit)
+   */
+  @Nonnull
+  public CompletableFuture<byte[]> call(@Nonnull String method, @Nonnull byte[] args) {
+    return call(method, args, defaultTimeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Call the method on the other end. The call is sent at once without waiting
+   * for the replies of the calls before it.
+   *
+   * @param method
+   *          the name of the method to call.
+   * @param args
+   *          the arguments to send to the method.
+   * @param timeout
+   *          how long to wait for the reply.
+   * @param unit
+   *          the unit of {@code timeout}.
+   *
+   * @return
+   *         a future of the result. It completes exceptionally with
+   *         {@link RpcException} if the other end could not process the call,
+   *         the reply is not received in time or the connection is closed
+   *         before it.
+   */
+  @Nonnull
+  public CompletableFuture<byte[]> call(@Nonnull String method, @Nonnull byte[] args,
+      long timeout, @Nonnull TimeUnit unit) {
+
+    final byte[] methodBytes = method.getBytes(StandardCharsets.UTF_8);
+    final int callId = nextCallId.incrementAndGet();
+    final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+    pendingCalls.put(callId, future);
+
+    final ScheduledFuture<?> timeoutTask = Scheduler.schedule(() -> {
+      CompletableFuture<byte[]> f = pendingCalls.remove(callId);
+      if (f != null) {
+        f.completeExceptionally(new RpcException("The call " + method + " timed out."));
+      }
+    }, timeout, unit);
+    future.whenComplete((result, e) -> timeoutTask.cancel(false));
+
+    ByteBuffer bf = ByteBuffer.allocate(
+        1 // type
+            + 4 // callId
+            + 2 + methodBytes.length // method
+            + args.length); // args
+
+    bf.put(TYPE_CALL);
+    bf.putInt(callId);
+    bf.putShort((short) methodBytes.length);
+    bf.put(methodBytes);
+    bf.put(args);
+
+    try {
+      connection.sendMessage(bf.array());
+
+    } catch (IOException e) {
+      pendingCalls.remove(callId);
+      future.completeExceptionally(new RpcException("Could not send the call " + method, e));
+    }
+
+    return future;
+  }
+
+  /**
+   * Close the connection of this channel. All the calls, which are still
+   * waiting for their replies, fail.
+   *
+   * @throws IOException
+   *           if an error occurs while closing the connection.
+   */
+  public void close() throws IOException {
+    failPendingCalls("The channel has been closed.");
+    connection.closeConnection();
+  }
+
+  private void failPendingCalls(@Nonnull String reason) {
+    for (Integer callId : pendingCalls.keySet()) {
+      CompletableFuture<byte[]> f = pendingCalls.remove(callId);
+      if (f != null) {
+        f.completeExceptionally(new RpcException(reason));
+      }
+    }
+  }
+
+  @IBackend
+  private void messageReceived(@Nonnull byte[] message) {
+    // the frame comes from the other end. Check it before decoding it
+    if (message.length < 5) {
+      return;
+    }
+
+    ByteBuffer bf = ByteBuffer.wrap(message);
+    final byte type = bf.get();
+    final int callId = bf.getInt();
+
+    if (type != TYPE_CALL && type != TYPE_REPLY && type != TYPE_ERROR) {
+      return;
+    }
+
+    if (type == TYPE_CALL) {
+      if (bf.remaining() < 2) {
+        return;
+      }
+
+      final int methodLength = bf.getShort() & 0xFFFF;
+      if (methodLength > bf.remaining()) {
+        return;
+      }
+
+      final byte[] methodBytes = new byte[methodLength];
+      bf.get(methodBytes);
+      final byte[] args = new byte[bf.remaining()];
+      bf.get(args);
+
+      callReceived(callId, new String(methodBytes, StandardCharsets.UTF_8), args);
+      return;
+    }
+
+    final CompletableFuture<byte[]> future = pendingCalls.remove(callId);
+    if (future == null) {
+      // timed out already
+      return;
+    }
+
+    final byte[] data = new byte[bf.remaining()];
+    bf.get(data);
+
+    if (type == TYPE_REPLY) {
+      future.complete(data);
+    } else {
+      future.completeExceptionally(new RpcException(new String(data, StandardCharsets.UTF_8)));
+    }
+  }
+
+  private void callReceived(int callId, @Nonnull String methodName, @Nonnull byte[] args) {
+    byte type;
+    byte[] result;
+
+    final IRpcMethod method = methods.get(methodName);
+    if (method == null) {
+      type = TYPE_ERROR;
+      result = ("Unknown method " + methodName).getBytes(StandardCharsets.UTF_8);
+
+    } else {
+      try {
+        type = TYPE_REPLY;
+        result = method.invoke(connection, args);
+        if (result == null) {
+          result = new byte[0];
+        }
+
+      } catch (Exception e) {
+        type = TYPE_ERROR;
+        result = ("The method " + methodName + " has failed: " + e.getMessage())
+            .getBytes(StandardCharsets.UTF_8);
+      }
+    }
+
+    ByteBuffer bf = ByteBuffer.allocate(
+        1 // type
+            + 4 // callId
+            + result.length); // result
+
+    bf.put(type);
+    bf.putInt(callId);
+    bf.put(result);
+
+    try {
+      connection.sendMessage(bf.array());
+
+    } catch (IOException e) {
+      // the other end will time out
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Interface of a method, which can be called from the other end.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IRpcMethod {
+    /**
+     * called on a separate thread when the other end calls this method.
+     *
+     * @param connection
+     *          the connection, which has received the call.
+     * @param args
+     *          the arguments sent with the call.
+     *
+     * @return
+     *         the result to send back. <code>null</code> is sent as an empty
+     *         result.
+     *
+     * @throws Exception
+     *           if the call can not be processed. The message of the exception
+     *           is sent to the other end.
+     */
+    byte[] invoke(@Nonnull Connection connection, @Nonnull byte[] args) throws Exception;
+  }
+}
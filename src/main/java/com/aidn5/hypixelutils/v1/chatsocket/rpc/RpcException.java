@@ -0,0 +1,27 @@
+package com.aidn5.hypixelutils.v1.chatsocket.rpc;
+
+import java.io.IOException;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Indicates that a remote call has failed. Either the other end does not know
+ * the method, the method has thrown an exception, or no reply has been
+ * received in time.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @category Exception
+ */
+@IHypixelUtils
+public class RpcException extends IOException {
+  public RpcException(String message) {
+    super(message);
+  }
+
+  public RpcException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,15 @@
+/**
+ * Package contains a request/response layer on top of
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.client.Connection}. Named
+ * methods are registered per modid and called from the other end. Many calls
+ * can be in flight at the same time over one session and their replies can
+ * arrive in any order.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see com.aidn5.hypixelutils.v1.chatsocket.rpc.RpcChannel
+ */
+
+package com.aidn5.hypixelutils.v1.chatsocket.rpc;
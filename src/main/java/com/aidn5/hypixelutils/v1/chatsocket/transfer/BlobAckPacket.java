@@ -0,0 +1,136 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transfer;
+
+import java.nio.ByteBuffer;
+
+import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Packet sent by the receiver of a blob to drive the transfer. It tells the
+ * sender from which chunk to (re)start or whether the blob has been received
+ * and verified.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see BlobTransfer
+ */
+@IHypixelUtils
+@IBackend
+public class BlobAckPacket extends BasePacket {
+  /**
+   * the receiver needs the chunks starting from {@link #getNextChunk()}.
+   */
+  public static final byte STATUS_RESUME = 1;
+  /**
+   * the receiver has received the whole blob and verified its hash.
+   */
+  public static final byte STATUS_COMPLETED = 2;
+  /**
+   * the hash of the received blob does not match. The receiver dropped the
+   * received chunks.
+   */
+  public static final byte STATUS_CORRUPTED = 3;
+  /**
+   * the receiver does not want to receive this blob.
+   */
+  public static final byte STATUS_REJECTED = 4;
+  /**
+   * the chunk {@link #getNextChunk()} is lost or does not match its checksum.
+   * The receiver needs only this chunk again.
+   */
+  public static final byte STATUS_RESEND = 5;
+
+  private int transferId;
+  private int nextChunk;
+  private byte status;
+
+  @SuppressWarnings("unused")
+  private BlobAckPacket() {}
+
+  /**
+   * Constructor to create the packet.
+   *
+   * @param transferId
+   *          the id of the transfer.
+   * @param nextChunk
+   *          the next chunk the receiver is waiting for.
+   * @param status
+   *          the status of the transfer. actions are defined above as variables
+   *          "STATUS_**"
+   */
+  public BlobAckPacket(int transferId, int nextChunk, byte status) {
+    this.transferId = transferId;
+    this.nextChunk = nextChunk;
+    this.status = status;
+  }
+
+  /**
+   * Get the id of the transfer.
+   *
+   * @return
+   *         the id of the transfer.
+   */
+  public int getTransferId() {
+    return transferId;
+  }
+
+  /**
+   * Get the next chunk the receiver is waiting for.
+   *
+   * @return
+   *         the next chunk the receiver is waiting for.
+   */
+  public int getNextChunk() {
+    return nextChunk;
+  }
+
+  /**
+   * Get the status of the transfer.
+   *
+   * @return
+   *         the status of the transfer.
+   *
+   * @see #STATUS_RESUME
+   * @see #STATUS_COMPLETED
+   * @see #STATUS_CORRUPTED
+   * @see #STATUS_REJECTED
+   * @see #STATUS_RESEND
+   */
+  public byte getStatus() {
+    return status;
+  }
+
+  @Override
+  public void readData(byte[] data) {
+    ByteBuffer bf = ByteBuffer.wrap(data);
+
+    if (bf.remaining() < 9) {
+      // too short to be an ack. the unknown status is ignored by the sender
+      transferId = 0;
+      nextChunk = -1;
+      status = 0;
+      return;
+    }
+
+    transferId = bf.getInt();
+    nextChunk = bf.getInt();
+    status = bf.get();
+  }
+
+  @Override
+  public byte[] getBytes() {
+    ByteBuffer bf = ByteBuffer.allocate(
+        4 // transferId
+            + 4 // nextChunk
+            + 1); // status
+
+    bf.putInt(transferId);
+    bf.putInt(nextChunk);
+    bf.put(status);
+
+    return bf.array();
+  }
+}
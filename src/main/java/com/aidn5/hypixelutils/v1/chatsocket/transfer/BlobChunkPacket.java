@@ -0,0 +1,144 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transfer;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Packet holds one numbered chunk of a blob with the CRC-32 checksum of its
+ * data. So, a corrupted chunk is detected and requested again on its own
+ * instead of failing the whole blob.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see BlobTransfer
+ */
+@IHypixelUtils
+@IBackend
+public class BlobChunkPacket extends BasePacket {
+  /**
+   * the id of the transfer. It is the first 4 bytes of the blob's hash.
+   */
+  private int transferId;
+  /**
+   * the position of this chunk in the blob. starts from 0.
+   */
+  private int index;
+  /**
+   * the CRC-32 checksum of {@link #data}.
+   */
+  private int crc;
+  @Nonnull
+  private byte[] data;
+
+  @SuppressWarnings("unused")
+  private BlobChunkPacket() {}
+
+  /**
+   * Constructor to create the packet.
+   *
+   * @param transferId
+   *          the id of the transfer.
+   * @param index
+   *          the position of this chunk in the blob.
+   * @param data
+   *          the chunk's data.
+   */
+  public BlobChunkPacket(int transferId, int index, @Nonnull byte[] data) {
+    this.transferId = transferId;
+    this.index = index;
+    this.data = Objects.requireNonNull(data);
+    this.crc = crc(data);
+  }
+
+  /**
+   * Get the id of the transfer.
+   *
+   * @return
+   *         the id of the transfer.
+   */
+  public int getTransferId() {
+    return transferId;
+  }
+
+  /**
+   * Get the position of this chunk in the blob.
+   *
+   * @return
+   *         the position of this chunk in the blob. starts from 0.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Get the chunk's data.
+   *
+   * @return
+   *         the chunk's data.
+   */
+  @Nonnull
+  public byte[] getData() {
+    return data;
+  }
+
+  /**
+   * Check whether the data matches the checksum sent with it.
+   *
+   * @return
+   *         <code>true</code> if the data is received as it was sent.
+   */
+  public boolean isValid() {
+    return crc == crc(data);
+  }
+
+  @Override
+  public void readData(byte[] data) {
+    ByteBuffer bf = ByteBuffer.wrap(data);
+
+    if (bf.remaining() < 12) {
+      // too short to be a chunk. isValid() fails
+      index = -1;
+      crc = ~crc(new byte[0]);
+      this.data = new byte[0];
+      return;
+    }
+
+    transferId = bf.getInt();
+    index = bf.getInt();
+    crc = bf.getInt();
+
+    this.data = new byte[bf.remaining()];
+    bf.get(this.data);
+  }
+
+  private static int crc(@Nonnull byte[] data) {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    return (int) crc.getValue();
+  }
+
+  @Override
+  public byte[] getBytes() {
+    ByteBuffer bf = ByteBuffer.allocate(
+        4 // transferId
+            + 4 // index
+            + 4 // crc
+            + data.length); // data
+
+    bf.putInt(transferId);
+    bf.putInt(index);
+    bf.putInt(crc);
+    bf.put(data);
+
+    return bf.array();
+  }
+}
@@ -0,0 +1,120 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transfer;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Packet sent by the sender of a blob to announce it. The receiver answers
+ * with {@link BlobAckPacket} telling the sender from which chunk to start.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see BlobTransfer
+ */
+@IHypixelUtils
+@IBackend
+public class BlobOfferPacket extends BasePacket {
+  /**
+   * the SHA-256 hash of the whole blob.
+   */
+  private byte[] hash;
+  /**
+   * the size of the whole blob in bytes.
+   */
+  private int totalSize;
+  /**
+   * the size of every chunk (except the last one).
+   */
+  private short chunkSize;
+
+  @SuppressWarnings("unused")
+  private BlobOfferPacket() {}
+
+  /**
+   * Constructor to create the packet.
+   *
+   * @param hash
+   *          the SHA-256 hash of the whole blob.
+   * @param totalSize
+   *          the size of the whole blob in bytes.
+   * @param chunkSize
+   *          the size of every chunk (except the last one).
+   */
+  public BlobOfferPacket(@Nonnull byte[] hash, int totalSize, short chunkSize) {
+    this.hash = Objects.requireNonNull(hash);
+    this.totalSize = totalSize;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Get the SHA-256 hash of the whole blob.
+   *
+   * @return
+   *         the SHA-256 hash of the whole blob.
+   */
+  @Nonnull
+  public byte[] getHash() {
+    return hash;
+  }
+
+  /**
+   * Get the size of the whole blob in bytes.
+   *
+   * @return
+   *         the size of the whole blob in bytes.
+   */
+  public int getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * Get the size of every chunk (except the last one).
+   *
+   * @return
+   *         the size of every chunk.
+   */
+  public short getChunkSize() {
+    return chunkSize;
+  }
+
+  @Override
+  public void readData(byte[] data) {
+    ByteBuffer bf = ByteBuffer.wrap(data);
+
+    if (bf.remaining() < 6) {
+      // too short to be an offer. the receiver ignores the empty hash
+      totalSize = -1;
+      chunkSize = 0;
+      hash = new byte[0];
+      return;
+    }
+
+    totalSize = bf.getInt();
+    chunkSize = bf.getShort();
+
+    hash = new byte[bf.remaining()];
+    bf.get(hash);
+  }
+
+  @Override
+  public byte[] getBytes() {
+    ByteBuffer bf = ByteBuffer.allocate(
+        4 // totalSize
+            + 2 // chunkSize
+            + hash.length); // hash
+
+    bf.putInt(totalSize);
+    bf.putShort(chunkSize);
+    bf.put(hash);
+
+    return bf.array();
+  }
+}
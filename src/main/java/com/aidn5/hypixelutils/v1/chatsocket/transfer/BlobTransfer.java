@@ -0,0 +1,596 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transfer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.client.Connection;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.BasePacket;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.IPacketReceiver;
+import com.aidn5.hypixelutils.v1.chatsocket.packets.PacketsRegistry;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.exceptions.HypixelUtilsInternalError;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
+
+/**
+ * Transfer blobs (like schematics, configs, screenshots) over a
+ * {@link Connection} with integrity check and the ability to resume.
+ *
+ * <p>
+ * The blob is split into fixed-size numbered chunks. Every chunk carries its
+ * CRC-32 checksum. The sender announces the blob with its SHA-256 hash and
+ * size. The receiver answers with the chunk it needs next. A chunk, which does
+ * not match its checksum or got lost, is requested again on its own. If a part
+ * of the same blob (same user and same hash) has been received before, even
+ * over an older connection, the transfer resumes with the missing chunks.
+ * Chunks, which are already verified, are never sent again. After receiving
+ * the last chunk, the receiver verifies the hash of the whole blob and informs
+ * the sender about the result.
+ *
+ * <p>
+ * This class registers its own packets in {@link Connection#getPacketsRegistry()}
+ * and sets itself as {@link Connection#setCustomPacketReceiver(IPacketReceiver)}.
+ * Any custom packet receiver, which is set before creating this instance, will
+ * still receive all the other packets. Only <u>ONE</u> instance should be
+ * created for every connection on both ends.
+ *
+ * <p>
+ * <b>Usage example:</b>
+ *
+ * <pre>
+ * <code>
+ * // sender
+ * BlobTransfer bt = new BlobTransfer(connection);
+ * bt.sendBlob(data,
+ *     (done, total) -&gt; System.out.println(done + "/" + total),
+ *     (result) -&gt; System.out.println("transfer " + result));
+ *
+ * // receiver
+ * BlobTransfer bt = new BlobTransfer(connection);
+ * bt.setBlobReceiver((hash, data) -&gt; save(data), null);
+ * </code>
+ * </pre>
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see Connection
+ */
+@IHypixelUtils
+public class BlobTransfer implements IPacketReceiver {
+  /**
+   * the key of {@link BlobOfferPacket} in {@link PacketsRegistry}.
+   */
+  public static final short OFFER_PACKET_KEY = 10;
+  /**
+   * the key of {@link BlobChunkPacket} in {@link PacketsRegistry}.
+   */
+  public static final short CHUNK_PACKET_KEY = 11;
+  /**
+   * the key of {@link BlobAckPacket} in {@link PacketsRegistry}.
+   */
+  public static final short ACK_PACKET_KEY = 12;
+
+  /**
+   * The biggest chunk size, which still fits in one chat message.
+   */
+  public static final short MAX_CHUNK_SIZE = 32;
+
+  /**
+   * The most single chunks the receiver requests again (with
+   * {@link BlobAckPacket#STATUS_RESEND}) during one transfer of a small blob.
+   * Blobs with more chunks than this may request as many chunks again as they
+   * have. After that, the receiver requests nothing more: the sender times out
+   * and can resume the blob with a new offer, which resets the count.
+   */
+  private static final int MAX_RESEND_REQUESTS = 64;
+
+  @Nonnull
+  private final Connection connection;
+  @Nullable
+  private final IPacketReceiver nextReceiver;
+
+  @Nonnull
+  private final Map<Integer, BlockingQueue<BlobAckPacket>> outgoing = new ConcurrentHashMap<>();
+  @Nonnull
+  private final Map<Integer, PartialBlob> incoming = new ConcurrentHashMap<>();
+
+  @Nullable
+  private IBlobReceived blobReceiver;
+  @Nullable
+  private IBlobProgress receiveProgress;
+
+  private short chunkSize = MAX_CHUNK_SIZE;
+  private int maxBlobSize = 256 * 1024;
+  private long ackTimeout = TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * Constructor.
+   *
+   * @param connection
+   *          the connection to use to send and receive the blobs.
+   *
+   * @throws IllegalArgumentException
+   *           if the packets are already registered in the connection (an
+   *           instance has already been created for this connection).
+   */
+  public BlobTransfer(@Nonnull Connection connection) throws IllegalArgumentException {
+    this.connection = Objects.requireNonNull(connection);
+
+    PacketsRegistry registry = connection.getPacketsRegistry();
+    registry.addPacket(OFFER_PACKET_KEY, BlobOfferPacket.class);
+    registry.addPacket(CHUNK_PACKET_KEY, BlobChunkPacket.class);
+    registry.addPacket(ACK_PACKET_KEY, BlobAckPacket.class);
+
+    this.nextReceiver = connection.getCustomPacketReceiver();
+    connection.setCustomPacketReceiver(this);
+  }
+
+  /**
+   * Set the size of every chunk. Both ends do not need to have the same size.
+   * The size is sent with every blob.
+   *
+   * @param chunkSize
+   *          the size of every chunk. between 1 and {@link #MAX_CHUNK_SIZE}.
+   *
+   * @return
+   *         an instance of this.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code chunkSize} is not between 1 and {@link #MAX_CHUNK_SIZE}.
+   */
+  @Nonnull
+  public BlobTransfer setChunkSize(int chunkSize) throws IllegalArgumentException {
+    if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+      throw new IllegalArgumentException(
+          "chunkSize must be between 1 and " + MAX_CHUNK_SIZE);
+    }
+
+    this.chunkSize = (short) chunkSize;
+    return this;
+  }
+
+  /**
+   * Set the biggest blob, which can be received. Bigger blobs are rejected.
+   * Default is 256 KiB.
+   *
+   * @param maxBlobSize
+   *          the biggest blob size in bytes.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public BlobTransfer setMaxBlobSize(int maxBlobSize) {
+    this.maxBlobSize = maxBlobSize;
+    return this;
+  }
+
+  /**
+   * Set how long the sender waits for a response from the receiver before
+   * giving up. Default is 30 seconds.
+   *
+   * @param duration
+   *          the duration to wait.
+   * @param unit
+   *          the unit to use for {@code duration}.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public BlobTransfer setAckTimeout(long duration, @Nonnull TimeUnit unit) {
+    this.ackTimeout = unit.toMillis(duration);
+    return this;
+  }
+
+  /**
+   * Set the listener, which receives the blobs after they are received and
+   * verified. Blobs are rejected if no listener is set.
+   *
+   * @param receiver
+   *          the listener to receive the blobs.
+   * @param progress
+   *          (optional) the listener to inform about the progress of the
+   *          incoming blobs.
+   */
+  public void setBlobReceiver(@Nullable IBlobReceived receiver,
+      @Nullable IBlobProgress progress) {
+    this.blobReceiver = receiver;
+    this.receiveProgress = progress;
+  }
+
+  /**
+   * Send the blob to the other end on a separate thread.
+   *
+   * <p>
+   * If the transfer fails, the same blob can be sent again (even over a new
+   * connection to the same user) and the transfer will resume from the last
+   * chunk the receiver has verified.
+   *
+   * @param blob
+   *          the data to send.
+   * @param progress
+   *          (optional) the listener to inform about the sent chunks.
+   * @param result
+   *          (optional) the listener to inform when the transfer ends.
+   */
+  public void sendBlob(@Nonnull byte[] blob, @Nullable IBlobProgress progress,
+      @Nullable IBlobResult result) {
+    Objects.requireNonNull(blob);
+
+    // waits for the other end. So, it must not hold the shared threads
+    ThreadPools.blockingPool.executeOrRetry(() -> {
+      BlobResult br = sendBlobBlocking(blob, progress);
+
+      if (result != null) {
+        result.result(br);
+      }
+    });
+  }
+
+  /**
+   * Send the blob to the other end and wait till the transfer ends.
+   *
+   * @param blob
+   *          the data to send.
+   * @param progress
+   *          (optional) the listener to inform about the sent chunks.
+   *
+   * @return
+   *         the result of the transfer.
+   */
+  @Nonnull
+  public BlobResult sendBlobBlocking(@Nonnull byte[] blob, @Nullable IBlobProgress progress) {
+    final short chunkSize = this.chunkSize;
+    final byte[] hash = hash(blob);
+    final int transferId = ByteBuffer.wrap(hash).getInt();
+    final int chunkCount = PartialBlob.chunkCount(blob.length, chunkSize);
+
+    final BlockingQueue<BlobAckPacket> acks = new LinkedBlockingQueue<>();
+    if (outgoing.putIfAbsent(transferId, acks) != null) {
+      // the same blob is being sent at this moment
+      return BlobResult.FAILED;
+    }
+
+    try {
+      connection.sendPacket(new BlobOfferPacket(hash, blob.length, chunkSize));
+
+      // the next chunk to stream. nothing is streamed till the receiver asks
+      int next = chunkCount;
+      while (true) {
+        final BlobAckPacket ack = (next < chunkCount) ? acks.poll()
+            : acks.poll(ackTimeout, TimeUnit.MILLISECONDS);
+
+        if (ack == null) {
+          if (next >= chunkCount) {
+            return BlobResult.TIMED_OUT;
+          }
+
+          sendChunk(blob, transferId, chunkSize, next);
+          next++;
+          if (progress != null) {
+            progress.progress(next, chunkCount);
+          }
+
+        } else if (ack.getStatus() == BlobAckPacket.STATUS_COMPLETED) {
+          if (progress != null) {
+            progress.progress(chunkCount, chunkCount);
+          }
+          return BlobResult.COMPLETED;
+
+        } else if (ack.getStatus() == BlobAckPacket.STATUS_CORRUPTED) {
+          return BlobResult.CORRUPTED;
+
+        } else if (ack.getStatus() == BlobAckPacket.STATUS_REJECTED) {
+          return BlobResult.REJECTED;
+
+        } else if (ack.getStatus() == BlobAckPacket.STATUS_RESUME) {
+          // the receiver has verified the chunks before it
+          next = Math.max(0, ack.getNextChunk());
+
+        } else if (ack.getStatus() == BlobAckPacket.STATUS_RESEND) {
+          // only this chunk. the stream goes on from where it was
+          final int index = ack.getNextChunk();
+          if (index >= 0 && index < chunkCount) {
+            sendChunk(blob, transferId, chunkSize, index);
+          }
+        }
+      }
+
+    } catch (IOException e) {
+      e.printStackTrace();
+      return BlobResult.FAILED;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return BlobResult.FAILED;
+
+    } finally {
+      outgoing.remove(transferId);
+    }
+  }
+
+  private void sendChunk(@Nonnull byte[] blob, int transferId, int chunkSize, int index)
+      throws IOException {
+    final int offset = index * chunkSize;
+    final byte[] chunk = Arrays.copyOfRange(blob, offset,
+        Math.min(blob.length, offset + chunkSize));
+    connection.sendPacket(new BlobChunkPacket(transferId, index, chunk));
+  }
+
+  /**
+   * Process the received packet for this instance.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param packet
+   *          the packet to process for this instance.
+   */
+  @Override
+  @IBackend
+  public <T extends BasePacket> void packetReceived(T packet) {
+    try {
+      if (packet instanceof BlobOfferPacket) {
+        offerReceived((BlobOfferPacket) packet);
+
+      } else if (packet instanceof BlobChunkPacket) {
+        chunkReceived((BlobChunkPacket) packet);
+
+      } else if (packet instanceof BlobAckPacket) {
+        BlobAckPacket ack = (BlobAckPacket) packet;
+        BlockingQueue<BlobAckPacket> acks = outgoing.get(ack.getTransferId());
+
+        if (acks != null) {
+          acks.add(ack);
+        }
+
+      } else if (nextReceiver != null) {
+        nextReceiver.packetReceived(packet);
+
+      } else {
+        throw new RuntimeException(
+            "There is no processer that can process this packet " + packet.getClass().getName()
+                + ". Packet ignored.");
+      }
+
+    } catch (IOException e) {
+      // the other end will time out and can resume later
+      e.printStackTrace();
+    }
+  }
+
+  private void offerReceived(@Nonnull BlobOfferPacket offer) throws IOException {
+    final byte[] hash = offer.getHash();
+    if (hash.length != 32) {
+      // not a SHA-256 hash. there is no transfer id to reject, the sender times out
+      return;
+    }
+
+    final int transferId = ByteBuffer.wrap(hash).getInt();
+    if (blobReceiver == null
+        || offer.getTotalSize() < 0
+        || offer.getTotalSize() > maxBlobSize
+        || offer.getChunkSize() < 1) {
+
+      connection.sendPacket(new BlobAckPacket(transferId, 0, BlobAckPacket.STATUS_REJECTED));
+      return;
+    }
+
+    PartialBlob partial = PartialBlob.getOrCreate(
+        connection.getUser(), hash, offer.getTotalSize(), offer.getChunkSize());
+    incoming.put(transferId, partial);
+
+    synchronized (partial) {
+      if (partial.isComplete()) {
+        finishBlob(transferId, partial);
+        return;
+      }
+
+      // a new stream: ask for the missing chunks between the verified ones
+      // on their own, then for the rest
+      final int last = partial.lastReceived();
+      for (int i = partial.nextMissing(0); i < last; i = partial.nextMissing(i + 1)) {
+        connection.sendPacket(new BlobAckPacket(transferId, i, BlobAckPacket.STATUS_RESEND));
+      }
+
+      partial.highestSeen = last;
+      partial.resendRequests = 0;
+      connection.sendPacket(
+          new BlobAckPacket(transferId, last + 1, BlobAckPacket.STATUS_RESUME));
+    }
+  }
+
+  private void chunkReceived(@Nonnull BlobChunkPacket chunk) throws IOException {
+    final int transferId = chunk.getTransferId();
+    final PartialBlob partial = incoming.get(transferId);
+
+    if (partial == null) {
+      return;
+    }
+
+    synchronized (partial) {
+      final int index = chunk.getIndex();
+      if (index < 0 || index >= partial.chunkCount || partial.hasChunk(index)) {
+        // invalid or already received
+        return;
+      }
+
+      // the chunks between the last seen one and this one got lost
+      for (int i = partial.highestSeen + 1; i < index; i++) {
+        if (!partial.hasChunk(i)) {
+          requestChunk(transferId, partial, i);
+        }
+      }
+      partial.highestSeen = Math.max(partial.highestSeen, index);
+
+      if (!chunk.isValid() || !partial.putChunk(index, chunk.getData())) {
+        // only this chunk is sent again
+        requestChunk(transferId, partial, index);
+        return;
+      }
+
+      final IBlobProgress progress = receiveProgress;
+      if (progress != null) {
+        final int done = partial.receivedCount();
+        ThreadPools.threadPool.tryExecute(() -> {
+          progress.progress(done, partial.chunkCount);
+        });
+      }
+
+      if (partial.isComplete()) {
+        finishBlob(transferId, partial);
+      }
+    }
+  }
+
+  private void requestChunk(int transferId, @Nonnull PartialBlob partial, int index)
+      throws IOException {
+    // give up on a broken sender. It times out and can resume later
+    if (partial.resendRequests >= Math.max(MAX_RESEND_REQUESTS, partial.chunkCount)) {
+      return;
+    }
+
+    partial.resendRequests++;
+    connection.sendPacket(new BlobAckPacket(transferId, index, BlobAckPacket.STATUS_RESEND));
+  }
+
+  private void finishBlob(int transferId, @Nonnull PartialBlob partial) throws IOException {
+    incoming.remove(transferId);
+    PartialBlob.remove(partial);
+
+    if (!MessageDigest.isEqual(partial.hash, hash(partial.data))) {
+      connection.sendPacket(new BlobAckPacket(transferId, 0, BlobAckPacket.STATUS_CORRUPTED));
+      return;
+    }
+
+    connection.sendPacket(
+        new BlobAckPacket(transferId, partial.chunkCount, BlobAckPacket.STATUS_COMPLETED));
+
+    final IBlobReceived receiver = blobReceiver;
+    if (receiver != null) {
+      ThreadPools.threadPool.executeOrRetry(() -> {
+        receiver.received(partial.hash, partial.data);
+      });
+    }
+  }
+
+  @Nonnull
+  private static byte[] hash(@Nonnull byte[] data) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(data);
+    } catch (NoSuchAlgorithmException e) {
+      throw new HypixelUtilsInternalError("SHA-256 is not supported on this platform", e);
+    }
+  }
+
+  /**
+   * Enum indicates the result of sending a blob.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  public enum BlobResult {
+    /**
+     * The receiver has received the whole blob and verified its hash.
+     */
+    COMPLETED,
+    /**
+     * The receiver does not want to receive the blob, has no listener for it or
+     * the blob is too big.
+     */
+    REJECTED,
+    /**
+     * The receiver has received the whole blob, but its hash does not match.
+     * The received chunks have been dropped. Sending the blob again will start
+     * from zero.
+     */
+    CORRUPTED,
+    /**
+     * The receiver did not respond in time. Sending the blob again will resume
+     * from the last verified chunk.
+     */
+    TIMED_OUT,
+    /**
+     * The blob could not be sent, because the connection is closed or the same
+     * blob is being sent at this moment.
+     */
+    FAILED;
+  }
+
+  /**
+   * Interface used to inform about the progress of a transfer.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IBlobProgress {
+    /**
+     * called after every chunk.
+     *
+     * @param doneChunks
+     *          how many chunks are sent/received.
+     * @param totalChunks
+     *          how many chunks the blob has.
+     */
+    void progress(int doneChunks, int totalChunks);
+  }
+
+  /**
+   * Interface used to inform the sender when the transfer ends.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IBlobResult {
+    /**
+     * called when the transfer ends.
+     *
+     * @param result
+     *          the result of the transfer.
+     */
+    void result(@Nonnull BlobResult result);
+  }
+
+  /**
+   * Interface used to receive the blobs after they are received and verified.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IBlobReceived {
+    /**
+     * called on a separate thread when a blob is received and verified.
+     *
+     * @param hash
+     *          the SHA-256 hash of the blob.
+     * @param blob
+     *          the received blob.
+     */
+    void received(@Nonnull byte[] hash, @Nonnull byte[] blob);
+  }
+}
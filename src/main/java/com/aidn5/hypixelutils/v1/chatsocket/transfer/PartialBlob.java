@@ -0,0 +1,255 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transfer;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.codec.binary.Hex;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+
+/**
+ * A blob, which is being received. It holds the verified chunks, which are
+ * received so far. The chunks can be received in any order.
+ *
+ * <p>
+ * The partial blobs are saved in a shared store between all the connections.
+ * So, a new connection to the same user can resume the transfer from the last
+ * verified chunk instead of starting from zero.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+class PartialBlob {
+  /**
+   * How many partial blobs can be saved at the same time. The least used one
+   * is dropped when the limit is reached.
+   */
+  private static final int MAX_PARTIALS = 16;
+  /**
+   * Drop a partial blob, if it is not touched for this long.
+   */
+  private static final long EXPIRE_AFTER = TimeUnit.MINUTES.toMillis(30);
+
+  private static final LinkedHashMap<String, PartialBlob> store =
+      new LinkedHashMap<String, PartialBlob>(MAX_PARTIALS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<String, PartialBlob> eldest) {
+          return size() > MAX_PARTIALS;
+        }
+      };
+
+  @Nonnull
+  final String user;
+  @Nonnull
+  final byte[] hash;
+  final int chunkSize;
+  final int chunkCount;
+  @Nonnull
+  final byte[] data;
+
+  /**
+   * the verified chunks.
+   */
+  @Nonnull
+  private final BitSet received = new BitSet();
+  /**
+   * the highest chunk seen in the current stream. A gap before a new chunk
+   * means the chunks in between got lost.
+   */
+  int highestSeen = -1;
+  /**
+   * how many single chunks have been requested again. Bounded to not loop
+   * forever with a broken sender.
+   */
+  int resendRequests = 0;
+
+  private long lastUpdate = Clock.get().currentTimeMillis();
+
+  private PartialBlob(@Nonnull String user, @Nonnull byte[] hash, int totalSize,
+      int chunkSize) {
+    this.user = Objects.requireNonNull(user);
+    this.hash = Objects.requireNonNull(hash);
+    this.chunkSize = chunkSize;
+    this.chunkCount = chunkCount(totalSize, chunkSize);
+    this.data = new byte[totalSize];
+  }
+
+  /**
+   * Get the saved partial blob or create a new one.
+   *
+   * @param user
+   *          the user, who is sending the blob.
+   * @param hash
+   *          the hash of the whole blob.
+   * @param totalSize
+   *          the size of the whole blob.
+   * @param chunkSize
+   *          the size of every chunk.
+   *
+   * @return
+   *         the saved partial blob or a new one.
+   */
+  @Nonnull
+  static PartialBlob getOrCreate(@Nonnull String user, @Nonnull byte[] hash, int totalSize,
+      int chunkSize) {
+    final String key = key(user, hash);
+
+    synchronized (store) {
+      cleanStore();
+
+      PartialBlob partial = store.get(key);
+      if (partial == null
+          || partial.chunkSize != chunkSize
+          || partial.data.length != totalSize) {
+
+        partial = new PartialBlob(user, hash, totalSize, chunkSize);
+        store.put(key, partial);
+      }
+
+      partial.lastUpdate = Clock.get().currentTimeMillis();
+      return partial;
+    }
+  }
+
+  /**
+   * Remove the partial blob from the store.
+   *
+   * @param partial
+   *          the partial blob to remove.
+   */
+  static void remove(@Nonnull PartialBlob partial) {
+    synchronized (store) {
+      store.remove(key(partial.user, partial.hash));
+    }
+  }
+
+  /**
+   * Copy the verified chunk into the blob.
+   *
+   * @param index
+   *          the position of the chunk in the blob.
+   * @param chunk
+   *          the chunk's data.
+   *
+   * @return
+   *         <code>true</code> if the chunk has the expected size
+   *         and has been saved.
+   */
+  boolean putChunk(int index, @Nonnull byte[] chunk) {
+    if (index < 0 || index >= chunkCount) {
+      return false;
+    }
+
+    final int offset = index * chunkSize;
+    final int expectedSize = Math.min(chunkSize, data.length - offset);
+
+    if (chunk.length != expectedSize) {
+      return false;
+    }
+
+    System.arraycopy(chunk, 0, data, offset, chunk.length);
+    received.set(index);
+    lastUpdate = Clock.get().currentTimeMillis();
+
+    return true;
+  }
+
+  /**
+   * Check whether the chunk has been received and verified.
+   *
+   * @param index
+   *          the position of the chunk in the blob.
+   *
+   * @return
+   *         <code>true</code> if the chunk has been received.
+   */
+  boolean hasChunk(int index) {
+    return index >= 0 && received.get(index);
+  }
+
+  /**
+   * Get the first chunk, which has not been received.
+   *
+   * @param from
+   *          the chunk to start searching from.
+   *
+   * @return
+   *         the first missing chunk from {@code from}. {@link #chunkCount} or
+   *         more if there is none.
+   */
+  int nextMissing(int from) {
+    return received.nextClearBit(from);
+  }
+
+  /**
+   * Get the highest chunk, which has been received.
+   *
+   * @return
+   *         the highest received chunk or {@code -1} if none.
+   */
+  int lastReceived() {
+    return received.length() - 1;
+  }
+
+  /**
+   * Get how many chunks have been received.
+   *
+   * @return
+   *         how many chunks have been received.
+   */
+  int receivedCount() {
+    return received.cardinality();
+  }
+
+  /**
+   * Check whether all the chunks have been received.
+   *
+   * @return
+   *         <code>true</code> if all the chunks have been received.
+   */
+  boolean isComplete() {
+    return nextMissing(0) >= chunkCount;
+  }
+
+  /**
+   * Calculate how many chunks are needed to hold the blob.
+   *
+   * @param totalSize
+   *          the size of the blob.
+   * @param chunkSize
+   *          the size of every chunk.
+   *
+   * @return
+   *         how many chunks are needed to hold the blob.
+   */
+  static int chunkCount(int totalSize, int chunkSize) {
+    return (totalSize + chunkSize - 1) / chunkSize;
+  }
+
+  private static void cleanStore() {
+    final long expireTime = Clock.get().currentTimeMillis() - EXPIRE_AFTER;
+
+    Iterator<PartialBlob> iterator = store.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().lastUpdate < expireTime) {
+        iterator.remove();
+      }
+    }
+  }
+
+  @Nonnull
+  private static String key(@Nonnull String user, @Nonnull byte[] hash) {
+    return user.toLowerCase() + ":" + Hex.encodeHexString(hash);
+  }
+}
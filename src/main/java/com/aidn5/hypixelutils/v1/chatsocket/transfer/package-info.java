@@ -0,0 +1,15 @@
+/**
+ * Package contains a facility to transfer blobs (like schematics, configs,
+ * screenshots) over a
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.client.Connection} with
+ * integrity check and the ability to resume the transfer from the last
+ * verified chunk, even over a new connection to the same user.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see com.aidn5.hypixelutils.v1.chatsocket.transfer.BlobTransfer
+ */
+
+package com.aidn5.hypixelutils.v1.chatsocket.transfer;
@@ -0,0 +1,256 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transport;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * The host ChatSocket runs on. Used to send and receive the chat lines without
+ * depending on the minecraft client directly.
+ *
+ * <p>
+ * By default {@link ForgeChatTransport} is used. Another transport (like
+ * {@link HeadlessChatTransport}) must be set with {@link #set(ChatTransport)}
+ * before the protocols are loaded (before using ChatSocket for the first
+ * time), since the protocols register their listeners on creation.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public abstract class ChatTransport {
+  @Nullable
+  private static volatile ChatTransport current = null;
+
+  @Nonnull
+  private final CopyOnWriteArrayList<ITransportListener> listeners = new CopyOnWriteArrayList<>();
+  @Nonnull
+  private final CopyOnWriteArrayList<Runnable> tickListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Get the transport used by ChatSocket.
+   *
+   * @return
+   *         the current transport. {@link ForgeChatTransport} by default.
+   */
+  @Nonnull
+  public static ChatTransport get() {
+    ChatTransport transport = current;
+    if (transport == null) {
+      synchronized (ChatTransport.class) {
+        if (current == null) {
+          current = new ForgeChatTransport();
+        }
+        transport = current;
+      }
+    }
+
+    return transport;
+  }
+
+  /**
+   * Set the transport used by ChatSocket.
+   *
+   * @param transport
+   *          the transport to use.
+   */
+  public static void set(@Nonnull ChatTransport transport) {
+    synchronized (ChatTransport.class) {
+      current = Objects.requireNonNull(transport);
+    }
+  }
+
+  /**
+   * Send a chat line (or a command) to the server.
+   *
+   * @param line
+   *          the line to send.
+   */
+  public abstract void sendLine(@Nonnull String line);
+
+  /**
+   * Execute the command on the client, if the client has such command.
+   *
+   * @param command
+   *          the command to execute. starts with "/".
+   *
+   * @return
+   *         <code>true</code> if the client has executed it and it must not be
+   *         sent to the server.
+   */
+  public boolean executeClientCommand(@Nonnull String command) {
+    return false;
+  }
+
+  /**
+   * Get the name of the current user.
+   *
+   * @return
+   *         the name of the current user or <code>null</code> if not connected.
+   */
+  @Nullable
+  public abstract String getCurrentUser();
+
+  /**
+   * Get the address of the current server.
+   *
+   * @return
+   *         the address of the current server or <code>null</code> if not
+   *         connected.
+   */
+  @Nullable
+  public abstract String getServerAddress();
+
+  /**
+   * Check whether the current server is the hypixel network.
+   *
+   * @return
+   *         <code>true</code> if connected to the hypixel network.
+   */
+  public abstract boolean isOnHypixel();
+
+  /**
+   * Add a listener to receive the chat lines and the connection events.
+   *
+   * @param listener
+   *          the listener to add.
+   */
+  public void addListener(@Nonnull ITransportListener listener) {
+    listeners.add(Objects.requireNonNull(listener));
+  }
+
+  /**
+   * Remove a listener added by {@link #addListener(ITransportListener)}.
+   *
+   * @param listener
+   *          the listener to remove.
+   */
+  public void removeListener(@Nonnull ITransportListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Add a listener to be called every game tick.
+   *
+   * @param listener
+   *          the listener to call.
+   */
+  public void addTickListener(@Nonnull Runnable listener) {
+    tickListeners.add(Objects.requireNonNull(listener));
+  }
+
+  /**
+   * Remove a listener added by {@link #addTickListener(Runnable)}.
+   *
+   * @param listener
+   *          the listener to remove.
+   */
+  public void removeTickListener(@Nonnull Runnable listener) {
+    tickListeners.remove(listener);
+  }
+
+  /**
+   * Pass the received line to the listeners till one consumes it.
+   *
+   * @param line
+   *          the received line (unformatted).
+   *
+   * @return
+   *         <code>true</code> if a listener has consumed the line and it should
+   *         be hidden from the user.
+   */
+  protected boolean fireLineReceived(@Nonnull String line) {
+    for (ITransportListener listener : listeners) {
+      try {
+        if (listener.lineReceived(line)) {
+          return true;
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Inform the listeners that the user has connected to a server.
+   */
+  protected void fireConnected() {
+    for (ITransportListener listener : listeners) {
+      try {
+        listener.connected();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Inform the listeners that the user has disconnected from the server.
+   */
+  protected void fireDisconnected() {
+    for (ITransportListener listener : listeners) {
+      try {
+        listener.disconnected();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Inform the tick listeners about a new game tick.
+   */
+  protected void fireTick() {
+    for (Runnable listener : tickListeners) {
+      try {
+        listener.run();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Interface used to receive the chat lines and the connection events from
+   * {@link ChatTransport}.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   *
+   * @see ChatTransport#addListener(ITransportListener)
+   */
+  @IHypixelUtils
+  public interface ITransportListener {
+    /**
+     * called for every received chat line.
+     *
+     * @param line
+     *          the received line (unformatted).
+     *
+     * @return
+     *         <code>true</code> to consume the line. Consumed lines are not
+     *         passed to the other listeners and are hidden from the user.
+     */
+    default boolean lineReceived(@Nonnull String line) {
+      return false;
+    }
+
+    /**
+     * called when the user has connected to a server.
+     */
+    default void connected() {}
+
+    /**
+     * called when the user has disconnected from the server.
+     */
+    default void disconnected() {}
+  }
+}
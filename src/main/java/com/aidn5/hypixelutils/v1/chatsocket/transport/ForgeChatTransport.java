@@ -0,0 +1,114 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transport;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.HypixelUtils;
+import com.aidn5.hypixelutils.v1.chatsocket.client.WorldChangeListener;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.ClientExecutor;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraftforge.client.ClientCommandHandler;
+import net.minecraftforge.client.event.ClientChatReceivedEvent;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.network.FMLNetworkEvent;
+
+/**
+ * The transport of the minecraft client. Used by default.
+ *
+ * <p>
+ * The lines sent from other threads (e.g. the pacer of
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.protocols.CongestionController})
+ * are sent on the client thread by {@link ClientExecutor}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class ForgeChatTransport extends ChatTransport {
+  ForgeChatTransport() {
+    MinecraftForge.EVENT_BUS.register(this);
+    // pause the connections while switching the world
+    WorldChangeListener.init();
+  }
+
+  @Override
+  public void sendLine(@Nonnull String line) {
+    if (Minecraft.getMinecraft().isCallingFromMinecraftThread()) {
+      sendLineNow(line);
+    } else {
+      ClientExecutor.execute(() -> sendLineNow(line));
+    }
+  }
+
+  private static void sendLineNow(@Nonnull String line) {
+    final EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
+    if (player != null) {
+      player.sendChatMessage(line);
+    }
+  }
+
+  @Override
+  public boolean executeClientCommand(@Nonnull String command) {
+    final EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
+    return ClientCommandHandler.instance.executeCommand(player, command) != 0;
+  }
+
+  @Override
+  @Nullable
+  public String getCurrentUser() {
+    final EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
+    return player == null ? null : player.getName();
+  }
+
+  @Override
+  @Nullable
+  public String getServerAddress() {
+    final ServerData serverData = Minecraft.getMinecraft().getCurrentServerData();
+    return serverData == null ? null : serverData.serverIP;
+  }
+
+  @Override
+  public boolean isOnHypixel() {
+    return HypixelUtils.defaultInstance().onHypixel();
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onChat(ClientChatReceivedEvent event) {
+    if (event.type != 0) {
+      return;
+    }
+
+    if (fireLineReceived(event.message.getUnformattedText())) {
+      event.setCanceled(true);
+    }
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onTick(TickEvent.ClientTickEvent event) {
+    if (event.phase == TickEvent.Phase.END) {
+      fireTick();
+    }
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onLoggedIn(FMLNetworkEvent.ClientConnectedToServerEvent event) {
+    fireConnected();
+  }
+
+  @IBackend
+  @SubscribeEvent
+  public void onLoggedOut(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
+    fireDisconnected();
+  }
+}
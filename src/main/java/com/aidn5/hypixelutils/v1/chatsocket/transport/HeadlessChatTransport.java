@@ -0,0 +1,136 @@
+package com.aidn5.hypixelutils.v1.chatsocket.transport;
+
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+import com.aidn5.hypixelutils.v1.tools.VirtualClock;
+
+/**
+ * A transport for plain java processes without the minecraft client (e.g. a
+ * bot account connected with another minecraft protocol library).
+ *
+ * <p>
+ * The host passes the received chat lines to {@link #receiveLine(String)} and
+ * sends the lines given to its {@link ILineSender}. The game ticks are
+ * generated every {@link VirtualClock#TICK_MILLIS} on
+ * {@link Scheduler} (so they follow a virtual clock too) till {@link #close()}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class HeadlessChatTransport extends ChatTransport {
+  @Nonnull
+  private final String user;
+  @Nonnull
+  private final ILineSender lineSender;
+  @Nullable
+  private volatile String serverAddress = null;
+  @Nonnull
+  private final ScheduledFuture<?> ticker;
+
+  /**
+   * Constructor.
+   *
+   * @param user
+   *          the name of the user the host is logged in with.
+   * @param lineSender
+   *          used to send the lines to the server.
+   */
+  public HeadlessChatTransport(@Nonnull String user, @Nonnull ILineSender lineSender) {
+    this.user = Objects.requireNonNull(user);
+    this.lineSender = Objects.requireNonNull(lineSender);
+
+    ticker = Scheduler.scheduleWithFixedDelay(this::fireTick,
+        VirtualClock.TICK_MILLIS, VirtualClock.TICK_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void sendLine(@Nonnull String line) {
+    lineSender.sendLine(line);
+  }
+
+  @Override
+  @Nonnull
+  public String getCurrentUser() {
+    return user;
+  }
+
+  @Override
+  @Nullable
+  public String getServerAddress() {
+    return serverAddress;
+  }
+
+  @Override
+  public boolean isOnHypixel() {
+    final String address = serverAddress;
+    return address != null && address.toLowerCase().endsWith("hypixel.net");
+  }
+
+  /**
+   * Pass a chat line received by the host.
+   *
+   * @param line
+   *          the received line (unformatted).
+   *
+   * @return
+   *         <code>true</code> if the line has been consumed by ChatSocket.
+   */
+  public boolean receiveLine(@Nonnull String line) {
+    return fireLineReceived(Objects.requireNonNull(line));
+  }
+
+  /**
+   * Inform that the host has connected to a server.
+   *
+   * @param address
+   *          the address of the server.
+   */
+  public void connected(@Nonnull String address) {
+    this.serverAddress = Objects.requireNonNull(address);
+    fireConnected();
+  }
+
+  /**
+   * Inform that the host has disconnected from the server.
+   */
+  public void disconnected() {
+    this.serverAddress = null;
+    fireDisconnected();
+  }
+
+  /**
+   * Stop generating the game ticks.
+   */
+  public void close() {
+    ticker.cancel(false);
+  }
+
+  /**
+   * Interface used by {@link HeadlessChatTransport} to send the lines through
+   * the host.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface ILineSender {
+    /**
+     * called to send a chat line (or a command) to the server.
+     *
+     * @param line
+     *          the line to send.
+     */
+    void sendLine(@Nonnull String line);
+  }
+}
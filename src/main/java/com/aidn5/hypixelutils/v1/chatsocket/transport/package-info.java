@@ -0,0 +1,19 @@
+/**
+ * Package contains the abstraction of the host ChatSocket runs on: sending and
+ * receiving chat lines, the current user and the game ticks.
+ *
+ * <p>
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.transport.ForgeChatTransport}
+ * is used by default inside the minecraft client.
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.transport.HeadlessChatTransport}
+ * can be used to run the same networking core in a plain java process (e.g.
+ * a bot account), by setting it with
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport#set(ChatTransport)}
+ * before using ChatSocket.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+
+package com.aidn5.hypixelutils.v1.chatsocket.transport;
@@ -6,7 +6,9 @@ import static net.minecraft.util.EnumChatFormatting.RESET;
 import static net.minecraft.util.EnumChatFormatting.WHITE;
 import static net.minecraft.util.EnumChatFormatting.YELLOW;
 
-import com.aidn5.hypixelutils.v1.chatsocket.wrapper.RequestWrapper.PendingRequest;
+import com.aidn5.hypixelutils.v1.HypixelUtils;
+import com.aidn5.hypixelutils.v1.chatsocket.client.Connection;
+import com.aidn5.hypixelutils.v1.chatsocket.wrapper.PendingRequests.PendingRequest;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
@@ -33,7 +35,7 @@ public class ChatSocketCommandWrapper extends CommandBase {
       final int connectionId = Integer.valueOf(args[2]);
 
       final String logo = String.format(ChatSocketCommandWrapper.logo, displayChatName);
-      final PendingRequest pr = RequestWrapper.pendingRequests.get(connectionId);
+      final PendingRequest pr = RequestWrapper.pendingRequests.remove(connectionId);
       final EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
 
       if (pr == null) {
@@ -43,26 +45,30 @@ public class ChatSocketCommandWrapper extends CommandBase {
 
       }
 
-      RequestWrapper.pendingRequests.remove(connectionId);
-
       if (!pr.requestReceiveEvent.canSend()) {
         player.addChatComponentMessage(
             new ChatComponentText(logo + EnumChatFormatting.RED + "connection timed out."));
         return;
       }
 
-      new Thread(() -> {
-        if (accept) {
-          player.addChatComponentMessage(
-              new ChatComponentText(logo + EnumChatFormatting.GREEN + "accepting..."));
-
-          pr.listener.get(pr.requestReceiveEvent.acceptConnection());
+      if (accept) {
+        player.addChatComponentMessage(
+            new ChatComponentText(logo + EnumChatFormatting.GREEN + "accepting..."));
+      } else {
+        player.addChatComponentMessage(new ChatComponentText(logo + "rejecting..."));
+      }
 
+      // the chat messages must be sent on the client thread.
+      // so, only the answer runs on the control pool
+      HypixelUtils.controlPool.executeOrRetry(() -> {
+        if (accept) {
+          final Connection connection = pr.requestReceiveEvent.acceptConnection();
+          // the listener of the mod may block
+          HypixelUtils.threadPool.executeOrRetry(() -> pr.listener.get(connection));
         } else {
-          player.addChatComponentMessage(new ChatComponentText(logo + "rejecting..."));
           pr.requestReceiveEvent.declineConnection();
         }
-      }).start();
+      });
     }
   }
 
@@ -0,0 +1,166 @@
+package com.aidn5.hypixelutils.v1.chatsocket.wrapper;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.client.RequestReceiveEvent;
+import com.aidn5.hypixelutils.v1.chatsocket.wrapper.RequestWrapper.IGetChatProtocol;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+
+/**
+ * Table holds the requests, which are waiting for the player to accept them.
+ *
+ * <p>
+ * A request is removed as soon as its connection times out or is closed, or
+ * after {@link #MAX_AGE} as a last resort. The table holds at most
+ * {@link #MAX_SIZE} requests. When it is full, the oldest request is dropped.
+ * Dropped requests are closed without informing the other end, which will
+ * time out. So, ignored requests never pin their connections.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+class PendingRequests {
+  /**
+   * how many requests can wait at the same time.
+   */
+  static final int MAX_SIZE = 64;
+  /**
+   * the longest time a request can wait, even if its connection has not timed
+   * out yet.
+   */
+  static final long MAX_AGE = TimeUnit.SECONDS.toMillis(60);
+  /**
+   * how often the expired requests are removed.
+   */
+  private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+  @Nonnull
+  private final Map<Integer, PendingRequest> requests = new ConcurrentHashMap<>();
+  @Nullable
+  private ScheduledFuture<?> sweeper = null;
+
+  /**
+   * Add the request to the table.
+   *
+   * @param re
+   *          the received request.
+   * @param listener
+   *          the listener to call when the player accepts the request.
+   */
+  void put(@Nonnull RequestReceiveEvent re, @Nonnull IGetChatProtocol listener) {
+    PendingRequest pr = new PendingRequest();
+    pr.requestReceiveEvent = re;
+    pr.listener = listener;
+
+    synchronized (this) {
+      while (requests.size() >= MAX_SIZE && dropOldest()) {
+        // drop till there is a place
+      }
+
+      requests.put(re.getConnectionId(), pr);
+
+      if (sweeper == null) {
+        sweeper = Scheduler.scheduleWithFixedDelay(
+            this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * Remove the request from the table.
+   *
+   * @param connectionId
+   *          the id of the request's connection.
+   *
+   * @return
+   *         the removed request or <code>null</code> if it does not exist or
+   *         has already been removed by expiring.
+   */
+  @Nullable
+  PendingRequest remove(int connectionId) {
+    return requests.remove(connectionId);
+  }
+
+  /**
+   * Get how many requests are waiting.
+   *
+   * @return
+   *         how many requests are waiting.
+   */
+  int size() {
+    return requests.size();
+  }
+
+  private void sweep() {
+    final long now = Clock.get().currentTimeMillis();
+
+    Iterator<PendingRequest> iterator = requests.values().iterator();
+    while (iterator.hasNext()) {
+      PendingRequest pr = iterator.next();
+
+      if (isExpired(pr, now)) {
+        iterator.remove();
+        release(pr);
+      }
+    }
+
+    // stop the sweeper when nothing is waiting
+    synchronized (this) {
+      if (requests.isEmpty() && sweeper != null) {
+        sweeper.cancel(false);
+        sweeper = null;
+      }
+    }
+  }
+
+  private boolean dropOldest() {
+    Entry<Integer, PendingRequest> oldest = null;
+
+    for (Entry<Integer, PendingRequest> entry : requests.entrySet()) {
+      if (oldest == null || entry.getValue().created < oldest.getValue().created) {
+        oldest = entry;
+      }
+    }
+
+    if (oldest == null) {
+      return false;
+    }
+
+    if (requests.remove(oldest.getKey(), oldest.getValue())) {
+      release(oldest.getValue());
+    }
+    return true;
+  }
+
+  private static boolean isExpired(@Nonnull PendingRequest pr, long now) {
+    return !pr.requestReceiveEvent.canSend() || pr.created + MAX_AGE < now;
+  }
+
+  private static void release(@Nonnull PendingRequest pr) {
+    try {
+      pr.requestReceiveEvent.dropConnection();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  static class PendingRequest {
+    final long created = Clock.get().currentTimeMillis();
+    RequestReceiveEvent requestReceiveEvent;
+    IGetChatProtocol listener;
+  }
+}
@@ -10,7 +10,9 @@ import static net.minecraft.util.EnumChatFormatting.WHITE;
 import static net.minecraft.util.EnumChatFormatting.YELLOW;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 
@@ -18,10 +20,14 @@ import com.aidn5.hypixelutils.v1.chatsocket.ChatSocketFactory;
 import com.aidn5.hypixelutils.v1.chatsocket.client.Connection;
 import com.aidn5.hypixelutils.v1.chatsocket.client.RequestReceiveEvent;
 import com.aidn5.hypixelutils.v1.chatsocket.client.RequestReceiveEvent.RequestReceived;
+import com.aidn5.hypixelutils.v1.chatsocket.rpc.RpcChannel;
+import com.aidn5.hypixelutils.v1.chatsocket.rpc.RpcChannel.IRpcMethod;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.ClientExecutor;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.event.ClickEvent;
 import net.minecraft.event.ClickEvent.Action;
 import net.minecraft.event.HoverEvent;
@@ -52,12 +58,13 @@ import net.minecraftforge.client.ClientCommandHandler;
 @IHypixelUtils
 public class RequestWrapper implements RequestReceived {
   @IBackend
-  static final HashMap<Integer, PendingRequest> pendingRequests = new HashMap<>();
+  static final PendingRequests pendingRequests = new PendingRequests();
   static {
     ClientCommandHandler.instance.registerCommand(new ChatSocketCommandWrapper());
   }
 
   private final HashMap<String, IGetChatProtocol> listeners = new HashMap<>();
+  private final Map<String, IRpcMethod> rpcMethods = new ConcurrentHashMap<>();
 
   @Nonnull
   public final String modid;
@@ -103,6 +110,43 @@ public class RequestWrapper implements RequestReceived {
     listeners.remove(actionId);
   }
 
+  /**
+   * Register a method, which other players can call with
+   * {@link RpcChannel#open(String, String)} and
+   * {@link RpcChannel#call(String, byte[])}.
+   * 
+   * <p>
+   * The first registered method starts listening to the action
+   * {@link RpcChannel#RPC_ACTION_ID}. Every accepted connection of this action
+   * is a session, which can call all the registered methods of this wrapper.
+   * 
+   * @param name
+   *          the name of the method.
+   * @param method
+   *          the method to invoke when the other end calls it.
+   */
+  public void registerRpcMethod(@Nonnull String name, @Nonnull IRpcMethod method) {
+    rpcMethods.put(
+        Objects.requireNonNull(name),
+        Objects.requireNonNull(method));
+
+    if (!listeners.containsKey(RpcChannel.RPC_ACTION_ID)) {
+      registerListener(RpcChannel.RPC_ACTION_ID, (cp) -> {
+        new RpcChannel(cp, rpcMethods);
+      });
+    }
+  }
+
+  /**
+   * Unregister a method to stop other players from calling it.
+   * 
+   * @param name
+   *          the name of the method.
+   */
+  public void unregisterRpcMethod(@Nonnull String name) {
+    rpcMethods.remove(name);
+  }
+
   @IBackend
   @Override
   public void get(@Nonnull RequestReceiveEvent re) {
@@ -115,11 +159,7 @@ public class RequestWrapper implements RequestReceived {
 
     boolean hasListener = (listener != null);
     if (hasListener) {
-      PendingRequest pr = new PendingRequest();
-      pr.listener = listener;
-      pr.requestReceiveEvent = re;
-
-      pendingRequests.put(re.getConnectionId(), pr);
+      pendingRequests.put(re, listener);
     }
 
     sendNotifyMessage(re, hasListener);
@@ -162,13 +202,14 @@ public class RequestWrapper implements RequestReceived {
     cs.setChatHoverEvent(
         new HoverEvent(net.minecraft.event.HoverEvent.Action.SHOW_TEXT, reason));
 
-
-    Minecraft.getMinecraft().thePlayer.addChatComponentMessage(wholeMsg);
-  }
-
-  static class PendingRequest {
-    RequestReceiveEvent requestReceiveEvent;
-    IGetChatProtocol listener;
+    // called on the thread of the dispatcher. The chat is only touched on the
+    // client thread
+    ClientExecutor.execute(() -> {
+      final EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
+      if (player != null) {
+        player.addChatComponentMessage(wholeMsg);
+      }
+    });
   }
 
   @IHypixelUtils
@@ -0,0 +1,312 @@
+package com.aidn5.hypixelutils.v1.chatwrapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.HypixelUtils;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport.ITransportListener;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle.ILifecycleListener;
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+import com.aidn5.hypixelutils.v1.tools.buffer.ChatBuffer.Priority;
+
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.EventPriority;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+/**
+ * Process-wide broker for the info commands (e.g. "/whereami"), which are
+ * shared between all the {@link HypixelUtils} instances.
+ *
+ * <p>
+ * Every mod has its own instance and its own wrappers. Without the broker,
+ * five mods would send "/whereami" five times after every world change and
+ * get blocked with "Please don't spam the command!". With the broker:
+ * <ul>
+ * <li>identical requests, which are still waiting for the response, are
+ * collapsed into one sent command.</li>
+ * <li>the response is passed to every waiting requester.</li>
+ * <li>the response is cached and returned at once till the world changes.</li>
+ * <li>the requests still waiting when the world changes are cancelled. So, a
+ * request of the new world never gets the response of the old one.</li>
+ * </ul>
+ * The commands are sent with the {@link HypixelUtils#chatBuffer} of
+ * {@link HypixelUtils#defaultInstance()}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class CommandBroker {
+  /**
+   * the shortest time between sending the same waiting command again.
+   */
+  public static final long RESEND_INTERVAL = TimeUnit.SECONDS.toMillis(2);
+
+  /**
+   * command -> the request waiting for its response.
+   */
+  @Nonnull
+  private static final Map<String, PendingCommand> pending = new HashMap<>();
+  /**
+   * command -> its response since the last world change.
+   */
+  @Nonnull
+  private static final Map<String, String> responses = new HashMap<>();
+
+  @Nonnull
+  private static final ITransportListener chatListener = new ITransportListener() {
+    @Override
+    public boolean lineReceived(String line) {
+      responseReceived(line);
+      return false;
+    }
+
+    @Override
+    public void disconnected() {
+      clearCache();
+    }
+  };
+
+  static {
+    ChatTransport.get().addListener(chatListener);
+    MinecraftForge.EVENT_BUS.register(new WorldListener());
+    HypixelLifecycle.addListener(new ILifecycleListener() {
+      @Override
+      public void suspended() {
+        cancelAll();
+        clearCache();
+      }
+    });
+  }
+
+  private CommandBroker() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Send the command and wait for its response. If the same command is already
+   * waiting, no new command is sent (unless {@link #RESEND_INTERVAL} has
+   * passed). If the response is cached, the callback is called at once.
+   *
+   * <p>
+   * <i>Note: the requests of the same command share the matcher of the first
+   * request. So, the same command must always be requested with an equivalent
+   * matcher.</i>
+   *
+   * @param command
+   *          the command to send (e.g. "/whereami").
+   * @param responseMatcher
+   *          checks whether a chat line is the response of the command.
+   * @param timeout
+   *          how long to wait for the response.
+   * @param unit
+   *          the unit of {@code timeout}.
+   * @param callback
+   *          called on {@link HypixelUtils#threadPool} with the response.
+   */
+  public static void request(@Nonnull String command, @Nonnull Predicate<String> responseMatcher,
+      long timeout, @Nonnull TimeUnit unit, @Nonnull IResponseCallback callback) {
+    Objects.requireNonNull(command);
+    Objects.requireNonNull(responseMatcher);
+    Objects.requireNonNull(callback);
+
+    final long now = Clock.get().currentTimeMillis();
+    boolean send = false;
+
+    synchronized (pending) {
+      final String cached = responses.get(command);
+      if (cached != null) {
+        call(callback, cached);
+        return;
+      }
+
+      PendingCommand pc = pending.get(command);
+      if (pc == null) {
+        final PendingCommand newPc = new PendingCommand(responseMatcher);
+        newPc.timeoutTask = Scheduler.schedule(() -> timedOut(command, newPc), timeout, unit);
+        pending.put(command, newPc);
+
+        pc = newPc;
+        send = true;
+
+      } else if (pc.lastSent + RESEND_INTERVAL < now) {
+        // the sent command might have been lost
+        send = true;
+      }
+
+      pc.callbacks.add(callback);
+      if (send) {
+        pc.lastSent = now;
+      }
+    }
+
+    if (send) {
+      HypixelUtils.defaultInstance().chatBuffer.offer(command, Priority.BACKGROUND);
+    }
+  }
+
+  /**
+   * Get the cached response of the command.
+   *
+   * @param command
+   *          the sent command.
+   *
+   * @return
+   *         the response since the last world change or <code>null</code>.
+   */
+  @Nullable
+  public static String getCachedResponse(@Nonnull String command) {
+    synchronized (pending) {
+      return responses.get(command);
+    }
+  }
+
+  /**
+   * Remove all the cached responses. Called automatically when the world
+   * changes.
+   */
+  public static void clearCache() {
+    synchronized (pending) {
+      responses.clear();
+    }
+  }
+
+  /**
+   * Stop waiting for all the sent commands. Their requesters are called with
+   * <code>null</code> at once. Called automatically when the world changes and
+   * when the client leaves the Hypixel network.
+   */
+  public static void cancelAll() {
+    final List<PendingCommand> cancelled;
+    synchronized (pending) {
+      cancelled = new ArrayList<>(pending.values());
+      pending.clear();
+    }
+
+    for (PendingCommand pc : cancelled) {
+      if (pc.timeoutTask != null) {
+        pc.timeoutTask.cancel(false);
+      }
+
+      for (IResponseCallback callback : pc.callbacks) {
+        call(callback, null);
+      }
+    }
+  }
+
+  private static void responseReceived(@Nonnull String line) {
+    final List<IResponseCallback> callbacks = new ArrayList<>();
+
+    synchronized (pending) {
+      if (pending.isEmpty()) {
+        return;
+      }
+
+      Iterator<Map.Entry<String, PendingCommand>> iterator = pending.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, PendingCommand> entry = iterator.next();
+        PendingCommand pc = entry.getValue();
+
+        if (pc.responseMatcher.test(line)) {
+          iterator.remove();
+          responses.put(entry.getKey(), line);
+          callbacks.addAll(pc.callbacks);
+
+          if (pc.timeoutTask != null) {
+            pc.timeoutTask.cancel(false);
+          }
+        }
+      }
+    }
+
+    for (IResponseCallback callback : callbacks) {
+      call(callback, line);
+    }
+  }
+
+  private static void timedOut(@Nonnull String command, @Nonnull PendingCommand pc) {
+    synchronized (pending) {
+      if (!pending.remove(command, pc)) {
+        return;
+      }
+    }
+
+    for (IResponseCallback callback : pc.callbacks) {
+      call(callback, null);
+    }
+  }
+
+  private static void call(@Nonnull IResponseCallback callback, @Nullable String response) {
+    HypixelUtils.threadPool.executeOrRetry(() -> {
+      callback.responseReceived(response);
+    });
+  }
+
+  private static class PendingCommand {
+    @Nonnull
+    final Predicate<String> responseMatcher;
+    @Nonnull
+    final List<IResponseCallback> callbacks = new ArrayList<>();
+    long lastSent;
+    @Nullable
+    ScheduledFuture<?> timeoutTask;
+
+    PendingCommand(@Nonnull Predicate<String> responseMatcher) {
+      this.responseMatcher = responseMatcher;
+    }
+  }
+
+  @IBackend
+  public static class WorldListener {
+    private WorldListener() {}
+
+    // before the other listeners, which may request the commands of the new
+    // world on the same event
+    @IBackend
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onWorldChange(WorldEvent.Load event) {
+      cancelAll();
+      clearCache();
+    }
+  }
+
+  /**
+   * Interface used to receive the response of
+   * {@link CommandBroker#request(String, Predicate, long, TimeUnit, IResponseCallback)}.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface IResponseCallback {
+    /**
+     * callback on a separate thread when the response is received or the
+     * request has timed out.
+     *
+     * @param response
+     *          the response line or <code>null</code> if timed out.
+     */
+    void responseReceived(@Nullable String response);
+  }
+}
@@ -12,8 +12,11 @@ import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IChatWrapper;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle.ILifecycleListener;
 import com.aidn5.hypixelutils.v1.exceptions.NotOnHypixelNetwork;
 import com.aidn5.hypixelutils.v1.tools.TickDelay;
+import com.aidn5.hypixelutils.v1.tools.buffer.ChatBuffer.Priority;
 
 import net.minecraftforge.client.event.ClientChatReceivedEvent;
 import net.minecraftforge.common.MinecraftForge;
@@ -58,6 +61,17 @@ public class MapWrapper {
   @Nonnull
   private final HypixelUtils hypixelUtils;
 
+  @Nonnull
+  private final TickDelay[] delays;
+  // stop waiting when the client leaves hypixel
+  @Nonnull
+  private final ILifecycleListener lifecycleListener = new ILifecycleListener() {
+    @Override
+    public void suspended() {
+      stopListening("", "");
+    }
+  };
+
   /**
    * Constructor.
    *
@@ -77,20 +91,23 @@ public class MapWrapper {
       throw new NotOnHypixelNetwork();
     }
 
-    MinecraftForge.EVENT_BUS.register(this);
     this.callback = callback;
     this.listening = true;
     this.cancel = true;
     this.hypixelUtils = hypixelUtils;
 
     // Send the /map command
-    hypixelUtils.chatBuffer.offer("/whereami");
-    // If a /whereami isn't received within 120 ticks (6 seconds),
-    // don't cancel the message
-    new TickDelay(this::stopCancelling, 120);
-
-    // If a /map isn't received within 1200 ticks (60 seconds), stop listening
-    new TickDelay(() -> stopListening("", ""), 1200);
+    hypixelUtils.chatBuffer.offer("/whereami", Priority.BACKGROUND);
+    this.delays = new TickDelay[] {
+        // If a /whereami isn't received within 120 ticks (6 seconds),
+        // don't cancel the message
+        new TickDelay(this::stopCancelling, 120),
+
+        // If a /map isn't received within 1200 ticks (60 seconds), stop listening
+        new TickDelay(() -> stopListening("", ""), 1200)
+    };
+    MinecraftForge.EVENT_BUS.register(this);
+    HypixelLifecycle.addListener(lifecycleListener);
   }
 
   /**
@@ -119,8 +136,13 @@ public class MapWrapper {
       this.listening = false;
       MinecraftForge.EVENT_BUS.unregister(this);
 
+      HypixelLifecycle.removeListener(lifecycleListener);
+      for (TickDelay delay : delays) {
+        delay.destroy();
+      }
+
       if (callback != null) {
-        hypixelUtils.threadPool.submit(() -> {
+        hypixelUtils.threadPool.executeOrRetry(() -> {
           callback.call(mapName, fullMessage);
         });
 
@@ -1,28 +1,30 @@
 
 package com.aidn5.hypixelutils.v1.chatwrapper;
 
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.aidn5.hypixelutils.v1.HypixelUtils;
-import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IChatWrapper;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle;
+import com.aidn5.hypixelutils.v1.eventslistener.HypixelLifecycle.ILifecycleListener;
 import com.aidn5.hypixelutils.v1.exceptions.NotOnHypixelNetwork;
 import com.aidn5.hypixelutils.v1.serverinstance.ServerType;
 import com.aidn5.hypixelutils.v1.tools.TickDelay;
 
-import net.minecraftforge.client.event.ClientChatReceivedEvent;
-import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-
 /**
  * Class checks to what server is the client is connected to
  * every time the world changes.
  * 
+ * <p>
+ * The command is sent through {@link CommandBroker}. So, the wrappers of all
+ * the mods share one "/whereami" and its response.
+ * 
  * @author aidn5
  * 
  * @version 1.0
@@ -44,14 +46,20 @@ public class WhereamiWrapper {
    * Whether this wrapper should listen for & action on chat messages.
    */
   boolean listening;
-  /**
-   * Whether this wrapper should cancel whereami messages it finds.
-   */
-  boolean cancel;
-
   @Nullable
   private WhereamiCallback callback;
 
+  @Nonnull
+  private final TickDelay[] delays;
+  // stop waiting when the client leaves hypixel
+  @Nonnull
+  private final ILifecycleListener lifecycleListener = new ILifecycleListener() {
+    @Override
+    public void suspended() {
+      stopListening();
+    }
+  };
+
   @Nonnull
   private final HypixelUtils hypixelUtils;
 
@@ -81,12 +89,14 @@ public class WhereamiWrapper {
     }
 
     this.callback = callback;
-
-    MinecraftForge.EVENT_BUS.register(this);
-
-    new TickDelay(this::sendCommand, 15);
-    new TickDelay(this::sendCommand, 60);
-    new TickDelay(this::stopListening, 1200);
+    this.listening = true;
+
+    this.delays = new TickDelay[] {
+        new TickDelay(this::sendCommand, 15),
+        new TickDelay(this::sendCommand, 60),
+        new TickDelay(this::stopListening, 1200)
+    };
+    HypixelLifecycle.addListener(lifecycleListener);
   }
 
   /**
@@ -98,8 +108,7 @@ public class WhereamiWrapper {
   }
 
   /**
-   * Unregister this class from {@link MinecraftForge#EVENT_BUS}
-   * and {@link #callback} if {@link #listening} is still <code>true</code>.
+   * Call {@link #callback} if {@link #listening} is still <code>true</code>.
    * 
    * @param serverType
    *          what type of server is the client connected to.
@@ -115,52 +124,63 @@ public class WhereamiWrapper {
   private synchronized void stopListening(@Nonnull ServerType serverType,
       @Nonnull String serverName, @Nonnull String fullMessage) {
 
-    MinecraftForge.EVENT_BUS.unregister(this);
-
     if (!listening) {
       return;
     }
 
     listening = false;
 
+    HypixelLifecycle.removeListener(lifecycleListener);
+    for (TickDelay delay : delays) {
+      delay.destroy();
+    }
+
     if (callback != null) {
-      hypixelUtils.threadPool.submit(() -> {
+      hypixelUtils.threadPool.executeOrRetry(() -> {
         callback.call(serverType, serverName, fullMessage);
       });
     }
   }
 
   private void sendCommand() {
-    hypixelUtils.chatBuffer.add("/whereami");
-  }
-
-  @IBackend
-  @SubscribeEvent(receiveCanceled = true)
-  public void onPlayerChat(ClientChatReceivedEvent event) {
+    if (!listening) {
+      return;
+    }
     if (!hypixelUtils.onHypixel()) {
       stopListening();
+      return;
     }
 
-    if (event == null || event.type != 0) {
+    CommandBroker.request("/whereami", WhereamiWrapper::isWhereamiResponse,
+        60, TimeUnit.SECONDS, this::responseReceived);
+  }
+
+  private void responseReceived(@Nullable String message) {
+    if (message == null) {
+      stopListening();
       return;
     }
 
-    final String message = event.message.getUnformattedText();
-
     for (ServerType serverType : ServerType.values()) {
       Matcher matcher = serverType.getWhereAmIPattern().matcher(message);
 
       if (matcher.find()) {
-        if (cancel) {
-          event.setCanceled(true);
-        }
-
         stopListening(serverType, matcher.group(1), message);
         return;
       }
     }
   }
 
+  private static boolean isWhereamiResponse(@Nonnull String message) {
+    for (ServerType serverType : ServerType.values()) {
+      if (serverType.getWhereAmIPattern().matcher(message).find()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
   /**
    * The interface to use to receive the callback
    * when the process of {@link WhereamiWrapper} is finished.
@@ -11,6 +11,7 @@ import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
 import com.aidn5.hypixelutils.v1.tools.buffer.ChatBuffer;
+import com.aidn5.hypixelutils.v1.tools.buffer.ChatBuffer.Priority;
 
 import net.minecraft.client.Minecraft;
 
@@ -63,7 +64,7 @@ public class ChatWrapper {
   @IOnlyHypixel
   public static void sendHelloCommand(@Nullable ChatBuffer cb) {
     if (cb != null) {
-      cb.offer("/hello");
+      cb.offer("/hello", Priority.BACKGROUND);
     } else {
       Minecraft.getMinecraft().thePlayer.sendChatMessage("/hello");
     }
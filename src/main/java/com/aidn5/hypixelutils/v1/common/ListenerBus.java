@@ -1,12 +1,17 @@
 
 package com.aidn5.hypixelutils.v1.common;
 
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
+import com.aidn5.hypixelutils.v1.HypixelUtils;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
@@ -14,6 +19,11 @@ import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
  * An event bus manages the events callback system by providing a way to
  * register/unregister new callbacks to an event.
  *
+ * <p>
+ * The callbacks are called on {@link HypixelUtils#threadPool} by
+ * {@link #callListeners(Consumer)}. The callbacks of the same listener never
+ * run at the same time and are called in the order of the events.
+ *
  * @param <T>
  *          the type of the callback
  * 
@@ -26,7 +36,7 @@ import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 @IHypixelUtils
 public class ListenerBus<T extends EventListener> {
   @Nonnull
-  private final Set<T> listeners = new HashSet<T>();
+  private final Map<T, Executor> listeners = new LinkedHashMap<T, Executor>();
 
   /**
    * register a new callback to the event.
@@ -39,8 +49,13 @@ public class ListenerBus<T extends EventListener> {
    * @throws NullPointerException
    *           if listener is <code>null</code>
    */
-  public boolean register(@Nonnull T listener) throws NullPointerException {
-    return listeners.add(Objects.requireNonNull(listener));
+  public synchronized boolean register(@Nonnull T listener) throws NullPointerException {
+    if (listeners.containsKey(Objects.requireNonNull(listener))) {
+      return false;
+    }
+
+    listeners.put(listener, HypixelUtils.threadPool.newSerialExecutor());
+    return true;
   }
 
   /**
@@ -54,8 +69,28 @@ public class ListenerBus<T extends EventListener> {
    * @throws NullPointerException
    *           if listener is <code>null</code>
    */
-  public boolean unregister(@Nonnull T listener) throws NullPointerException {
-    return listeners.remove(Objects.requireNonNull(listener));
+  public synchronized boolean unregister(@Nonnull T listener) throws NullPointerException {
+    return listeners.remove(Objects.requireNonNull(listener)) != null;
+  }
+
+  /**
+   * Call every registered listener on {@link HypixelUtils#threadPool}. Every
+   * listener is called after its previous callbacks have finished. If the pool
+   * is full, the callback is dropped for that listener and the rejection is
+   * printed.
+   * 
+   * @param callback
+   *          the code calling the listener.
+   */
+  protected synchronized void callListeners(@Nonnull Consumer<T> callback) {
+    for (Map.Entry<T, Executor> entry : listeners.entrySet()) {
+      final T listener = entry.getKey();
+      try {
+        entry.getValue().execute(() -> callback.accept(listener));
+      } catch (RejectedExecutionException e) {
+        e.printStackTrace();
+      }
+    }
   }
 
   /**
@@ -68,6 +103,6 @@ public class ListenerBus<T extends EventListener> {
    */
   @Nonnull
   protected Set<T> getListeners() {
-    return listeners;
+    return listeners.keySet();
   }
 }
@@ -6,6 +6,8 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
@@ -158,6 +160,18 @@ public class StatisticsBase {
    */
   private static final long onFailRepeatAfter = TimeUnit.SECONDS.toMillis(30);
 
+  /**
+   * All the registered programs. Used to pause and resume them.
+   * 
+   * @see #setPaused(boolean)
+   */
+  private static final List<StatisticsBase> instances = new ArrayList<>();
+  /**
+   * Whether the schedules are cancelled till {@link #setPaused(boolean)} is
+   * called with <code>false</code>.
+   */
+  private static boolean paused = false;
+
 
   /**
    * extended {@link TimerTask} serves as a holder to the server-informing task.
@@ -166,9 +180,12 @@ public class StatisticsBase {
    * Registered in {@link #threadPool} by
    * {@link #StatisticsBase(String, String, String, String, String, UUID, String, String)}
    * 
+   * <code>null</code> while the statistics are paused.
+   * 
    * @see #threadPool
+   * @see #setPaused(boolean)
    */
-  private final StatisticUpdater fetcher = new StatisticUpdater();
+  private StatisticUpdater fetcher = null;
   /**
    * When should the next schedule run (Unix timestamp).
    * 
@@ -296,7 +313,63 @@ public class StatisticsBase {
 
     logger.config("the current compiled payload for " + appId + " is " + this.payload);
 
-    threadPool.schedule(this.fetcher, delayAtStartup, runEvery);
+    synchronized (instances) {
+      instances.add(this);
+      if (!paused) {
+        schedule();
+      }
+    }
+  }
+
+  /**
+   * Pause or resume the statistics of all the registered programs. While
+   * paused, the schedules are cancelled, so no timer fires. When resumed, the
+   * timer starts again after {@link #delayAtStartup}. The saved next-run time
+   * is kept, so the statistics are only sent once it has passed (if
+   * it has passed while paused, on the first check).
+   * 
+   * @param paused
+   *          <code>true</code> to pause, <code>false</code> to resume.
+   */
+  public static void setPaused(boolean paused) {
+    synchronized (instances) {
+      if (StatisticsBase.paused == paused) {
+        return;
+      }
+      StatisticsBase.paused = paused;
+
+      for (StatisticsBase instance : instances) {
+        if (paused) {
+          instance.fetcher.cancel();
+          instance.fetcher = null;
+        } else {
+          instance.schedule();
+        }
+      }
+
+      if (paused) {
+        threadPool.purge();
+      }
+    }
+  }
+
+  /**
+   * Check whether the statistics are paused.
+   * 
+   * @return <code>true</code> if the statistics are paused.
+   * 
+   * @see #setPaused(boolean)
+   */
+  public static boolean isPaused() {
+    synchronized (instances) {
+      return paused;
+    }
+  }
+
+  // a cancelled TimerTask can not be scheduled again. So, a new one is created
+  private void schedule() {
+    fetcher = new StatisticUpdater();
+    threadPool.schedule(fetcher, delayAtStartup, runEvery);
   }
 
   private static String compilePayload(String... payloads) throws IllegalArgumentException {
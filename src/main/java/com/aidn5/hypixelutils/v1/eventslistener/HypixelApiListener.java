@@ -88,16 +88,12 @@ public final class HypixelApiListener extends ListenerBus<HypixelApiCallback> {
 
       if (hypixelUtils.isDefaultInstance()) {
 
-        hypixelUtils.threadPool.submit(() -> {
+        hypixelUtils.threadPool.tryExecute(() -> {
           MinecraftForge.EVENT_BUS.post(new HypixelApiEvent(api));
         });
       }
 
-      for (HypixelApiCallback listener : getListeners()) {
-        hypixelUtils.threadPool.submit(() -> {
-          listener.onHypixelApiUpdate(api);
-        });
-      }
+      callListeners(listener -> listener.onHypixelApiUpdate(api));
     }
   }
 
@@ -0,0 +1,200 @@
+package com.aidn5.hypixelutils.v1.eventslistener;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.analytics.StatisticsBase;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.common.annotation.IOnlyHypixel;
+import com.aidn5.hypixelutils.v1.tools.ClientExecutor;
+import com.aidn5.hypixelutils.v1.tools.buffer.BufferDriver;
+
+import net.minecraftforge.common.MinecraftForge;
+
+/**
+ * Suspends the background work of the library while the client is not
+ * connected to the Hypixel network and resumes it on reconnecting.
+ *
+ * <p>
+ * Driven by {@link OnHypixelListener} of the default instance. While
+ * suspended:
+ * <ul>
+ * <li>the buffers and the lanes of
+ * {@link com.aidn5.hypixelutils.v1.tools.buffer.ChatBuffer}, which are only
+ * used on Hypixel, are parked. The commands of the user are still sent. See
+ * {@link BufferDriver#setParked(boolean)}.</li>
+ * <li>the {@link IOnlyHypixel} handlers registered by
+ * {@link #registerOnlyHypixel(Object)} are detached from the event bus.</li>
+ * <li>the {@link ILifecycleListener}s are informed to cancel their timers
+ * (e.g. the waiting chat wrappers).</li>
+ * <li>the statistics timers are paused. See
+ * {@link StatisticsBase#setPaused(boolean)}.</li>
+ * </ul>
+ *
+ * <p>
+ * The library starts suspended. The changes are applied on the client thread.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class HypixelLifecycle {
+  @Nonnull
+  private static final Set<Object> handlers = new LinkedHashSet<>();
+  @Nonnull
+  private static final List<ILifecycleListener> listeners = new CopyOnWriteArrayList<>();
+
+  private static boolean suspended = true;
+
+  static {
+    BufferDriver.setParked(true);
+    StatisticsBase.setPaused(true);
+  }
+
+  private HypixelLifecycle() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Register the handler on the event bus only while the client is connected
+   * to the Hypixel network.
+   *
+   * @param handler
+   *          the object to register with
+   *          {@link net.minecraftforge.fml.common.eventhandler.EventBus#register(Object)}.
+   */
+  public static void registerOnlyHypixel(@Nonnull Object handler) {
+    synchronized (handlers) {
+      if (handlers.add(Objects.requireNonNull(handler)) && !suspended) {
+        MinecraftForge.EVENT_BUS.register(handler);
+      }
+    }
+  }
+
+  /**
+   * Unregister a handler registered by {@link #registerOnlyHypixel(Object)}.
+   *
+   * @param handler
+   *          the handler to unregister.
+   */
+  public static void unregisterOnlyHypixel(@Nonnull Object handler) {
+    synchronized (handlers) {
+      if (handlers.remove(Objects.requireNonNull(handler)) && !suspended) {
+        MinecraftForge.EVENT_BUS.unregister(handler);
+      }
+    }
+  }
+
+  /**
+   * Add a listener to be informed when the background work is suspended and
+   * resumed.
+   *
+   * @param listener
+   *          the listener to add.
+   */
+  public static void addListener(@Nonnull ILifecycleListener listener) {
+    listeners.add(Objects.requireNonNull(listener));
+  }
+
+  /**
+   * Remove a listener added by {@link #addListener(ILifecycleListener)}.
+   *
+   * @param listener
+   *          the listener to remove.
+   */
+  public static void removeListener(@Nonnull ILifecycleListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Check whether the background work is suspended.
+   *
+   * @return
+   *         <code>true</code> if the client is not connected to the Hypixel
+   *         network and the background work is suspended.
+   */
+  public static boolean isSuspended() {
+    synchronized (handlers) {
+      return suspended;
+    }
+  }
+
+  /**
+   * Suspend or resume the background work on the client thread.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param onHypixel
+   *          whether the client is connected to the Hypixel network.
+   */
+  @IBackend
+  public static void update(boolean onHypixel) {
+    // the event bus must not be changed from the network thread
+    ClientExecutor.execute(() -> apply(!onHypixel));
+  }
+
+  private static void apply(boolean suspend) {
+    synchronized (handlers) {
+      if (suspended == suspend) {
+        return;
+      }
+      suspended = suspend;
+
+      BufferDriver.setParked(suspend);
+      StatisticsBase.setPaused(suspend);
+
+      for (Object handler : handlers) {
+        if (suspend) {
+          MinecraftForge.EVENT_BUS.unregister(handler);
+        } else {
+          MinecraftForge.EVENT_BUS.register(handler);
+        }
+      }
+    }
+
+    for (ILifecycleListener listener : listeners) {
+      try {
+        if (suspend) {
+          listener.suspended();
+        } else {
+          listener.resumed();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Interface used to be informed when the background work is suspended and
+   * resumed. Called on the client thread.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   *
+   * @see HypixelLifecycle#addListener(ILifecycleListener)
+   */
+  @IHypixelUtils
+  public interface ILifecycleListener {
+    /**
+     * called when the client has left the Hypixel network. The pending timers
+     * should be cancelled.
+     */
+    default void suspended() {}
+
+    /**
+     * called when the client has connected to the Hypixel network again.
+     */
+    default void resumed() {}
+  }
+}
@@ -137,17 +137,14 @@ public final class OnHypixelListener extends ListenerBus<OnHypixelCallback> {
       isOnlineHypixelNetwork = onHypixel;
 
       if (hypixelUtils.isDefaultInstance()) {
+        HypixelLifecycle.update(onHypixel);
 
-        hypixelUtils.threadPool.submit(() -> {
+        hypixelUtils.threadPool.tryExecute(() -> {
           MinecraftForge.EVENT_BUS.post(new OnHypixelEvent(onHypixel, ip, method));
         });
       }
 
-      for (OnHypixelCallback listener : getListeners()) {
-        hypixelUtils.threadPool.submit(() -> {
-          listener.onOnHypixelUpdate(onHypixel, ip, method);
-        });
-      }
+      callListeners(listener -> listener.onOnHypixelUpdate(onHypixel, ip, method));
     }
   }
 
@@ -19,6 +19,7 @@ import com.aidn5.hypixelutils.v1.eventslistener.OnHypixelListener.VerificationMe
 import com.aidn5.hypixelutils.v1.eventslistener.ServerInstanceListener.ServerInstanceCallback;
 import com.aidn5.hypixelutils.v1.serverinstance.ServerInstance;
 import com.aidn5.hypixelutils.v1.serverinstance.ServerType;
+import com.aidn5.hypixelutils.v1.tools.ClientExecutor;
 
 import net.minecraft.client.Minecraft;
 import net.minecraftforge.client.event.ClientChatReceivedEvent;
@@ -57,8 +58,10 @@ public final class ServerInstanceListener extends ListenerBus<ServerInstanceCall
   private final WhereamiCallback callback = new WhereamiCallback() {
     @Override
     public void call(ServerType serverType, String serverName, String fullMessage) {
-      runCallbacks(
-          ServerInstance.createInstance(fullMessage, Minecraft.getMinecraft(), hypixelUtils));
+      // called on the thread pool. The scoreboard is only read on the client
+      // thread
+      ClientExecutor.execute(() -> runCallbacks(
+          ServerInstance.createInstance(fullMessage, Minecraft.getMinecraft(), hypixelUtils)));
     }
   };
 
@@ -72,11 +75,9 @@ public final class ServerInstanceListener extends ListenerBus<ServerInstanceCall
     hypixelUtils.onHypixelListener.register(new OnHypixelCallback() {
       @Override
       public void onOnHypixelUpdate(boolean onHypixel, String ip, VerificationMethod method) {
+        // the chat handler is attached by HypixelLifecycle
         if (onHypixel) {
-          MinecraftForge.EVENT_BUS.register(ServerInstanceListener.this);
           new WhereamiWrapper(callback, hypixelUtils);
-        } else {
-          MinecraftForge.EVENT_BUS.unregister(ServerInstanceListener.this);
         }
       }
     });
@@ -129,16 +130,12 @@ public final class ServerInstanceListener extends ListenerBus<ServerInstanceCall
       this.lastServerInstance = serverInstance;
 
       if (hypixelUtils.isDefaultInstance()) {
-        hypixelUtils.threadPool.submit(() -> {
+        hypixelUtils.threadPool.tryExecute(() -> {
           MinecraftForge.EVENT_BUS.post(new ServerInstanceEvent(serverInstance));
         });
       }
 
-      for (ServerInstanceCallback listener : getListeners()) {
-        hypixelUtils.threadPool.submit(() -> {
-          listener.onServerInstanceUpdate(serverInstance);
-        });
-      }
+      callListeners(listener -> listener.onServerInstanceUpdate(serverInstance));
     }
   }
 
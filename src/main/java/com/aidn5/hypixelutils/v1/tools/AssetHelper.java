@@ -1,13 +1,12 @@
 
 package com.aidn5.hypixelutils.v1.tools;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import javax.annotation.Nonnull;
 
-import org.apache.commons.compress.utils.IOUtils;
-
 import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
@@ -70,7 +69,18 @@ public class AssetHelper {
     InputStream is = null;
     try {
       is = clazz.getClassLoader().getResourceAsStream(path);
-      return IOUtils.toByteArray(is);
+      if (is == null) {
+        throw new IOException("resource not found: " + path);
+      }
+
+      // not commons-compress, which is only shipped with minecraft
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
 
     } catch (Exception e) {
       if (is != null) {
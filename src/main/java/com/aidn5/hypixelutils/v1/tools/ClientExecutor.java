@@ -0,0 +1,220 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.TickScheduler.Phase;
+
+/**
+ * Run tasks on the client thread. Used to touch the Minecraft state (chat,
+ * GUI, player) from other threads.
+ *
+ * <p>
+ * The tasks are run at the start of every tick in the order they were
+ * submitted. Every tick runs tasks only till its budget
+ * ({@link #setBudget(long, TimeUnit)}) is used. The remaining tasks are
+ * carried over to the next tick. So, a burst of tasks is spread over many
+ * frames instead of freezing the game. At least one task runs every tick.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see TickScheduler
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class ClientExecutor {
+  /**
+   * the time in milliseconds every tick can use by default.
+   */
+  public static final long DEFAULT_BUDGET = 2;
+
+  @Nonnull
+  private static final Queue<QueuedTask> tasks = new ConcurrentLinkedQueue<>();
+  @Nonnull
+  private static final AtomicInteger backlog = new AtomicInteger();
+  @Nonnull
+  private static final AtomicLong executed = new AtomicLong();
+  @Nonnull
+  private static final AtomicLong carriedOverTicks = new AtomicLong();
+
+  private static volatile long budgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BUDGET);
+  private static volatile long lastDrainNanos = 0;
+
+  private static boolean started = false;
+
+  private ClientExecutor() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Run the task on the client thread at the start of a next tick.
+   *
+   * @param task
+   *          the task to run.
+   */
+  public static void execute(@Nonnull Runnable task) {
+    start();
+
+    tasks.add(new QueuedTask(Objects.requireNonNull(task)));
+    backlog.incrementAndGet();
+  }
+
+  /**
+   * Get an {@link Executor}, which runs the tasks with
+   * {@link #execute(Runnable)}.
+   *
+   * @return
+   *         an executor running the tasks on the client thread.
+   */
+  @Nonnull
+  public static Executor executor() {
+    return ClientExecutor::execute;
+  }
+
+  /**
+   * Set the time every tick can use to run the tasks.
+   *
+   * @param budget
+   *          the time every tick can use. {@code 0} runs only one task every
+   *          tick.
+   * @param unit
+   *          the unit of {@code budget}.
+   */
+  public static void setBudget(long budget, @Nonnull TimeUnit unit) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget must not be negative");
+    }
+
+    budgetNanos = unit.toNanos(budget);
+  }
+
+  /**
+   * Get the time every tick can use to run the tasks.
+   *
+   * @param unit
+   *          the unit of the returned value.
+   *
+   * @return
+   *         the time every tick can use.
+   */
+  public static long getBudget(@Nonnull TimeUnit unit) {
+    return unit.convert(budgetNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get how many tasks are waiting to run.
+   *
+   * @return
+   *         how many tasks are waiting to run.
+   */
+  public static int getBacklog() {
+    return backlog.get();
+  }
+
+  /**
+   * Get how long the oldest waiting task has been waiting.
+   *
+   * @param unit
+   *          the unit of the returned value.
+   *
+   * @return
+   *         how long the oldest task has been waiting or {@code 0} if there
+   *         is none.
+   */
+  public static long getOldestWait(@Nonnull TimeUnit unit) {
+    final QueuedTask task = tasks.peek();
+    if (task == null) {
+      return 0;
+    }
+
+    return unit.convert(System.nanoTime() - task.submitted, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get how many tasks have run.
+   *
+   * @return
+   *         how many tasks have run.
+   */
+  public static long getExecutedCount() {
+    return executed.get();
+  }
+
+  /**
+   * Get how many ticks have used their whole budget and carried tasks over to
+   * the next tick.
+   *
+   * @return
+   *         how many ticks have carried tasks over.
+   */
+  public static long getCarriedOverTicks() {
+    return carriedOverTicks.get();
+  }
+
+  /**
+   * Get the time the last tick has used to run the tasks.
+   *
+   * @param unit
+   *          the unit of the returned value.
+   *
+   * @return
+   *         the time the last tick has used.
+   */
+  public static long getLastDrainTime(@Nonnull TimeUnit unit) {
+    return unit.convert(lastDrainNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static synchronized void start() {
+    if (!started) {
+      TickScheduler.scheduleRepeating(ClientExecutor::drain, 0, 1, Phase.START);
+      started = true;
+    }
+  }
+
+  private static void drain() {
+    final long start = System.nanoTime();
+    final long deadline = start + budgetNanos;
+
+    QueuedTask task;
+    while ((task = tasks.poll()) != null) {
+      backlog.decrementAndGet();
+
+      try {
+        task.task.run();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      executed.incrementAndGet();
+
+      if (System.nanoTime() - deadline >= 0) {
+        if (!tasks.isEmpty()) {
+          carriedOverTicks.incrementAndGet();
+        }
+        break;
+      }
+    }
+
+    lastDrainNanos = System.nanoTime() - start;
+  }
+
+  private static class QueuedTask {
+    @Nonnull
+    private final Runnable task;
+    private final long submitted = System.nanoTime();
+
+    QueuedTask(@Nonnull Runnable task) {
+      this.task = task;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Source of the time used by the timers of the library ({@link TimeOut},
+ * {@link TickDelay}, {@link Scheduler} and the keep-alive of the
+ * connections).
+ *
+ * <p>
+ * By default the system time is used. A {@link VirtualClock} can be set with
+ * {@link #set(Clock)} to run the timers on a simulated time (e.g. to simulate
+ * hours of traffic in seconds). The clock must be set before any timer is
+ * created.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IHelpTools
+public abstract class Clock {
+  /**
+   * The system time.
+   */
+  @Nonnull
+  public static final Clock SYSTEM = new Clock() {
+    @Override
+    public long currentTimeMillis() {
+      return System.currentTimeMillis();
+    }
+  };
+
+  @Nonnull
+  private static volatile Clock current = SYSTEM;
+
+  /**
+   * Get the clock used by the library.
+   *
+   * @return
+   *         the current clock. {@link #SYSTEM} by default.
+   */
+  @Nonnull
+  public static Clock get() {
+    return current;
+  }
+
+  /**
+   * Set the clock used by the library.
+   *
+   * @param clock
+   *          the clock to use.
+   */
+  public static void set(@Nonnull Clock clock) {
+    current = Objects.requireNonNull(clock);
+  }
+
+  /**
+   * Check whether the library runs on a simulated time.
+   *
+   * @return
+   *         <code>true</code> if the current clock is a {@link VirtualClock}.
+   */
+  public static boolean isVirtual() {
+    return current instanceof VirtualClock;
+  }
+
+  /**
+   * Get the current virtual clock.
+   *
+   * @return
+   *         the current clock if it is a {@link VirtualClock}, otherwise
+   *         <code>null</code>.
+   */
+  static VirtualClock virtual() {
+    final Clock clock = current;
+    return clock instanceof VirtualClock ? (VirtualClock) clock : null;
+  }
+
+  /**
+   * Get the current time.
+   *
+   * @return
+   *         the current time in milliseconds.
+   */
+  public abstract long currentTimeMillis();
+}
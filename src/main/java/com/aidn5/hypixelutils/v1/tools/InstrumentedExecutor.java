@@ -0,0 +1,428 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Bounded thread pool with named daemon threads, which counts what it does.
+ *
+ * <p>
+ * At most {@code maxThreads} threads are created. The other tasks wait in a
+ * queue of {@code queueCapacity}. When the queue is full too, the task is
+ * handed to one extra overflow thread, which has its own queue of
+ * {@code queueCapacity}. The task is never run on the submitting thread, since
+ * it might be the client thread or the {@link Scheduler} thread. So, the pool
+ * is bounded to {@code maxThreads + 1} threads and
+ * {@code 2 * queueCapacity} waiting tasks. When both queues are full, the task
+ * is rejected with {@link RejectedExecutionException}.
+ *
+ * <p>
+ * Tasks, which block for a long time (e.g. waiting for the other end of a
+ * connection), should use their own pool. Otherwise, they hold the threads
+ * and starve the short tasks.
+ *
+ * <p>
+ * Exposed counters:
+ * <ul>
+ * <li>{@link #getQueueDepth()}: the tasks waiting for a thread.</li>
+ * <li>{@link #getActiveCount()}: the threads running a task.</li>
+ * <li>{@link #getAverageLatency(TimeUnit)} and
+ * {@link #getMaxLatency(TimeUnit)}: the time the tasks waited before
+ * running.</li>
+ * <li>{@link #getOverflowCount()}: the tasks run on the overflow thread.</li>
+ * <li>{@link #getRejectedCount()}: the tasks rejected because both queues
+ * were full.</li>
+ * </ul>
+ *
+ * <p>
+ * Use {@link #newSerialExecutor()} to run tasks one after another in the
+ * order of submitting, while still sharing the threads of this pool.
+ *
+ * <p>
+ * <b>Rejected tasks:</b> the library submits its tasks with one of two
+ * policies instead of letting {@link RejectedExecutionException} reach the
+ * caller:
+ * <ul>
+ * <li>{@link #executeOrRetry(Runnable)}: for tasks, which must not be lost
+ * (e.g. the response to a request or a received message). A rejected task is
+ * submitted again after {@link #RETRY_DELAY} milliseconds on
+ * {@link Scheduler} till the pool accepts it.</li>
+ * <li>{@link #tryExecute(Runnable)}: for notifications, which may be lost
+ * (e.g. progress or events). A rejected task is logged and dropped.</li>
+ * </ul>
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+  /**
+   * how long {@link #executeOrRetry(Runnable)} waits before submitting a
+   * rejected task again in milliseconds.
+   */
+  public static final long RETRY_DELAY = 100;
+
+  @Nonnull
+  private final String name;
+
+  private final AtomicLong latencyTotal = new AtomicLong();
+  private final AtomicLong latencyMax = new AtomicLong();
+  private final AtomicLong latencyCount = new AtomicLong();
+  private final AtomicLong overflowed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+
+  @Nonnull
+  private final BlockingQueue<Runnable> overflow;
+  @Nonnull
+  private final AtomicBoolean overflowRunning = new AtomicBoolean();
+
+  /**
+   * Constructor.
+   *
+   * @param name
+   *          the name of the pool. The threads are named
+   *          "HypixelUtils-{name}-{number}".
+   * @param maxThreads
+   *          the most threads running at the same time.
+   * @param queueCapacity
+   *          the most tasks waiting for a thread. The overflow thread has
+   *          a queue of the same capacity.
+   */
+  public InstrumentedExecutor(@Nonnull String name, int maxThreads, int queueCapacity) {
+    super(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), newThreadFactory(name));
+
+    this.name = name;
+    this.overflow = new ArrayBlockingQueue<>(queueCapacity);
+    allowCoreThreadTimeOut(true);
+    setRejectedExecutionHandler((r, executor) -> overflow(r));
+  }
+
+  @Nonnull
+  private static ThreadFactory newThreadFactory(@Nonnull String name) {
+    final AtomicInteger counter = new AtomicInteger();
+    return r -> {
+      Thread th = new Thread(r, "HypixelUtils-" + name + "-" + counter.incrementAndGet());
+      th.setDaemon(true);
+      return th;
+    };
+  }
+
+  @Override
+  public void execute(@Nonnull Runnable command) {
+    super.execute(new TimedTask(Objects.requireNonNull(command)));
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    recordLatency(r);
+  }
+
+  private void overflow(@Nonnull Runnable r) {
+    if (isShutdown() || !overflow.offer(r)) {
+      rejected.incrementAndGet();
+      throw new RejectedExecutionException("the pool " + name + " is full");
+    }
+    overflowed.incrementAndGet();
+
+    if (overflowRunning.compareAndSet(false, true)) {
+      Thread th = new Thread(this::runOverflow, "HypixelUtils-" + name + "-overflow");
+      th.setDaemon(true);
+      th.start();
+    }
+  }
+
+  private void runOverflow() {
+    while (true) {
+      Runnable task;
+      try {
+        task = overflow.poll(60, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        task = null;
+      }
+
+      if (task == null) {
+        overflowRunning.set(false);
+        // a task might have been queued before the flag was cleared
+        if (overflow.isEmpty() || !overflowRunning.compareAndSet(false, true)) {
+          return;
+        }
+        continue;
+      }
+
+      recordLatency(task);
+      try {
+        task.run();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private void recordLatency(@Nonnull Runnable r) {
+    if (r instanceof TimedTask) {
+      final long latency = System.nanoTime() - ((TimedTask) r).submitted;
+      latencyTotal.addAndGet(latency);
+      latencyCount.incrementAndGet();
+
+      long max;
+      while ((max = latencyMax.get()) < latency) {
+        if (latencyMax.compareAndSet(max, latency)) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Run the task on this pool. If the pool is full, the task is submitted
+   * again after {@link #RETRY_DELAY} milliseconds till the pool accepts it.
+   * The task is never run on the calling thread. Used for tasks, which must
+   * not be lost. The exceptions thrown by the task are printed.
+   *
+   * @param task
+   *          the task to run.
+   */
+  public void executeOrRetry(@Nonnull Runnable task) {
+    Objects.requireNonNull(task);
+
+    try {
+      execute(() -> runLogged(task));
+    } catch (RejectedExecutionException e) {
+      if (isShutdown()) {
+        throw e;
+      }
+      Scheduler.schedule(() -> executeOrRetry(task), RETRY_DELAY, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Run the task on this pool. If the pool is full, the task is dropped and
+   * the rejection is printed. Used for notifications, which may be lost. The
+   * exceptions thrown by the task are printed.
+   *
+   * @param task
+   *          the task to run.
+   *
+   * @return
+   *         <code>true</code> if the task is accepted, <code>false</code> if it
+   *         has been dropped.
+   */
+  public boolean tryExecute(@Nonnull Runnable task) {
+    Objects.requireNonNull(task);
+
+    try {
+      execute(() -> runLogged(task));
+      return true;
+    } catch (RejectedExecutionException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  private static void runLogged(@Nonnull Runnable task) {
+    try {
+      task.run();
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Create an executor, which runs its tasks on this pool one after another in
+   * the order they were submitted. A task starts only after the previous one
+   * has finished.
+   *
+   * <p>
+   * If the pool rejects to start running the tasks, the submitted task is
+   * dropped and {@link RejectedExecutionException} is thrown. The serial
+   * executor can still be used afterwards.
+   *
+   * @return
+   *         a new serial executor.
+   */
+  @Nonnull
+  public Executor newSerialExecutor() {
+    return new SerialExecutor(this);
+  }
+
+  /**
+   * Get the name of the pool.
+   *
+   * @return
+   *         the name of the pool.
+   */
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get how many tasks are waiting for a thread.
+   *
+   * @return
+   *         how many tasks are waiting for a thread.
+   */
+  public int getQueueDepth() {
+    return getQueue().size();
+  }
+
+  /**
+   * Get the average time the tasks waited before running.
+   *
+   * @param unit
+   *          the unit of the returned value.
+   *
+   * @return
+   *         the average time the tasks waited before running.
+   */
+  public long getAverageLatency(@Nonnull TimeUnit unit) {
+    final long count = latencyCount.get();
+    if (count == 0) {
+      return 0;
+    }
+
+    return unit.convert(latencyTotal.get() / count, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get the longest time a task waited before running.
+   *
+   * @param unit
+   *          the unit of the returned value.
+   *
+   * @return
+   *         the longest time a task waited before running.
+   */
+  public long getMaxLatency(@Nonnull TimeUnit unit) {
+    return unit.convert(latencyMax.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get how many tasks were run on the overflow thread because the queue was
+   * full.
+   *
+   * @return
+   *         how many tasks were run on the overflow thread.
+   */
+  public long getOverflowCount() {
+    return overflowed.get();
+  }
+
+  /**
+   * Get how many tasks were rejected because the queue and the overflow queue
+   * were full.
+   *
+   * @return
+   *         how many tasks were rejected.
+   */
+  public long getRejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * Reset the latency, the overflow and the rejected counters.
+   */
+  public void resetCounters() {
+    latencyTotal.set(0);
+    latencyMax.set(0);
+    latencyCount.set(0);
+    overflowed.set(0);
+    rejected.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "InstrumentedExecutor{" + name + ", queued=" + getQueueDepth()
+        + ", active=" + getActiveCount() + ", overflow=" + getOverflowCount()
+        + ", rejected=" + getRejectedCount() + "}";
+  }
+
+  private static class TimedTask implements Runnable {
+    @Nonnull
+    private final Runnable task;
+    private final long submitted = System.nanoTime();
+
+    TimedTask(@Nonnull Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      task.run();
+    }
+  }
+
+  private static class SerialExecutor implements Executor {
+    @Nonnull
+    private final Executor executor;
+    @Nonnull
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running = false;
+
+    SerialExecutor(@Nonnull Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public void execute(@Nonnull Runnable command) {
+      Objects.requireNonNull(command);
+
+      synchronized (tasks) {
+        tasks.addLast(command);
+        if (running) {
+          return;
+        }
+        running = true;
+      }
+
+      try {
+        executor.execute(this::runTasks);
+
+      } catch (RejectedExecutionException e) {
+        // nothing is draining the tasks. the tasks queued by other threads
+        // meanwhile run with the next accepted task
+        synchronized (tasks) {
+          tasks.removeLastOccurrence(command);
+          running = false;
+        }
+        throw e;
+      }
+    }
+
+    private void runTasks() {
+      while (true) {
+        final Runnable task;
+        synchronized (tasks) {
+          task = tasks.pollFirst();
+          if (task == null) {
+            running = false;
+            return;
+          }
+        }
+
+        try {
+          task.run();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+}
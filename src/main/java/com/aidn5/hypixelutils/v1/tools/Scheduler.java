@@ -0,0 +1,93 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Shared scheduler for delayed tasks (like timeouts). Only one daemon thread is
+ * used for the whole library instead of creating a thread for every delay.
+ *
+ * <p>
+ * The scheduled tasks must be short. Blocking tasks should be submitted to
+ * {@link ThreadPools#threadPool} from the scheduled task.
+ *
+ * <p>
+ * If a {@link VirtualClock} is set with {@link Clock#set(Clock)}, the tasks
+ * are scheduled on it instead and run when the clock is advanced.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class Scheduler {
+  @Nonnull
+  private static final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(r -> {
+        Thread th = new Thread(r, "HypixelUtils-Scheduler");
+        th.setDaemon(true);
+        return th;
+      });
+
+  private Scheduler() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Run the task once after the delay.
+   *
+   * @param task
+   *          the task to run.
+   * @param delay
+   *          the delay before running the task.
+   * @param unit
+   *          the unit of {@code delay}.
+   *
+   * @return
+   *         a future, which can be used to cancel the task.
+   */
+  @Nonnull
+  public static ScheduledFuture<?> schedule(@Nonnull Runnable task, long delay,
+      @Nonnull TimeUnit unit) {
+    final VirtualClock clock = Clock.virtual();
+    if (clock != null) {
+      return clock.schedule(task, unit.toMillis(delay));
+    }
+
+    return scheduler.schedule(task, delay, unit);
+  }
+
+  /**
+   * Run the task repeatedly with the given delay between the runs.
+   *
+   * @param task
+   *          the task to run.
+   * @param initialDelay
+   *          the delay before running the task for the first time.
+   * @param delay
+   *          the delay between the end of a run and the start of the next one.
+   * @param unit
+   *          the unit of {@code initialDelay} and {@code delay}.
+   *
+   * @return
+   *         a future, which can be used to cancel the task.
+   */
+  @Nonnull
+  public static ScheduledFuture<?> scheduleWithFixedDelay(@Nonnull Runnable task,
+      long initialDelay, long delay, @Nonnull TimeUnit unit) {
+    final VirtualClock clock = Clock.virtual();
+    if (clock != null) {
+      return clock.scheduleWithFixedDelay(task, unit.toMillis(initialDelay), unit.toMillis(delay));
+    }
+
+    return scheduler.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+  }
+}
@@ -0,0 +1,95 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * The thread pools shared by the whole library.
+ *
+ * <p>
+ * Kept apart from {@link com.aidn5.hypixelutils.v1.HypixelUtils}, which
+ * creates the default instance with the Minecraft client on loading. So, the
+ * code, which runs without Minecraft (e.g. ChatSocket on
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.transport.HeadlessChatTransport}),
+ * can use the pools in a plain JVM. {@link com.aidn5.hypixelutils.v1.HypixelUtils}
+ * exports the same pools.
+ *
+ * <p>
+ * The pools are bounded. Submit with
+ * {@link InstrumentedExecutor#executeOrRetry(Runnable)} or
+ * {@link InstrumentedExecutor#tryExecute(Runnable)}, so a full pool does not
+ * throw into the caller.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see InstrumentedExecutor
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class ThreadPools {
+  /**
+   * the most threads of {@link #threadPool}.
+   */
+  public static final int THREAD_POOL_SIZE = 8;
+  /**
+   * the most tasks waiting in {@link #threadPool}.
+   */
+  public static final int THREAD_POOL_QUEUE = 1024;
+
+  /**
+   * Thread pool for short blocking code. Bounded to {@link #THREAD_POOL_SIZE}
+   * threads and {@link #THREAD_POOL_QUEUE} waiting tasks, plus the overflow
+   * thread of {@link InstrumentedExecutor}. Code, which blocks for a long time,
+   * should use {@link #blockingPool}.
+   */
+  @Nonnull
+  public static final InstrumentedExecutor threadPool = new InstrumentedExecutor(
+      "Worker", THREAD_POOL_SIZE, THREAD_POOL_QUEUE);
+
+  /**
+   * the most threads of {@link #blockingPool}.
+   */
+  public static final int BLOCKING_POOL_SIZE = 4;
+  /**
+   * the most tasks waiting in {@link #blockingPool}.
+   */
+  public static final int BLOCKING_POOL_QUEUE = 256;
+
+  /**
+   * Thread pool for code, which blocks for a long time (e.g. sending a blob).
+   * Kept apart from {@link #threadPool}, so such code does not starve the
+   * short tasks. Bounded to {@link #BLOCKING_POOL_SIZE} threads and
+   * {@link #BLOCKING_POOL_QUEUE} waiting tasks.
+   */
+  @Nonnull
+  public static final InstrumentedExecutor blockingPool = new InstrumentedExecutor(
+      "Blocking", BLOCKING_POOL_SIZE, BLOCKING_POOL_QUEUE);
+
+  /**
+   * the most threads of {@link #controlPool}.
+   */
+  public static final int CONTROL_POOL_SIZE = 2;
+  /**
+   * the most tasks waiting in {@link #controlPool}.
+   */
+  public static final int CONTROL_POOL_QUEUE = 256;
+
+  /**
+   * Thread pool for short control code, which must run on time (e.g. the
+   * listeners of {@link TimeOut} or accepting a connection). Kept apart from
+   * {@link #blockingPool}, so long transfers do not delay the timeouts.
+   * Bounded to {@link #CONTROL_POOL_SIZE} threads and
+   * {@link #CONTROL_POOL_QUEUE} waiting tasks.
+   */
+  @Nonnull
+  public static final InstrumentedExecutor controlPool = new InstrumentedExecutor(
+      "Control", CONTROL_POOL_SIZE, CONTROL_POOL_QUEUE);
+
+  private ThreadPools() {
+    throw new AssertionError();
+  }
+}
@@ -16,20 +16,19 @@
 
 package com.aidn5.hypixelutils.v1.tools;
 
-import java.util.Objects;
-
 import javax.annotation.Nonnull;
 
 import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
-
-import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-import net.minecraftforge.fml.common.gameevent.TickEvent;
+import com.aidn5.hypixelutils.v1.tools.TickScheduler.Phase;
+import com.aidn5.hypixelutils.v1.tools.TickScheduler.TickTask;
 
 /**
  * Class to delay code by a certain number of game ticks.
  * <p>
+ * The code is scheduled on {@link TickScheduler}. This class is only a handle,
+ * which can cancel it.
+ * <p>
  * <b>Note:</b> This class is licensed under the Apache License 2.0
  * 
  * 
@@ -56,10 +55,23 @@ public class TickDelay {
    * @since 1.0
    */
   public TickDelay(@Nonnull Runnable fn, int ticks) {
-    this.fn = Objects.requireNonNull(fn);
-    this.delay = ticks;
+    this(fn, ticks, Phase.END);
+  }
 
-    MinecraftForge.EVENT_BUS.register(this);
+  /**
+   * Constructor.
+   * 
+   * @param fn
+   *          Code to be delayed
+   * @param ticks
+   *          How many ticks to delay it
+   * @param phase
+   *          the phase of the tick to run the code in
+   * 
+   * @since 1.0
+   */
+  public TickDelay(@Nonnull Runnable fn, int ticks, @Nonnull Phase phase) {
+    this.task = TickScheduler.schedule(fn, ticks, phase);
   }
 
   /**
@@ -75,30 +87,17 @@ public class TickDelay {
   }
 
   @Nonnull
-  private Runnable fn;
-
-  private int delay;
+  private final TickTask task;
 
   /**
-   * reduce {@link #delay} by 1 and
-   * check whether the ticks are finished
-   * and the {@link #fn} should be executed.
+   * Check whether the code has been executed or cancelled.
    * 
-   * @param event
-   *          the received event
+   * @return <code>true</code> if the code will not be executed anymore
+   * 
+   * @since 1.0
    */
-  @SubscribeEvent
-  public void onTick(TickEvent.ClientTickEvent event) {
-    // Delay expired
-    if (delay < 1) {
-      run();
-      destroy();
-    }
-    delay--;
-  }
-
-  private void run() {
-    fn.run();
+  public boolean isDone() {
+    return task.isDone();
   }
 
   /**
@@ -107,6 +106,6 @@ public class TickDelay {
    * @since 1.0
    */
   public void destroy() {
-    MinecraftForge.EVENT_BUS.unregister(this);
+    task.cancel();
   }
 }
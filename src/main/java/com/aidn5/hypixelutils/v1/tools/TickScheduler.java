@@ -0,0 +1,386 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * Shared scheduler for tasks delayed by game ticks. Only one listener is
+ * registered for the whole library instead of registering every delay on the
+ * event bus.
+ *
+ * <p>
+ * Every {@link Phase} has its own timing wheel of {@link #WHEEL_SIZE} slots.
+ * Scheduling and cancelling a task take a constant time and a tick only
+ * visits the tasks of its slot.
+ *
+ * <p>
+ * The tasks run on the client thread and must be short. Blocking tasks should
+ * be submitted to {@link com.aidn5.hypixelutils.v1.HypixelUtils#threadPool}.
+ *
+ * <p>
+ * If a {@link VirtualClock} is set with {@link Clock#set(Clock)}, the ticks
+ * come from it instead of the game.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see TickDelay
+ */
+@IHypixelUtils
+@IHelpTools(onlyStatic = true)
+public class TickScheduler {
+  /**
+   * the slots of every timing wheel. Delays longer than it take more rounds.
+   */
+  public static final int WHEEL_SIZE = 256;
+
+  @Nonnull
+  private static final Wheel startWheel = new Wheel();
+  @Nonnull
+  private static final Wheel endWheel = new Wheel();
+
+  private static boolean forgeRegistered = false;
+  @Nullable
+  private static VirtualClock attachedClock = null;
+  @Nonnull
+  private static final Runnable virtualTick = () -> {
+    tick(Phase.START);
+    tick(Phase.END);
+  };
+
+  private TickScheduler() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Run the task once at the end of a tick after the delay.
+   *
+   * @param task
+   *          the task to run.
+   * @param ticks
+   *          how many ticks to wait. {@code 0} runs it in the next tick.
+   *
+   * @return
+   *         a handle, which can be used to cancel the task.
+   */
+  @Nonnull
+  public static TickTask schedule(@Nonnull Runnable task, int ticks) {
+    return schedule(task, ticks, Phase.END);
+  }
+
+  /**
+   * Run the task once after the delay.
+   *
+   * @param task
+   *          the task to run.
+   * @param ticks
+   *          how many ticks to wait. {@code 0} runs it in the next tick.
+   * @param phase
+   *          the phase of the tick to run the task in.
+   *
+   * @return
+   *         a handle, which can be used to cancel the task.
+   */
+  @Nonnull
+  public static TickTask schedule(@Nonnull Runnable task, int ticks, @Nonnull Phase phase) {
+    return add(new TickTask(task, 0, phase), ticks);
+  }
+
+  /**
+   * Run the task repeatedly till it is cancelled.
+   *
+   * @param task
+   *          the task to run.
+   * @param initialDelay
+   *          how many ticks to wait before the first run.
+   * @param period
+   *          how many ticks between every two runs. At least {@code 1}.
+   * @param phase
+   *          the phase of the tick to run the task in.
+   *
+   * @return
+   *         a handle, which can be used to cancel the task.
+   */
+  @Nonnull
+  public static TickTask scheduleRepeating(@Nonnull Runnable task, int initialDelay, int period,
+      @Nonnull Phase phase) {
+    if (period < 1) {
+      throw new IllegalArgumentException("period must be at least 1");
+    }
+
+    return add(new TickTask(task, period, phase), initialDelay);
+  }
+
+  /**
+   * Get how many tasks are waiting in the phase.
+   *
+   * @param phase
+   *          the phase to check.
+   *
+   * @return
+   *         how many tasks are waiting.
+   */
+  public static int getPendingTasks(@Nonnull Phase phase) {
+    final Wheel wheel = wheel(phase);
+    synchronized (wheel) {
+      return wheel.size;
+    }
+  }
+
+  @Nonnull
+  private static TickTask add(@Nonnull TickTask task, int ticks) {
+    attach();
+
+    final Wheel wheel = wheel(task.phase);
+    synchronized (wheel) {
+      wheel.insert(task, ticks);
+    }
+    return task;
+  }
+
+  private static synchronized void attach() {
+    final VirtualClock clock = Clock.virtual();
+    if (clock != null) {
+      if (clock != attachedClock) {
+        if (attachedClock != null) {
+          attachedClock.removeTickListener(virtualTick);
+        }
+        clock.addTickListener(virtualTick);
+        attachedClock = clock;
+      }
+
+    } else if (!forgeRegistered) {
+      MinecraftForge.EVENT_BUS.register(new TickListener());
+      forgeRegistered = true;
+    }
+  }
+
+  @Nonnull
+  private static Wheel wheel(@Nonnull Phase phase) {
+    return phase == Phase.START ? startWheel : endWheel;
+  }
+
+  private static void tick(@Nonnull Phase phase) {
+    final Wheel wheel = wheel(phase);
+
+    final List<TickTask> due;
+    synchronized (wheel) {
+      due = wheel.advance();
+    }
+
+    for (TickTask task : due) {
+      // cancelled by an earlier task of this tick or by another thread
+      if (task.cancelled) {
+        continue;
+      }
+
+      try {
+        task.task.run();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+
+      synchronized (wheel) {
+        if (task.period > 0 && !task.cancelled) {
+          wheel.insert(task, task.period - 1);
+        } else {
+          task.done = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * The phase of a game tick.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  public enum Phase {
+    /**
+     * before the game has processed the tick.
+     */
+    START,
+    /**
+     * after the game has processed the tick.
+     */
+    END
+  }
+
+  /**
+   * A task scheduled on {@link TickScheduler}.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  public static final class TickTask {
+    @Nonnull
+    private final Runnable task;
+    private final int period;
+    @Nonnull
+    private final Phase phase;
+
+    // the wheel links. only changed while holding the lock of the wheel
+    private TickTask prev;
+    private TickTask next;
+    private int rounds;
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+
+    private TickTask(@Nonnull Runnable task, int period, @Nonnull Phase phase) {
+      this.task = Objects.requireNonNull(task);
+      this.period = period;
+      this.phase = Objects.requireNonNull(phase);
+    }
+
+    /**
+     * Cancel the task. A running task finishes its current run.
+     *
+     * @return
+     *         <code>true</code> if the task will not run anymore because of
+     *         this call, <code>false</code> if it was already done or
+     *         cancelled.
+     */
+    public boolean cancel() {
+      final Wheel wheel = wheel(phase);
+      synchronized (wheel) {
+        if (cancelled || done) {
+          return false;
+        }
+
+        cancelled = true;
+        done = true;
+        wheel.unlink(this);
+        return true;
+      }
+    }
+
+    /**
+     * Check whether the task has been cancelled.
+     *
+     * @return
+     *         <code>true</code> if the task has been cancelled.
+     */
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * Check whether the task will not run anymore.
+     *
+     * @return
+     *         <code>true</code> if the task has run (for one-shot tasks) or
+     *         has been cancelled.
+     */
+    public boolean isDone() {
+      return done;
+    }
+
+    /**
+     * Get the phase the task runs in.
+     *
+     * @return
+     *         the phase the task runs in.
+     */
+    @Nonnull
+    public Phase getPhase() {
+      return phase;
+    }
+  }
+
+  private static class Wheel {
+    // every slot is the head of a circular list
+    @Nonnull
+    private final TickTask[] slots = new TickTask[WHEEL_SIZE];
+    private int cursor = 0;
+    private int size = 0;
+
+    Wheel() {
+      for (int i = 0; i < WHEEL_SIZE; i++) {
+        final TickTask head = new TickTask(() -> {}, 0, Phase.END);
+        head.prev = head;
+        head.next = head;
+        slots[i] = head;
+      }
+    }
+
+    void insert(@Nonnull TickTask task, int ticks) {
+      final int delay = Math.max(1, ticks + 1);
+      final TickTask head = slots[(cursor + delay) & (WHEEL_SIZE - 1)];
+
+      task.rounds = (delay - 1) / WHEEL_SIZE;
+      task.prev = head.prev;
+      task.next = head;
+      head.prev.next = task;
+      head.prev = task;
+      size++;
+    }
+
+    void unlink(@Nonnull TickTask task) {
+      if (task.next == null) {
+        return;
+      }
+
+      task.prev.next = task.next;
+      task.next.prev = task.prev;
+      task.prev = null;
+      task.next = null;
+      size--;
+    }
+
+    @Nonnull
+    List<TickTask> advance() {
+      cursor = (cursor + 1) & (WHEEL_SIZE - 1);
+      final TickTask head = slots[cursor];
+
+      List<TickTask> due = null;
+      TickTask task = head.next;
+      while (task != head) {
+        final TickTask next = task.next;
+
+        if (task.rounds > 0) {
+          task.rounds--;
+        } else {
+          unlink(task);
+          if (due == null) {
+            due = new ArrayList<>();
+          }
+          due.add(task);
+        }
+
+        task = next;
+      }
+
+      return due == null ? Collections.emptyList() : due;
+    }
+  }
+
+  @IBackend
+  public static class TickListener {
+    private TickListener() {}
+
+    @IBackend
+    @SubscribeEvent
+    public void onTick(TickEvent.ClientTickEvent event) {
+      tick(event.phase == TickEvent.Phase.START ? Phase.START : Phase.END);
+    }
+  }
+}
@@ -10,9 +10,15 @@ import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
 /**
- * Class help with time-out events by creating a new thread and start waiting.
- * the listener will be called, if {@link #tick()} is not called in the given
- * timeout time.
+ * Class help with time-out events. The listener will be called, if
+ * {@link #tick()} is not called in the given timeout time.
+ * 
+ * <p>
+ * The time is checked on {@link Scheduler} against {@link Clock#get()}, so no
+ * thread is created for every timeout. The listener itself is called on
+ * {@link ThreadPools#controlPool} (or directly when a {@link VirtualClock} is
+ * used), so long transfers on {@link ThreadPools#blockingPool} do not delay
+ * it.
  * 
  * @author aidn5
  * 
@@ -26,10 +32,10 @@ public class TimeOut {
   private Runnable timeOutListener;
 
   private long timeOut = TimeUnit.SECONDS.toMillis(30);
-  private long clock = System.currentTimeMillis();
+  private long clock = Clock.get().currentTimeMillis();
   private boolean isTimedOut = false;
 
-  private boolean threadStarted = false;
+  private boolean started = false;
 
   /**
    * Constructor.
@@ -112,46 +118,44 @@ public class TimeOut {
    * Do tick. So, the timeout is reset and start over to count.
    */
   public void tick() {
-    clock = System.currentTimeMillis();
+    clock = Clock.get().currentTimeMillis();
   }
 
   private void start() {
-    if (threadStarted) {
+    if (started) {
       return;
     }
-    threadStarted = true;
-
-    Thread th = new Thread(() -> {
-      clock = System.currentTimeMillis();
-      while (true) {
-        if (clock + timeOut < System.currentTimeMillis()) {
-
-          isTimedOut = true;
-          if (timeOutListener != null) {
-            timeOutListener.run();
-          }
-          return;
-        }
-
-        try {
-          Thread.sleep(1);
-        } catch (InterruptedException e) {
-          e.printStackTrace();
-
-          // we need to inform the listener. Otherwise the listener will never be called
-          // and there might be an infinite loop
-          isTimedOut = true;
-          if (timeOutListener != null) {
-            timeOutListener.run();
-          }
-
-          Thread.currentThread().interrupt();
-          return;
-        }
-      }
-    });
-
-    th.setDaemon(true);
-    th.start();
+    started = true;
+
+    clock = Clock.get().currentTimeMillis();
+    scheduleCheck();
+  }
+
+  private void scheduleCheck() {
+    final long delay = clock + timeOut - Clock.get().currentTimeMillis();
+
+    // +1, since it times out only after the timeout has fully passed
+    Scheduler.schedule(this::check, Math.max(0, delay) + 1, TimeUnit.MILLISECONDS);
+  }
+
+  private void check() {
+    if (clock + timeOut >= Clock.get().currentTimeMillis()) {
+      // ticked in the meantime or the timeout has been changed
+      scheduleCheck();
+      return;
+    }
+
+    isTimedOut = true;
+
+    final Runnable listener = timeOutListener;
+    if (listener == null) {
+      return;
+    }
+
+    if (Clock.virtual() != null) {
+      listener.run();
+    } else {
+      ThreadPools.controlPool.executeOrRetry(listener);
+    }
   }
 }
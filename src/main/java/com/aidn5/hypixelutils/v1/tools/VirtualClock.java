@@ -0,0 +1,277 @@
+package com.aidn5.hypixelutils.v1.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * A clock, which only moves when {@link #advance(long, TimeUnit)} is called.
+ *
+ * <p>
+ * The scheduled tasks and the game ticks (every {@link #TICK_MILLIS}) run on
+ * the thread calling {@link #advance(long, TimeUnit)} in the order of their
+ * time. Tasks with the same time run in the order they are scheduled. So, the
+ * same calls always give the same result.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see Clock#set(Clock)
+ */
+@IHypixelUtils
+@IHelpTools
+public class VirtualClock extends Clock {
+  /**
+   * the duration of one game tick in milliseconds.
+   */
+  public static final long TICK_MILLIS = 50;
+
+  @Nonnull
+  private final PriorityQueue<VirtualTask> tasks = new PriorityQueue<>();
+  @Nonnull
+  private final List<Runnable> tickListeners = new ArrayList<>();
+
+  private long time;
+  private long nextTick;
+  private long sequence = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param startTime
+   *          the time to start from in milliseconds.
+   */
+  public VirtualClock(long startTime) {
+    this.time = startTime;
+    this.nextTick = startTime + TICK_MILLIS;
+  }
+
+  @Override
+  public synchronized long currentTimeMillis() {
+    return time;
+  }
+
+  /**
+   * Move the clock forward and run all the tasks and ticks, which are due in
+   * this period.
+   *
+   * @param duration
+   *          how long to move forward.
+   * @param unit
+   *          the unit of {@code duration}.
+   */
+  public void advance(long duration, @Nonnull TimeUnit unit) {
+    final long target;
+    synchronized (this) {
+      target = time + unit.toMillis(duration);
+    }
+
+    while (true) {
+      final Runnable next;
+
+      synchronized (this) {
+        final VirtualTask task = tasks.peek();
+
+        if (task != null && task.time <= target && task.time < nextTick) {
+          tasks.poll();
+          time = Math.max(time, task.time);
+          next = task;
+
+        } else if (nextTick <= target) {
+          time = nextTick;
+          nextTick += TICK_MILLIS;
+          next = this::runTick;
+
+        } else {
+          time = target;
+          return;
+        }
+      }
+
+      next.run();
+    }
+  }
+
+  /**
+   * Get how many tasks are waiting.
+   *
+   * @return
+   *         how many tasks are waiting.
+   */
+  public synchronized int getPendingTasks() {
+    return tasks.size();
+  }
+
+  /**
+   * Add a listener to be called every game tick.
+   *
+   * @param listener
+   *          the listener to call.
+   */
+  public synchronized void addTickListener(@Nonnull Runnable listener) {
+    tickListeners.add(listener);
+  }
+
+  /**
+   * Remove a listener added by {@link #addTickListener(Runnable)}.
+   *
+   * @param listener
+   *          the listener to remove.
+   */
+  public synchronized void removeTickListener(@Nonnull Runnable listener) {
+    tickListeners.remove(listener);
+  }
+
+  /**
+   * Run the task once after the delay.
+   *
+   * @param task
+   *          the task to run.
+   * @param delay
+   *          the delay in milliseconds.
+   *
+   * @return
+   *         a future, which can be used to cancel the task.
+   */
+  @Nonnull
+  public synchronized ScheduledFuture<?> schedule(@Nonnull Runnable task, long delay) {
+    VirtualTask vt = new VirtualTask(task, time + Math.max(0, delay), -1, sequence++);
+    tasks.add(vt);
+    return vt;
+  }
+
+  /**
+   * Run the task repeatedly with the given delay between the runs.
+   *
+   * @param task
+   *          the task to run.
+   * @param initialDelay
+   *          the delay before the first run in milliseconds.
+   * @param delay
+   *          the delay between the runs in milliseconds.
+   *
+   * @return
+   *         a future, which can be used to cancel the task.
+   */
+  @Nonnull
+  public synchronized ScheduledFuture<?> scheduleWithFixedDelay(@Nonnull Runnable task,
+      long initialDelay, long delay) {
+    VirtualTask vt = new VirtualTask(task, time + Math.max(0, initialDelay),
+        Math.max(1, delay), sequence++);
+    tasks.add(vt);
+    return vt;
+  }
+
+  private void runTick() {
+    final Runnable[] listeners;
+    synchronized (this) {
+      listeners = tickListeners.toArray(new Runnable[0]);
+    }
+
+    for (Runnable listener : listeners) {
+      try {
+        listener.run();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private class VirtualTask implements ScheduledFuture<Object>, Runnable {
+    private final Runnable task;
+    private final long period;
+    private long time;
+    private long sequence;
+    private boolean cancelled = false;
+    private boolean done = false;
+
+    VirtualTask(Runnable task, long time, long period, long sequence) {
+      this.task = task;
+      this.time = time;
+      this.period = period;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+
+      try {
+        task.run();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+
+      synchronized (VirtualClock.this) {
+        if (period > 0 && !cancelled) {
+          time = VirtualClock.this.time + period;
+          sequence = VirtualClock.this.sequence++;
+          tasks.add(this);
+        } else {
+          done = true;
+        }
+      }
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      synchronized (VirtualClock.this) {
+        return unit.convert(time - VirtualClock.this.time, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+      if (o instanceof VirtualTask) {
+        VirtualTask other = (VirtualTask) o;
+        int c = Long.compare(time, other.time);
+        return c != 0 ? c : Long.compare(sequence, other.sequence);
+      }
+      return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      synchronized (VirtualClock.this) {
+        if (done || cancelled) {
+          return false;
+        }
+
+        cancelled = true;
+        tasks.remove(this);
+        return true;
+      }
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+      return done || cancelled;
+    }
+
+    @Override
+    public Object get() {
+      return null;
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) {
+      return null;
+    }
+  }
+}
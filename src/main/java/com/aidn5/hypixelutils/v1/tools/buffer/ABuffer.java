@@ -4,6 +4,7 @@ package com.aidn5.hypixelutils.v1.tools.buffer;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -122,21 +123,30 @@ public abstract class ABuffer<T> implements Runnable {
    * Start looping {@link #run()}.
    * 
    * @return this
+   * 
+   * @throws RejectedExecutionException
+   *           if the thread pool is full. The buffer stays stopped.
    */
-  public ABuffer<T> start() {
+  public ABuffer<T> start() throws RejectedExecutionException {
     this.started = true;
-    threadPool.submit(() -> {
-      while (!Thread.currentThread().isInterrupted() && started) {
-        try {
-          run();
-          Thread.sleep(sleepTime);
-        } catch (InterruptedException e) {
-          stop();
-          e.printStackTrace();
-          Thread.currentThread().interrupt();
+    try {
+      threadPool.submit(() -> {
+        while (!Thread.currentThread().isInterrupted() && started) {
+          try {
+            run();
+            Thread.sleep(sleepTime);
+          } catch (InterruptedException e) {
+            stop();
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+          }
         }
-      }
-    });
+      });
+
+    } catch (RejectedExecutionException e) {
+      this.started = false;
+      throw e;
+    }
 
     return this;
   }
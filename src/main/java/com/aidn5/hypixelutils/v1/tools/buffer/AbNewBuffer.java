@@ -1,16 +1,25 @@
 
 package com.aidn5.hypixelutils.v1.tools.buffer;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.Clock;
 
 /**
- * abstract buffer array used to buffer the pushed elements on its own
- * {@link Thread} with {@link #sleepTime} in between.
+ * abstract buffer array used to buffer the pushed elements. The started
+ * buffers are driven by {@link BufferDriver} on the game ticks without a thread
+ * of their own. When the next element is processed is decided by
+ * {@link IPacingPolicy}. By default {@link FixedDelayPolicy} with
+ * {@link #sleepTime} in between.
  * 
  * @param <T>
  *          the type of the supplied/pushed elements
@@ -30,11 +39,21 @@ public abstract class AbNewBuffer<T> extends ArrayBlockingQueue<T> {
   /**
    * Whether the buffer is currently running.
    */
-  private boolean started;
+  private volatile boolean started;
+  /**
+   * decides when the next element is processed.
+   */
+  @Nonnull
+  private volatile IPacingPolicy<T> pacingPolicy;
+  /**
+   * the elements to process again before the others.
+   */
+  @Nonnull
+  private final Deque<T> retries = new ArrayDeque<>();
   /**
-   * the pool to use when starting the buffer thread.
+   * the most elements processed in one tick.
    */
-  private ExecutorService threadPool;
+  private volatile int maxPerTick = BufferDriver.MAX_PER_TICK;
 
   /**
    * Constructor.
@@ -46,12 +65,12 @@ public abstract class AbNewBuffer<T> extends ArrayBlockingQueue<T> {
    *          Time in milliseconds between {@link #run()} calls. See
    *          {@link #sleepTime}
    * @param threadPool
-   *          the pool to use when starting the buffer thread
+   *          not used anymore. The buffers are driven by {@link BufferDriver}.
    */
   public AbNewBuffer(int capacity, int sleepTime, ExecutorService threadPool) {
     super(capacity);
     this.sleepTime = sleepTime;
-    this.threadPool = threadPool;
+    this.pacingPolicy = new FixedDelayPolicy<>(sleepTime);
   }
 
   /**
@@ -61,7 +80,7 @@ public abstract class AbNewBuffer<T> extends ArrayBlockingQueue<T> {
    * with.
    */
   public AbNewBuffer() {
-    this(5000, 100, Executors.newCachedThreadPool());
+    this(5000, 100, null);
   }
 
   /**
@@ -71,25 +90,171 @@ public abstract class AbNewBuffer<T> extends ArrayBlockingQueue<T> {
    */
   public AbNewBuffer<T> start() {
     this.started = true;
-    this.threadPool.submit(() -> {
-      while (!Thread.currentThread().isInterrupted() && started) {
-        try {
-          run();
-          Thread.sleep(sleepTime);
-        } catch (InterruptedException e) {
-          stop();
-          e.printStackTrace();
-          Thread.currentThread().interrupt();
-        }
-      }
-    });
+    BufferDriver.register(this);
 
     return this;
   }
 
 
-  private final void run() throws InterruptedException {
-    next(super.take());
+  /**
+   * Set the policy, which decides when the next element is processed.
+   *
+   * @param policy
+   *          the policy to use.
+   *
+   * @return this
+   */
+  public AbNewBuffer<T> setPacingPolicy(@Nonnull IPacingPolicy<T> policy) {
+    this.pacingPolicy = Objects.requireNonNull(policy);
+    return this;
+  }
+
+  /**
+   * Get the policy, which decides when the next element is processed.
+   *
+   * @return
+   *         the used policy.
+   */
+  @Nonnull
+  public IPacingPolicy<T> getPacingPolicy() {
+    return pacingPolicy;
+  }
+
+  /**
+   * Set the most elements processed in one tick.
+   *
+   * @param maxPerTick
+   *          the most elements processed in one tick.
+   *
+   * @return this
+   */
+  public AbNewBuffer<T> setMaxPerTick(int maxPerTick) {
+    if (maxPerTick <= 0) {
+      throw new IllegalArgumentException("maxPerTick must be bigger than 0");
+    }
+
+    this.maxPerTick = maxPerTick;
+    return this;
+  }
+
+  /**
+   * Get the most elements processed in one tick.
+   *
+   * @return
+   *         the most elements processed in one tick.
+   */
+  public int getMaxPerTick() {
+    return maxPerTick;
+  }
+
+  /**
+   * Check whether the buffer is only used on Hypixel. Such buffers are parked
+   * while the client is not connected to Hypixel. See
+   * {@link BufferDriver#setParked(boolean)}.
+   *
+   * @return
+   *         <code>true</code> if the buffer is only used on Hypixel.
+   */
+  public boolean isOnlyHypixel() {
+    return false;
+  }
+
+  /**
+   * Process the element again before any other element, once the pacing
+   * policy allows it. Used when the element has been rejected (see
+   * {@link IPacingPolicy#elementRejected(Object, long)}).
+   *
+   * @param element
+   *          the element to process again.
+   */
+  protected void retry(@Nonnull T element) {
+    synchronized (retries) {
+      retries.addLast(Objects.requireNonNull(element));
+    }
+  }
+
+  /**
+   * Process the elements, which the pacing policy allows at this moment.
+   * Called by {@link BufferDriver} on every tick.
+   */
+  final void drive() {
+    final int max = maxPerTick;
+    for (int i = 0; i < max && started; i++) {
+      final IPacingPolicy<T> policy = pacingPolicy;
+      final long now = Clock.get().currentTimeMillis();
+
+      // an element, which must wait, stays queued.
+      // So, it does not hold the elements allowed in the meantime
+      T element = pollRetry(policy, now);
+      if (element == null) {
+        element = pollAllowed(policy, now);
+      }
+      if (element == null) {
+        return;
+      }
+
+      next(element);
+      policy.elementProcessed(element, Clock.get().currentTimeMillis());
+    }
+  }
+
+  /**
+   * Remove all the elements including the ones waiting for
+   * {@link #retry(Object)}.
+   */
+  @Override
+  public void clear() {
+    synchronized (retries) {
+      retries.clear();
+    }
+    super.clear();
+  }
+
+  /**
+   * Take the next element to process without waiting.
+   *
+   * @return
+   *         the next element or <code>null</code> if none is available.
+   */
+  @Nullable
+  protected T pollNext() {
+    return poll();
+  }
+
+  /**
+   * Take the next element, which the pacing policy allows at this moment,
+   * without waiting. Buffers with more than one queue should skip the queues,
+   * whose next element must still wait, instead of waiting for it.
+   *
+   * @param policy
+   *          the policy to ask.
+   * @param now
+   *          the current time in milliseconds.
+   *
+   * @return
+   *         the next allowed element or <code>null</code> if none is
+   *         available or allowed.
+   */
+  @Nullable
+  protected T pollAllowed(@Nonnull IPacingPolicy<T> policy, long now) {
+    final T element = peek();
+    if (element == null || policy.getDelay(element, now) > 0) {
+      return null;
+    }
+
+    // only the driver polls. So, the peeked element is the polled one
+    return pollNext();
+  }
+
+  @Nullable
+  private T pollRetry(@Nonnull IPacingPolicy<T> policy, long now) {
+    synchronized (retries) {
+      final T element = retries.peekFirst();
+      if (element == null || policy.getDelay(element, now) > 0) {
+        return null;
+      }
+      return retries.pollFirst();
+    }
   }
 
   /**
@@ -107,6 +272,7 @@ public abstract class AbNewBuffer<T> extends ArrayBlockingQueue<T> {
    */
   public AbNewBuffer<T> stop() {
     started = false;
+    BufferDriver.unregister(this);
 
     return this;
   }
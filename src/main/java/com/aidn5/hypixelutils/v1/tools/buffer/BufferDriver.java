@@ -0,0 +1,137 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHelpTools;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Drives all the started {@link AbNewBuffer} instances on the game ticks.
+ *
+ * <p>
+ * Instead of a thread per buffer, every buffer is checked once per game tick
+ * (the ticks of {@link ChatTransport#addTickListener(Runnable)}) and processes
+ * the elements its {@link IPacingPolicy} allows (at most
+ * {@link AbNewBuffer#getMaxPerTick()}). So, the number of threads stays the
+ * same however many instances of the library exist, and the elements are
+ * processed on the client thread.
+ *
+ * <p>
+ * While the driver is parked ({@link #setParked(boolean)}), the buffers, which
+ * are only used on Hypixel ({@link AbNewBuffer#isOnlyHypixel()}), are not
+ * driven. Their elements wait till the driver is unparked. The same goes for
+ * the lanes of {@link ChatBuffer}, which are only used on Hypixel
+ * ({@link ChatBuffer.Priority#onlyHypixel}).
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+@IHelpTools(onlyStatic = true)
+public class BufferDriver {
+  /**
+   * the most elements a buffer processes in one tick by default. See
+   * {@link AbNewBuffer#setMaxPerTick(int)}.
+   */
+  public static final int MAX_PER_TICK = 16;
+
+  @Nonnull
+  private static final List<AbNewBuffer<?>> buffers = new CopyOnWriteArrayList<>();
+  private static boolean listening = false;
+  private static volatile boolean parked = false;
+
+  private BufferDriver() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Start driving the buffer.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param buffer
+   *          the started buffer.
+   */
+  @IBackend
+  static void register(@Nonnull AbNewBuffer<?> buffer) {
+    synchronized (buffers) {
+      if (!buffers.contains(buffer)) {
+        buffers.add(buffer);
+      }
+
+      if (!listening) {
+        listening = true;
+        ChatTransport.get().addTickListener(BufferDriver::tick);
+      }
+    }
+  }
+
+  /**
+   * Stop driving the buffer.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param buffer
+   *          the stopped buffer.
+   */
+  @IBackend
+  static void unregister(@Nonnull AbNewBuffer<?> buffer) {
+    buffers.remove(buffer);
+  }
+
+  /**
+   * Park or unpark the buffers, which are only used on Hypixel.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param parked
+   *          <code>true</code> to stop driving them till it is unparked.
+   */
+  @IBackend
+  public static void setParked(boolean parked) {
+    BufferDriver.parked = parked;
+  }
+
+  /**
+   * Check whether the buffers, which are only used on Hypixel, are parked.
+   *
+   * @return
+   *         <code>true</code> if they are parked.
+   */
+  public static boolean isParked() {
+    return parked;
+  }
+
+  /**
+   * Get how many buffers are driven.
+   *
+   * @return
+   *         how many buffers are driven.
+   */
+  public static int getBuffersCount() {
+    return buffers.size();
+  }
+
+  private static void tick() {
+    final boolean parked = BufferDriver.parked;
+
+    for (AbNewBuffer<?> buffer : buffers) {
+      if (parked && buffer.isOnlyHypixel()) {
+        continue;
+      }
+
+      try {
+        buffer.drive();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+}
@@ -1,28 +1,134 @@
 
 package com.aidn5.hypixelutils.v1.tools.buffer;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport.ITransportListener;
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
-
-import net.minecraft.client.Minecraft;
-import net.minecraft.client.entity.EntityPlayerSP;
-import net.minecraftforge.client.ClientCommandHandler;
-import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
-import net.minecraftforge.fml.common.network.FMLNetworkEvent;
+import com.aidn5.hypixelutils.v1.tools.Clock;
 
 /**
  * Buffer for chat messages sent AS the client.
  * Will send all messages as the client as soon
  * as possible. Buffer is cleared when the player
  * disconnects from a server.
+ * The messages are sent through {@link ChatTransport}.
+ * 
+ * <p>
+ * The messages are paced with {@link ChatPacingPolicy} by default. When the
+ * server replies with a spam warning, the buffer backs off and sends the
+ * rejected command again (up to {@link #MAX_RETRIES} times) as the next
+ * message of its lane.
+ * 
+ * <p>
+ * Every message is queued in a lane (see {@link Priority}). The lanes share
+ * the sending with weighted fair scheduling: every non-empty lane gets a share
+ * of the sent messages by its weight. So, a burst of background commands
+ * never makes a command of the user wait for long, while the background
+ * commands are still sent. A message, which has waited longer than
+ * {@link #MAX_WAIT}, is sent before any other. Every lane has its own capacity.
+ * The methods of {@link java.util.concurrent.BlockingQueue} without a
+ * {@link Priority} (e.g. {@link #offer(Object)}, {@link #put(Object)},
+ * {@link #remainingCapacity()}) use {@link Priority#INTERACTIVE}. The other
+ * methods (e.g. {@link #iterator()}, {@link #contains(Object)},
+ * {@link #drainTo(Collection)}) work on all the lanes. The array of
+ * {@link ArrayBlockingQueue} is never used.
+ * 
+ * <p>
+ * A lane, whose oldest message must wait for the pacing policy (e.g. a
+ * command in its cooldown), is skipped till the policy allows it. The other
+ * lanes keep sending in the meantime.
+ * 
+ * <p>
+ * The lanes, which are only used on Hypixel
+ * ({@link Priority#onlyHypixel}), wait while {@link BufferDriver} is parked.
+ * The other lanes (e.g. the commands of the user) are always sent. The lines
+ * dropped on disconnecting are counted by {@link #getDropped(Priority)}.
  */
 @IHypixelUtils
 @IBackend
 public class ChatBuffer extends AbNewBuffer<String> {
+  /**
+   * How many times a command is sent again after the server replied with a
+   * spam warning.
+   */
+  public static final int MAX_RETRIES = 3;
+  /**
+   * How long the server may take to reply to a sent command. A spam warning is
+   * only tied to a command sent in this period.
+   */
+  private static final long REPLY_WINDOW = TimeUnit.SECONDS.toMillis(2);
+
+  // replies of the server when a command has been dropped
+  private static final Pattern spamWarningP = Pattern.compile("^(?:Please don't spam the command!"
+      + "|You are sending commands too fast! Please slow down\\.)$");
+
+  /**
+   * A message, which has waited this long, is sent before the messages of the
+   * other lanes.
+   */
+  public static final long MAX_WAIT = TimeUnit.SECONDS.toMillis(10);
+
+  @Nonnull
+  private final ReentrantLock lanesLock = new ReentrantLock();
+  @Nonnull
+  private final Condition notFull = lanesLock.newCondition();
+  @Nonnull
+  private final Condition notEmpty = lanesLock.newCondition();
+  @Nonnull
+  private final EnumMap<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+
+  @Nullable
+  private volatile String lastSent = null;
+  private volatile long lastSentTime = 0;
+  private volatile int lastSentRetries = 0;
+  @Nullable
+  private volatile String retrying = null;
+  // the lane of the last selected and the last sent command
+  @Nullable
+  private volatile Priority lastSelected = null;
+  @Nullable
+  private volatile Priority lastSentPriority = null;
+
+  @Nonnull
+  private final ITransportListener transportListener = new ITransportListener() {
+    @Override
+    public boolean lineReceived(String line) {
+      if (spamWarningP.matcher(line).find()) {
+        commandRejected();
+      }
+      return false;
+    }
+
+    @Override
+    public void disconnected() {
+      // the queued lines were meant for the left server
+      clear();
+    }
+  };
 
   /**
    * Constructor.
@@ -31,44 +137,863 @@ public class ChatBuffer extends AbNewBuffer<String> {
    *          how many elements maximum can the buffer hold. See
    *          {@link ArrayBlockingQueue#ArrayBlockingQueue(int)}
    * @param sleepTime
-   *          Time in milliseconds between {@link #run()} calls. See
-   *          {@link #sleepTime}
+   *          Time in milliseconds to send a new message after the burst of
+   *          {@link ChatPacingPolicy#DEFAULT_BURST} messages.
    * @param threadPool
-   *          the pool to use when starting the buffer thread
+   *          not used anymore. The buffers are driven by {@link BufferDriver}.
    */
   public ChatBuffer(int capacity, int sleepTime, ExecutorService threadPool) {
     super(capacity, sleepTime, threadPool);
+    setPacingPolicy(new ChatPacingPolicy(ChatPacingPolicy.DEFAULT_BURST, sleepTime));
+
+    lanes.put(Priority.INTERACTIVE, new Lane(Priority.INTERACTIVE, capacity));
+    lanes.put(Priority.PROTOCOL, new Lane(Priority.PROTOCOL, Math.min(capacity, 256)));
+    lanes.put(Priority.BACKGROUND, new Lane(Priority.BACKGROUND, Math.min(capacity, 64)));
+    lanes.put(Priority.BULK, new Lane(Priority.BULK, capacity));
+  }
+
+  /**
+   * Queue the message in {@link Priority#INTERACTIVE}.
+   */
+  @Override
+  public boolean offer(String message) {
+    return offer(message, Priority.INTERACTIVE);
+  }
+
+  /**
+   * Queue the message in the lane.
+   *
+   * @param message
+   *          the message to send.
+   * @param priority
+   *          the lane of the message.
+   *
+   * @return
+   *         <code>true</code> if queued. <code>false</code> if the lane is
+   *         full.
+   */
+  public boolean offer(@Nonnull String message, @Nonnull Priority priority) {
+    Objects.requireNonNull(message);
+
+    lanesLock.lock();
+    try {
+      final Lane lane = lanes.get(priority);
+      if (lane.lines.size() >= lane.capacity) {
+        lane.rejected++;
+        return false;
+      }
+
+      lane.lines.addLast(new QueuedLine(message, Clock.get().currentTimeMillis()));
+      notEmpty.signal();
+      return true;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Queue the message in {@link Priority#INTERACTIVE}. Waits up to the timeout
+   * if the lane is full.
+   */
+  @Override
+  public boolean offer(String message, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return offer(message, Priority.INTERACTIVE, timeout, unit);
+  }
+
+  /**
+   * Queue the message in the lane. Waits up to the timeout if the lane is
+   * full.
+   *
+   * @param message
+   *          the message to send.
+   * @param priority
+   *          the lane of the message.
+   * @param timeout
+   *          how long to wait.
+   * @param unit
+   *          the unit of {@code timeout}.
+   *
+   * @return
+   *         <code>true</code> if queued. <code>false</code> if the lane is
+   *         still full after the timeout.
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting.
+   */
+  public boolean offer(@Nonnull String message, @Nonnull Priority priority, long timeout,
+      @Nonnull TimeUnit unit) throws InterruptedException {
+    Objects.requireNonNull(message);
+
+    long nanos = unit.toNanos(timeout);
+    lanesLock.lockInterruptibly();
+    try {
+      final Lane lane = lanes.get(priority);
+      while (lane.lines.size() >= lane.capacity) {
+        if (nanos <= 0) {
+          lane.rejected++;
+          return false;
+        }
+        nanos = notFull.awaitNanos(nanos);
+      }
+
+      lane.lines.addLast(new QueuedLine(message, Clock.get().currentTimeMillis()));
+      notEmpty.signal();
+      return true;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Queue the message in {@link Priority#INTERACTIVE}. Waits if the lane is
+   * full.
+   */
+  @Override
+  public void put(String message) throws InterruptedException {
+    put(message, Priority.INTERACTIVE);
+  }
+
+  /**
+   * Queue the message in the lane. Waits if the lane is full.
+   *
+   * @param message
+   *          the message to send.
+   * @param priority
+   *          the lane of the message.
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting.
+   */
+  public void put(@Nonnull String message, @Nonnull Priority priority)
+      throws InterruptedException {
+    Objects.requireNonNull(message);
+
+    lanesLock.lockInterruptibly();
+    try {
+      final Lane lane = lanes.get(priority);
+      while (lane.lines.size() >= lane.capacity) {
+        notFull.await();
+      }
+
+      lane.lines.addLast(new QueuedLine(message, Clock.get().currentTimeMillis()));
+      notEmpty.signal();
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  @Override
+  public String poll() {
+    lanesLock.lock();
+    try {
+      return selectNext(null);
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Select the next message from the lanes, whose oldest message the policy
+   * allows at this moment. A lane waiting for the policy (e.g. a "/whereami"
+   * in its cooldown) does not hold the other lanes.
+   */
+  @Override
+  protected String pollAllowed(@Nonnull IPacingPolicy<String> policy, long now) {
+    lanesLock.lock();
+    try {
+      return selectNext(policy);
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  @Override
+  public String poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lanesLock.lockInterruptibly();
+    try {
+      String message;
+      while ((message = selectNext(null)) == null) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return message;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  @Override
+  public String take() throws InterruptedException {
+    lanesLock.lockInterruptibly();
+    try {
+      String message;
+      while ((message = selectNext(null)) == null) {
+        notEmpty.await();
+      }
+      return message;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get the message, which has waited the longest, without removing it. The
+   * next sent message can be another one, since the lanes share the sending.
+   */
+  @Override
+  public String peek() {
+    lanesLock.lock();
+    try {
+      QueuedLine oldest = null;
+      for (Lane lane : lanes.values()) {
+        QueuedLine head = lane.lines.peekFirst();
+        if (head != null && (oldest == null || head.time < oldest.time)) {
+          oldest = head;
+        }
+      }
+      return oldest == null ? null : oldest.line;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how many more messages {@link Priority#INTERACTIVE} can hold.
+   */
+  @Override
+  public int remainingCapacity() {
+    return remainingCapacity(Priority.INTERACTIVE);
+  }
+
+  /**
+   * Get how many more messages the lane can hold.
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         how many more messages the lane can hold.
+   */
+  public int remainingCapacity(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      final Lane lane = lanes.get(priority);
+      return Math.max(0, lane.capacity - lane.lines.size());
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (o == null) {
+      return false;
+    }
+
+    lanesLock.lock();
+    try {
+      for (Lane lane : lanes.values()) {
+        for (QueuedLine line : lane.lines) {
+          if (o.equals(line.line)) {
+            return true;
+          }
+        }
+      }
+      return false;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    return o != null && removeIf(o::equals, true);
+  }
+
+  @Override
+  public boolean removeIf(Predicate<? super String> filter) {
+    return removeIf(Objects.requireNonNull(filter), false);
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> c) {
+    Objects.requireNonNull(c);
+    return removeIf(c::contains, false);
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> c) {
+    Objects.requireNonNull(c);
+    return removeIf(line -> !c.contains(line), false);
+  }
+
+  private boolean removeIf(@Nonnull Predicate<? super String> filter, boolean onlyFirst) {
+    lanesLock.lock();
+    try {
+      boolean removed = false;
+      for (Lane lane : lanes.values()) {
+        Iterator<QueuedLine> iterator = lane.lines.iterator();
+        while (iterator.hasNext()) {
+          if (filter.test(iterator.next().line)) {
+            iterator.remove();
+            removed = true;
+            if (onlyFirst) {
+              break;
+            }
+          }
+        }
+        if (removed && onlyFirst) {
+          break;
+        }
+      }
+
+      if (removed) {
+        notFull.signalAll();
+      }
+      return removed;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Remove all the messages from all the lanes, from the most important lane
+   * to the least.
+   */
+  @Override
+  public int drainTo(Collection<? super String> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Remove the messages from all the lanes, from the most important lane to
+   * the least.
+   */
+  @Override
+  public int drainTo(Collection<? super String> c, int maxElements) {
+    Objects.requireNonNull(c);
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+
+    lanesLock.lock();
+    try {
+      int drained = 0;
+      for (Lane lane : lanes.values()) {
+        while (drained < maxElements && !lane.lines.isEmpty()) {
+          c.add(lane.lines.pollFirst().line);
+          lane.dequeued++;
+          drained++;
+        }
+        if (lane.lines.isEmpty()) {
+          lane.currentWeight = 0;
+        }
+      }
+
+      if (drained > 0) {
+        notFull.signalAll();
+      }
+      return drained;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Iterate over a snapshot of all the lanes, from the most important lane to
+   * the least. {@link Iterator#remove()} removes the message from its lane.
+   */
+  @Override
+  public Iterator<String> iterator() {
+    final List<QueuedLine> snapshot = snapshot();
+
+    return new Iterator<String>() {
+      private int index = 0;
+      @Nullable
+      private QueuedLine last = null;
+
+      @Override
+      public boolean hasNext() {
+        return index < snapshot.size();
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = snapshot.get(index++);
+        return last.line;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+
+        final QueuedLine line = last;
+        last = null;
+        lanesLock.lock();
+        try {
+          for (Lane lane : lanes.values()) {
+            if (lane.lines.removeFirstOccurrence(line)) {
+              notFull.signalAll();
+              return;
+            }
+          }
+        } finally {
+          lanesLock.unlock();
+        }
+      }
+    };
+  }
+
+  @Override
+  public void forEach(Consumer<? super String> action) {
+    Objects.requireNonNull(action);
+    for (QueuedLine line : snapshot()) {
+      action.accept(line.line);
+    }
+  }
+
+  @Override
+  public Object[] toArray() {
+    final List<QueuedLine> snapshot = snapshot();
+    final Object[] array = new Object[snapshot.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = snapshot.get(i).line;
+    }
+    return array;
+  }
+
+  @Override
+  public <E> E[] toArray(E[] a) {
+    final List<String> lines = new ArrayList<>();
+    for (QueuedLine line : snapshot()) {
+      lines.add(line.line);
+    }
+    return lines.toArray(a);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "ChatBuffer" + Arrays.toString(toArray());
+  }
+
+  @Nonnull
+  private List<QueuedLine> snapshot() {
+    lanesLock.lock();
+    try {
+      final List<QueuedLine> snapshot = new ArrayList<>(size());
+      for (Lane lane : lanes.values()) {
+        snapshot.addAll(lane.lines);
+      }
+      return snapshot;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how many messages are queued in all the lanes.
+   */
+  @Override
+  public int size() {
+    lanesLock.lock();
+    try {
+      int size = 0;
+      for (Lane lane : lanes.values()) {
+        size += lane.lines.size();
+      }
+      return size;
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Remove all the messages from all the lanes. The removed messages are
+   * counted by {@link #getDropped(Priority)}.
+   */
+  @Override
+  public void clear() {
+    lanesLock.lock();
+    try {
+      for (Lane lane : lanes.values()) {
+        lane.dropped += lane.lines.size();
+        lane.lines.clear();
+      }
+      notFull.signalAll();
+
+    } finally {
+      lanesLock.unlock();
+    }
+
+    super.clear();
+  }
+
+  /**
+   * Set how many messages the lane can hold.
+   *
+   * @param priority
+   *          the lane to change.
+   * @param capacity
+   *          how many messages the lane can hold.
+   *
+   * @return
+   *         this instance.
+   */
+  @Nonnull
+  public ChatBuffer setCapacity(@Nonnull Priority priority, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be bigger than 0");
+    }
+
+    lanesLock.lock();
+    try {
+      lanes.get(priority).capacity = capacity;
+      notFull.signalAll();
+    } finally {
+      lanesLock.unlock();
+    }
+
+    return this;
+  }
+
+  /**
+   * Get how many messages the lane can hold.
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         the capacity of the lane.
+   */
+  public int getCapacity(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      return lanes.get(priority).capacity;
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how many messages are waiting in the lane.
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         the depth of the lane.
+   */
+  public int getDepth(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      return lanes.get(priority).lines.size();
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how long the oldest message of the lane has been waiting.
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         the waiting time in milliseconds. {@code 0} if the lane is empty.
+   */
+  public long getOldestWait(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      final QueuedLine head = lanes.get(priority).lines.peekFirst();
+      return head == null ? 0 : Clock.get().currentTimeMillis() - head.time;
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how many messages have been taken from the lane to be sent.
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         how many messages have been taken from the lane.
+   */
+  public long getDequeued(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      return lanes.get(priority).dequeued;
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how many messages have been rejected, because the lane was full.
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         how many messages have been rejected.
+   */
+  public long getRejected(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      return lanes.get(priority).rejected;
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Get how many messages have been removed without being sent (e.g. on
+   * disconnecting or by {@link #clear()}).
+   *
+   * @param priority
+   *          the lane to check.
+   *
+   * @return
+   *         how many messages have been dropped.
+   */
+  public long getDropped(@Nonnull Priority priority) {
+    lanesLock.lock();
+    try {
+      return lanes.get(priority).dropped;
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * Select the next message. Must be called while holding {@link #lanesLock}.
+   *
+   * @param policy
+   *          only the lanes, whose oldest message it allows, are selected.
+   *          <code>null</code> to select from every lane.
+   */
+  @Nullable
+  private String selectNext(@Nullable IPacingPolicy<String> policy) {
+    final long now = Clock.get().currentTimeMillis();
+    final boolean parked = BufferDriver.isParked();
+
+    // starvation protection: the message, which has waited too long, goes first
+    Lane chosen = null;
+    for (Map.Entry<Priority, Lane> entry : lanes.entrySet()) {
+      if (!isReady(entry.getKey(), entry.getValue(), parked, policy, now)) {
+        continue;
+      }
+
+      QueuedLine head = entry.getValue().lines.peekFirst();
+      if (head.time + MAX_WAIT < now
+          && (chosen == null || head.time < chosen.lines.peekFirst().time)) {
+        chosen = entry.getValue();
+      }
+    }
+
+    // smooth weighted round-robin between the ready lanes
+    if (chosen == null) {
+      int totalWeight = 0;
+      for (Map.Entry<Priority, Lane> entry : lanes.entrySet()) {
+        Lane lane = entry.getValue();
+        if (!isReady(entry.getKey(), lane, parked, policy, now)) {
+          continue;
+        }
+
+        lane.currentWeight += entry.getKey().weight;
+        totalWeight += entry.getKey().weight;
+        if (chosen == null || lane.currentWeight > chosen.currentWeight) {
+          chosen = lane;
+        }
+      }
+
+      if (chosen == null) {
+        return null;
+      }
+      chosen.currentWeight -= totalWeight;
+    }
+
+    final String message = chosen.lines.pollFirst().line;
+    chosen.dequeued++;
+    lastSelected = chosen.priority;
+    if (chosen.lines.isEmpty()) {
+      // an idle lane does not keep its credit
+      chosen.currentWeight = 0;
+    }
+
+    notFull.signal();
+    return message;
+  }
+
+  private static boolean isReady(@Nonnull Priority priority, @Nonnull Lane lane, boolean parked,
+      @Nullable IPacingPolicy<String> policy, long now) {
+    final QueuedLine head = lane.lines.peekFirst();
+    if (head == null || (parked && priority.onlyHypixel)) {
+      return false;
+    }
+
+    return policy == null || policy.getDelay(head.line, now) <= 0;
   }
 
   @Override
   public AbNewBuffer<String> start() {
-    MinecraftForge.EVENT_BUS.register(this);
+    ChatTransport.get().addListener(transportListener);
     return super.start();
   }
 
   @Override
   public AbNewBuffer<String> stop() {
-    MinecraftForge.EVENT_BUS.unregister(this);
+    ChatTransport.get().removeListener(transportListener);
     return super.stop();
   }
 
-  @SubscribeEvent
-  public void onDisconnect(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
-    clear();
-  }
-
   /**
    * Start sending messages in the buffer.
    */
   @Override
   protected void next(String message) {
-    final EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
-    // Only send a message if the player exists & there is a message to send
+    final ChatTransport transport = ChatTransport.get();
 
     // Handle as a command
-    if (message.startsWith("/")
-        && ClientCommandHandler.instance.executeCommand(player, message) == 0) {
-      player.sendChatMessage(message);
+    if (message.startsWith("/") && !transport.executeClientCommand(message)) {
+      // the same instance is only passed again by retry()
+      if (message != retrying) {
+        lastSentRetries = 0;
+      }
+      retrying = null;
+
+      lastSent = message;
+      lastSentPriority = lastSelected;
+      lastSentTime = Clock.get().currentTimeMillis();
+      transport.sendLine(message);
+    }
+  }
+
+  private synchronized void commandRejected() {
+    final String command = lastSent;
+    final long now = Clock.get().currentTimeMillis();
+    if (command == null || lastSentTime + REPLY_WINDOW < now) {
+      return;
+    }
+
+    // the warning is tied to the last command. Only one warning per command
+    lastSent = null;
+    getPacingPolicy().elementRejected(command, now);
+
+    if (lastSentRetries < MAX_RETRIES) {
+      lastSentRetries++;
+      retrying = command;
+      requeue(command, lastSentPriority, now);
+    }
+  }
+
+  /**
+   * Put the rejected command back at the head of its lane. So, it is paced
+   * and parked with its lane (e.g. a background command is not sent again
+   * off Hypixel). The lane may hold one message more than its capacity.
+   */
+  private void requeue(@Nonnull String command, @Nullable Priority priority, long now) {
+    lanesLock.lock();
+    try {
+      lanes.get(priority != null ? priority : Priority.INTERACTIVE).lines
+          .addFirst(new QueuedLine(command, now));
+      notEmpty.signal();
+
+    } finally {
+      lanesLock.unlock();
+    }
+  }
+
+  /**
+   * The lanes of {@link ChatBuffer} from the most important to the least.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  public enum Priority {
+    /**
+     * commands triggered by the user. Used by default.
+     */
+    INTERACTIVE(8, false),
+    /**
+     * control lines of the protocols (e.g. accepting a connection).
+     */
+    PROTOCOL(4, false),
+    /**
+     * info commands of Hypixel sent in the background (e.g. "/whereami").
+     * Waits while the client is not connected to Hypixel.
+     */
+    BACKGROUND(2, true),
+    /**
+     * bulk data, which can wait.
+     */
+    BULK(1, false);
+
+    /**
+     * the share of the lane from the sent messages.
+     */
+    public final int weight;
+    /**
+     * whether the lane waits while {@link BufferDriver} is parked.
+     */
+    public final boolean onlyHypixel;
+
+    private Priority(int weight, boolean onlyHypixel) {
+      this.weight = weight;
+      this.onlyHypixel = onlyHypixel;
+    }
+  }
+
+  private static class Lane {
+    final Priority priority;
+    final Deque<QueuedLine> lines = new ArrayDeque<>();
+    int capacity;
+    int currentWeight = 0;
+    long dequeued = 0;
+    long rejected = 0;
+    long dropped = 0;
+
+    Lane(Priority priority, int capacity) {
+      this.priority = priority;
+      this.capacity = capacity;
+    }
+  }
+
+  private static class QueuedLine {
+    final String line;
+    final long time;
+
+    QueuedLine(String line, long time) {
+      this.line = line;
+      this.time = time;
     }
   }
 }
@@ -0,0 +1,149 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Pacing policy for the chat lines and the commands. Used by default in
+ * {@link ChatBuffer}.
+ *
+ * <p>
+ * The lines are paced with {@link TokenBucketPolicy}. In addition, some
+ * commands have a cooldown on the server (e.g. "/whereami"). The commands can
+ * be grouped into cooldown classes with
+ * {@link #setCooldown(long, TimeUnit, String...)}. A command waits till its
+ * class's cooldown has passed since the last command of the same class. The
+ * lines of a lane keep their order, so the lines after it in the same lane
+ * wait too. The other lanes of {@link ChatBuffer} are not held by it. A
+ * rejected command restarts the cooldown of its class.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class ChatPacingPolicy extends TokenBucketPolicy<String> {
+  /**
+   * how many lines can be sent at once by default.
+   */
+  public static final int DEFAULT_BURST = 5;
+
+  /**
+   * command (lowercase with "/") -> its cooldown class.
+   */
+  @Nonnull
+  private final Map<String, CooldownClass> cooldowns = new HashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param burst
+   *          how many lines can be sent at once.
+   * @param interval
+   *          the time in milliseconds to send a new line after the burst.
+   */
+  public ChatPacingPolicy(int burst, long interval) {
+    super(burst, interval);
+
+    setCooldown(2, TimeUnit.SECONDS, "/whereami", "/locraw", "/map");
+  }
+
+  /**
+   * Put the commands into one cooldown class. The commands are removed from
+   * their old classes.
+   *
+   * @param cooldown
+   *          the time between two commands of the class. {@code 0} to remove
+   *          the cooldown of the commands.
+   * @param unit
+   *          the unit of {@code cooldown}.
+   * @param commands
+   *          the commands of the class (e.g. "/p", "/party").
+   *
+   * @return
+   *         this instance.
+   */
+  @Nonnull
+  public ChatPacingPolicy setCooldown(long cooldown, @Nonnull TimeUnit unit,
+      @Nonnull String... commands) {
+    final CooldownClass cooldownClass = new CooldownClass(unit.toMillis(cooldown));
+
+    synchronized (cooldowns) {
+      for (String command : commands) {
+        String key = command.toLowerCase();
+        if (!key.startsWith("/")) {
+          key = "/" + key;
+        }
+
+        if (cooldownClass.cooldown > 0) {
+          cooldowns.put(key, cooldownClass);
+        } else {
+          cooldowns.remove(key);
+        }
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public long getDelay(@Nonnull String line, long now) {
+    long delay = super.getDelay(line, now);
+
+    final CooldownClass cooldownClass = getCooldownClass(line);
+    if (cooldownClass != null) {
+      delay = Math.max(delay, cooldownClass.lastSent + cooldownClass.cooldown - now);
+    }
+
+    return delay;
+  }
+
+  @Override
+  public void elementProcessed(@Nonnull String line, long now) {
+    super.elementProcessed(line, now);
+
+    final CooldownClass cooldownClass = getCooldownClass(line);
+    if (cooldownClass != null) {
+      cooldownClass.lastSent = now;
+    }
+  }
+
+  @Override
+  public void elementRejected(@Nonnull String line, long now) {
+    super.elementRejected(line, now);
+
+    final CooldownClass cooldownClass = getCooldownClass(line);
+    if (cooldownClass != null) {
+      cooldownClass.lastSent = now;
+    }
+  }
+
+  @Nullable
+  private CooldownClass getCooldownClass(@Nonnull String line) {
+    if (!line.startsWith("/")) {
+      return null;
+    }
+
+    final int end = line.indexOf(' ');
+    final String command = (end == -1 ? line : line.substring(0, end)).toLowerCase();
+
+    synchronized (cooldowns) {
+      return cooldowns.get(command);
+    }
+  }
+
+  private static class CooldownClass {
+    final long cooldown;
+    volatile long lastSent = 0;
+
+    CooldownClass(long cooldown) {
+      this.cooldown = cooldown;
+    }
+  }
+}
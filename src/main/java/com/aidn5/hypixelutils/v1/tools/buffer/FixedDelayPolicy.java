@@ -0,0 +1,42 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Pacing policy, which keeps the same delay between all the elements. Used by
+ * default in {@link AbNewBuffer}.
+ *
+ * @param <T>
+ *          the type of the buffered elements.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class FixedDelayPolicy<T> implements IPacingPolicy<T> {
+  private final long delay;
+  private volatile long lastProcessed = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param delay
+   *          the time in milliseconds between every two elements.
+   */
+  public FixedDelayPolicy(long delay) {
+    this.delay = delay;
+  }
+
+  @Override
+  public long getDelay(@Nonnull T element, long now) {
+    return lastProcessed + delay - now;
+  }
+
+  @Override
+  public void elementProcessed(@Nonnull T element, long now) {
+    lastProcessed = now;
+  }
+}
@@ -0,0 +1,61 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Decides when {@link AbNewBuffer} can process its next element.
+ *
+ * <p>
+ * All the methods can be called from different threads.
+ *
+ * @param <T>
+ *          the type of the buffered elements.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see AbNewBuffer#setPacingPolicy(IPacingPolicy)
+ * @see FixedDelayPolicy
+ * @see TokenBucketPolicy
+ */
+@IHypixelUtils
+public interface IPacingPolicy<T> {
+  /**
+   * Get how long the buffer must wait before processing the element.
+   *
+   * @param element
+   *          the next element to process.
+   * @param now
+   *          the current time in milliseconds.
+   *
+   * @return
+   *         the time to wait in milliseconds. {@code 0} or less to process it
+   *         at once.
+   */
+  long getDelay(@Nonnull T element, long now);
+
+  /**
+   * called after the element has been processed.
+   *
+   * @param element
+   *          the processed element.
+   * @param now
+   *          the current time in milliseconds.
+   */
+  void elementProcessed(@Nonnull T element, long now);
+
+  /**
+   * called when the processed element has been rejected because it was
+   * processed too fast (e.g. the server has replied with a spam warning). The
+   * policy should slow down.
+   *
+   * @param element
+   *          the rejected element.
+   * @param now
+   *          the current time in milliseconds.
+   */
+  default void elementRejected(@Nonnull T element, long now) {}
+}
@@ -1,14 +1,16 @@
-
 package com.aidn5.hypixelutils.v1.tools.buffer;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 
+import javax.annotation.Nonnull;
+
 import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
 import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
 
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraft.util.ChatComponentText;
 import net.minecraft.util.IChatComponent;
 
 /**
@@ -16,6 +18,13 @@ import net.minecraft.util.IChatComponent;
  * client. Will send any messages in the
  * buffer to the player as soon as possible.
  * 
+ * <p>
+ * The pending messages are delivered on the client thread once per tick (at
+ * most {@link #getMaxPerTick()}). Adjacent messages are merged into one
+ * component (at most {@link #getMaxMergedLines()} lines), so a burst of
+ * messages is rendered in the same frame. Every instance of the library has
+ * its own buffer, so only the messages of the same source are merged.
+ * 
  * @category BackendUtils
  * @author robere2
  * @since 1.0
@@ -24,6 +33,22 @@ import net.minecraft.util.IChatComponent;
 @IHypixelUtils
 @IBackend
 public class MessageBuffer extends AbNewBuffer<IChatComponent> {
+  /**
+   * the most components delivered in one tick by default.
+   */
+  public static final int DEFAULT_MAX_PER_TICK = 64;
+  /**
+   * the most lines merged into one component by default.
+   */
+  public static final int DEFAULT_MAX_MERGED_LINES = 20;
+
+  /**
+   * the time in milliseconds to wait when there is no player to show the
+   * messages to.
+   */
+  private static final long NO_PLAYER_DELAY = 50;
+
+  private volatile int maxMergedLines = DEFAULT_MAX_MERGED_LINES;
 
   /**
    * Constructor
@@ -32,13 +57,83 @@ public class MessageBuffer extends AbNewBuffer<IChatComponent> {
    *          how many elements maximum can the buffer hold. See
    *          {@link ArrayBlockingQueue#ArrayBlockingQueue(int)}
    * @param sleepTime
-   *          Time in milliseconds between {@link #run()} calls. See
-   *          {@link #sleepTime}
+   *          not used anymore. The messages are delivered every tick.
    * @param threadPool
-   *          the pool to use when starting the buffer thread
+   *          not used anymore. The buffers are driven by {@link BufferDriver}.
    */
   public MessageBuffer(int capacity, int sleepTime, ExecutorService threadPool) {
     super(capacity, sleepTime, threadPool);
+
+    setMaxPerTick(DEFAULT_MAX_PER_TICK);
+    setPacingPolicy(new IPacingPolicy<IChatComponent>() {
+      @Override
+      public long getDelay(@Nonnull IChatComponent element, long now) {
+        // keep the messages till the player joins a world
+        return Minecraft.getMinecraft().thePlayer == null ? NO_PLAYER_DELAY : 0;
+      }
+
+      @Override
+      public void elementProcessed(@Nonnull IChatComponent element, long now) {}
+    });
+  }
+
+  /**
+   * Set the most lines merged into one component.
+   *
+   * @param maxMergedLines
+   *          the most lines merged into one component. {@code 1} disables
+   *          merging.
+   *
+   * @return this
+   */
+  public MessageBuffer setMaxMergedLines(int maxMergedLines) {
+    if (maxMergedLines <= 0) {
+      throw new IllegalArgumentException("maxMergedLines must be bigger than 0");
+    }
+
+    this.maxMergedLines = maxMergedLines;
+    return this;
+  }
+
+  /**
+   * Get the most lines merged into one component.
+   *
+   * @return
+   *         the most lines merged into one component.
+   */
+  public int getMaxMergedLines() {
+    return maxMergedLines;
+  }
+
+  /**
+   * Take the next message and merge the adjacent pending messages into it.
+   */
+  @Override
+  protected IChatComponent pollNext() {
+    final IChatComponent first = poll();
+    if (first == null) {
+      return null;
+    }
+
+    final int max = maxMergedLines;
+    IChatComponent merged = null;
+    for (int lines = 1; lines < max; lines++) {
+      // only the driver polls. So, the peeked element is the polled one
+      final IChatComponent element = peek();
+      if (element == null) {
+        break;
+      }
+      poll();
+
+      if (merged == null) {
+        merged = new ChatComponentText("");
+        merged.appendSibling(first);
+      }
+      merged.appendText("\n");
+      merged.appendSibling(element);
+    }
+
+    return merged == null ? first : merged;
   }
 
   /**
@@ -47,7 +142,9 @@ public class MessageBuffer extends AbNewBuffer<IChatComponent> {
   @Override
   protected void next(IChatComponent element) {
     EntityPlayerSP player = Minecraft.getMinecraft().thePlayer;
-    player.addChatMessage(element);
+    if (player != null) {
+      player.addChatMessage(element);
+    }
   }
 
 }
@@ -0,0 +1,126 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IBackend;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.buffer.RingBuffer.OverflowPolicy;
+
+/**
+ * {@link ABuffer} backed by a bounded {@link RingBuffer} instead of an
+ * {@link java.util.ArrayList}. Elements can be pushed from any thread without
+ * a lock, and {@link #pull()} is O(1).
+ *
+ * <p>
+ * {@link #run()} of the subclass is the single consumer and should take the
+ * elements with {@link #pull()} or {@link #drainTo(Consumer, int)}.
+ *
+ * @param <T>
+ *          the type of the buffered elements.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+@IBackend
+public abstract class MpscBuffer<T> extends ABuffer<T> {
+  @Nonnull
+  private final RingBuffer<T> ring;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          how many elements the buffer can hold. Rounded up to a power of
+   *          two.
+   * @param overflowPolicy
+   *          what to do when the buffer is full.
+   * @param sleepTime
+   *          Time in milliseconds between {@link #run()} calls.
+   * @param threadPool
+   *          the pool to use when starting the buffer thread.
+   */
+  public MpscBuffer(int capacity, @Nonnull OverflowPolicy overflowPolicy, int sleepTime,
+      @Nullable ExecutorService threadPool) {
+    super(sleepTime, threadPool);
+    this.ring = new RingBuffer<>(capacity, overflowPolicy);
+  }
+
+  @Override
+  public T peek() {
+    return ring.peek();
+  }
+
+  @Override
+  public T pull() {
+    return ring.poll();
+  }
+
+  /**
+   * Push a value to the buffer. Can be called from any thread. The value may
+   * be rejected, if the buffer is full (see {@link #offer(Object)}).
+   */
+  @Override
+  public ABuffer<T> push(T pushedValue) {
+    ring.offer(pushedValue);
+    return this;
+  }
+
+  /**
+   * Push a value to the buffer. Can be called from any thread.
+   *
+   * @param value
+   *          the value to add.
+   *
+   * @return
+   *         <code>false</code> if the buffer is full and the value has been
+   *         rejected.
+   *
+   * @see OverflowPolicy
+   */
+  public boolean offer(@Nonnull T value) {
+    return ring.offer(value);
+  }
+
+  /**
+   * Pull up to {@code max} values and pass them to the consumer.
+   *
+   * @param consumer
+   *          the consumer of the values.
+   * @param max
+   *          the most values to pull.
+   *
+   * @return
+   *         how many values have been pulled.
+   */
+  public int drainTo(@Nonnull Consumer<? super T> consumer, int max) {
+    return ring.drainTo(consumer, max);
+  }
+
+  @Override
+  public ABuffer<T> clear() {
+    ring.clear();
+    return this;
+  }
+
+  @Override
+  public int size() {
+    return ring.size();
+  }
+
+  /**
+   * Get how many values have been dropped or rejected, because the buffer was
+   * full.
+   *
+   * @return
+   *         how many values have been dropped or rejected.
+   */
+  public long getDropped() {
+    return ring.getDropped();
+  }
+}
@@ -0,0 +1,307 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Bounded ring buffer for many producers and one consumer.
+ *
+ * <p>
+ * Every slot has a sequence number, which tells whether the slot is free for
+ * the producer of a round or filled for the consumer of that round (the
+ * bounded queue of Dmitry Vyukov). The producers claim their slots with one
+ * compare-and-set on the tail and never take a lock. The buffer is
+ * <b>lock-free, not wait-free</b>: a producer may retry the compare-and-set
+ * when other producers win it, and a slot claimed by a producer, which has not
+ * written it yet, keeps the consumer waiting for that slot.
+ *
+ * <p>
+ * When the buffer is full, {@link #offer(Object)} follows the
+ * {@link OverflowPolicy} of the buffer.
+ *
+ * <p>
+ * <i>Note: the buffer is made for one consumer thread calling {@link #poll()},
+ * {@link #peek()} and {@link #drainTo(Consumer, int)}. The head is still
+ * claimed with compare-and-set, because the producers of
+ * {@link OverflowPolicy#DROP_OLDEST} remove the oldest element themselves.</i>
+ *
+ * @param <T>
+ *          the type of the elements.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class RingBuffer<T> {
+  /**
+   * how long a blocked producer parks between the checks for a free slot.
+   */
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final int capacity;
+  private final int mask;
+  @Nonnull
+  private final AtomicReferenceArray<T> elements;
+  @Nonnull
+  private final AtomicLongArray sequences;
+  @Nonnull
+  private final AtomicLong head = new AtomicLong();
+  @Nonnull
+  private final AtomicLong tail = new AtomicLong();
+  @Nonnull
+  private final OverflowPolicy overflowPolicy;
+  @Nonnull
+  private final AtomicLong dropped = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param capacity
+   *          how many elements the buffer can hold. Rounded up to a power of
+   *          two.
+   * @param overflowPolicy
+   *          what to do when the buffer is full.
+   */
+  public RingBuffer(int capacity, @Nonnull OverflowPolicy overflowPolicy) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+    }
+
+    this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = this.capacity - 1;
+    this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+
+    elements = new AtomicReferenceArray<>(this.capacity);
+    sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Add the element to the buffer. Can be called from any thread.
+   *
+   * @param element
+   *          the element to add.
+   *
+   * @return
+   *         <code>true</code> if added. <code>false</code> if the buffer is
+   *         full and the policy is {@link OverflowPolicy#REJECT} (or the thread
+   *         has been interrupted while blocked with
+   *         {@link OverflowPolicy#BLOCK}).
+   */
+  public boolean offer(@Nonnull T element) {
+    Objects.requireNonNull(element);
+
+    while (true) {
+      if (tryOffer(element)) {
+        return true;
+      }
+
+      switch (overflowPolicy) {
+        case REJECT:
+          dropped.incrementAndGet();
+          return false;
+
+        case DROP_OLDEST:
+          if (poll() != null) {
+            dropped.incrementAndGet();
+          }
+          break;
+
+        case BLOCK:
+        default:
+          if (Thread.currentThread().isInterrupted()) {
+            return false;
+          }
+          LockSupport.parkNanos(this, PARK_NANOS);
+          break;
+      }
+    }
+  }
+
+  private boolean tryOffer(@Nonnull T element) {
+    long position = tail.get();
+
+    while (true) {
+      final int index = (int) position & mask;
+      final long sequence = sequences.get(index);
+      final long difference = sequence - position;
+
+      if (difference == 0) {
+        // the slot is free for this round
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.lazySet(index, element);
+          sequences.set(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+
+      } else if (difference < 0) {
+        // the slot still holds an element of the last round
+        return false;
+
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Remove the oldest element.
+   *
+   * @return
+   *         the oldest element or <code>null</code> if the buffer is empty.
+   */
+  @Nullable
+  public T poll() {
+    long position = head.get();
+
+    while (true) {
+      final int index = (int) position & mask;
+      final long sequence = sequences.get(index);
+      final long difference = sequence - (position + 1);
+
+      if (difference == 0) {
+        if (head.compareAndSet(position, position + 1)) {
+          final T element = elements.get(index);
+          elements.lazySet(index, null);
+          sequences.set(index, position + capacity);
+          return element;
+        }
+        position = head.get();
+
+      } else if (difference < 0) {
+        // empty or the producer of the slot has not written it yet
+        return null;
+
+      } else {
+        position = head.get();
+      }
+    }
+  }
+
+  /**
+   * Get the oldest element without removing it.
+   *
+   * @return
+   *         the oldest element or <code>null</code> if the buffer is empty.
+   */
+  @Nullable
+  public T peek() {
+    final long position = head.get();
+    final int index = (int) position & mask;
+
+    if (sequences.get(index) == position + 1) {
+      return elements.get(index);
+    }
+    return null;
+  }
+
+  /**
+   * Remove up to {@code max} elements and pass them to the consumer in their
+   * order.
+   *
+   * @param consumer
+   *          the consumer of the elements.
+   * @param max
+   *          the most elements to remove.
+   *
+   * @return
+   *         how many elements have been removed.
+   */
+  public int drainTo(@Nonnull Consumer<? super T> consumer, int max) {
+    int drained = 0;
+
+    while (drained < max) {
+      final T element = poll();
+      if (element == null) {
+        break;
+      }
+
+      consumer.accept(element);
+      drained++;
+    }
+
+    return drained;
+  }
+
+  /**
+   * Remove all the elements.
+   */
+  public void clear() {
+    while (poll() != null) {
+      // drop all
+    }
+  }
+
+  /**
+   * Get how many elements the buffer holds. The result is only an estimate
+   * while other threads are adding or removing elements.
+   *
+   * @return
+   *         how many elements the buffer holds.
+   */
+  public int size() {
+    // read the head first, so the size is never negative
+    final long currentHead = head.get();
+    final long currentTail = tail.get();
+
+    return (int) Math.max(0, Math.min(capacity, currentTail - currentHead));
+  }
+
+  /**
+   * Get how many elements the buffer can hold.
+   *
+   * @return
+   *         the capacity of the buffer.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Get how many elements have been dropped or rejected, because the buffer
+   * was full.
+   *
+   * @return
+   *         how many elements have been dropped or rejected.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * What {@link RingBuffer#offer(Object)} does when the buffer is full.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  public enum OverflowPolicy {
+    /**
+     * wait till the consumer frees a slot.
+     */
+    BLOCK,
+    /**
+     * remove the oldest element to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * reject the new element.
+     */
+    REJECT
+  }
+}
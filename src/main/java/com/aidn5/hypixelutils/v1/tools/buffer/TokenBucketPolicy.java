@@ -0,0 +1,127 @@
+package com.aidn5.hypixelutils.v1.tools.buffer;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Pacing policy, which allows a burst of elements at once and then one
+ * element every interval.
+ *
+ * <p>
+ * Every processed element uses one token. The bucket holds up to
+ * {@code burst} tokens and gets a new one every interval. When an element is
+ * rejected ({@link #elementRejected(Object, long)}), the bucket is emptied and
+ * nothing is processed for a back-off time, which doubles with every rejection
+ * (from {@link #INITIAL_BACK_OFF} up to {@link #MAX_BACK_OFF}) and goes back
+ * down after {@code burst} elements are processed without a rejection.
+ *
+ * @param <T>
+ *          the type of the buffered elements.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class TokenBucketPolicy<T> implements IPacingPolicy<T> {
+  /**
+   * how long nothing is processed after the first rejection.
+   */
+  public static final long INITIAL_BACK_OFF = TimeUnit.SECONDS.toMillis(1);
+  /**
+   * the longest time nothing is processed after a rejection.
+   */
+  public static final long MAX_BACK_OFF = TimeUnit.SECONDS.toMillis(8);
+
+  private final int burst;
+  private final long interval;
+
+  private double tokens;
+  private long lastRefill = 0;
+
+  private long backOff = 0;
+  private long backOffUntil = 0;
+  private int processedSinceRejection = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param burst
+   *          how many elements can be processed at once.
+   * @param interval
+   *          the time in milliseconds to get a new token.
+   */
+  public TokenBucketPolicy(int burst, long interval) {
+    if (burst <= 0) {
+      throw new IllegalArgumentException("burst must be bigger than 0");
+    }
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be bigger than 0");
+    }
+
+    this.burst = burst;
+    this.interval = interval;
+    this.tokens = burst;
+  }
+
+  @Override
+  public synchronized long getDelay(@Nonnull T element, long now) {
+    refill(now);
+
+    if (now < backOffUntil) {
+      return backOffUntil - now;
+    }
+    if (tokens >= 1) {
+      return 0;
+    }
+
+    return (long) Math.ceil((1 - tokens) * interval);
+  }
+
+  @Override
+  public synchronized void elementProcessed(@Nonnull T element, long now) {
+    refill(now);
+    tokens = Math.max(0, tokens - 1);
+
+    if (backOff > 0 && ++processedSinceRejection >= burst) {
+      processedSinceRejection = 0;
+      backOff = backOff <= INITIAL_BACK_OFF ? 0 : backOff / 2;
+    }
+  }
+
+  @Override
+  public synchronized void elementRejected(@Nonnull T element, long now) {
+    refill(now);
+    tokens = 0;
+
+    backOff = backOff == 0 ? INITIAL_BACK_OFF : Math.min(MAX_BACK_OFF, backOff * 2);
+    backOffUntil = now + backOff;
+    processedSinceRejection = 0;
+  }
+
+  /**
+   * Get the current back-off time.
+   *
+   * @return
+   *         the time in milliseconds nothing is processed after the next
+   *         rejection. {@code 0} if there were no recent rejections.
+   */
+  public synchronized long getBackOff() {
+    return backOff;
+  }
+
+  private void refill(long now) {
+    if (lastRefill == 0) {
+      lastRefill = now;
+      return;
+    }
+
+    if (now > lastRefill) {
+      tokens = Math.min(burst, tokens + (double) (now - lastRefill) / interval);
+      lastRefill = now;
+    }
+  }
+}
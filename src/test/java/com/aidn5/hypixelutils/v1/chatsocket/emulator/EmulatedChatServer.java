@@ -0,0 +1,387 @@
+package com.aidn5.hypixelutils.v1.chatsocket.emulator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+import com.aidn5.hypixelutils.v1.tools.VirtualClock;
+
+/**
+ * An emulated chat server, which delivers the private messages between
+ * {@link EmulatedClient}s the same way the hypixel network does (same replies
+ * and formats), with configurable limits:
+ * <ul>
+ * <li>rate limit: every player can send a number of lines in a period. Lines
+ * over the limit are dropped with the reply "You are sending commands too
+ * fast! Please slow down.".</li>
+ * <li>line length: longer lines are cut.</li>
+ * <li>loss: a line is lost without any reply with the given probability.</li>
+ * <li>latency: every line is delivered after a random latency between the
+ * given minimum and maximum. Lines can overtake each other, if reordering is
+ * enabled.</li>
+ * </ul>
+ *
+ * <p>
+ * Supported commands: "/msg", "/w", "/tell" and "/r". Other lines are
+ * ignored.
+ *
+ * <p>
+ * All the randomness comes from the seed. So, the same seed and the same
+ * calls always give the same result.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class EmulatedChatServer {
+  @Nonnull
+  private final VirtualClock clock;
+  @Nonnull
+  private final Random random;
+
+  @Nonnull
+  private final Map<String, EmulatedClient> clients = new HashMap<>();
+  // receiver -> the time of the last delivered line. Used to keep the order
+  @Nonnull
+  private final Map<EmulatedClient, Long> lastDelivery = new HashMap<>();
+  // player -> the last player, who sent a message to the player. Used for "/r"
+  @Nonnull
+  private final Map<EmulatedClient, String> lastSender = new HashMap<>();
+
+  private int rateLimitLines = 5;
+  private long rateLimitPeriod = TimeUnit.SECONDS.toMillis(2);
+  private int maxLineLength = 100;
+  private double lossRate = 0;
+  private long minLatency = 20;
+  private long maxLatency = 80;
+  private boolean reordering = false;
+
+  private long linesSent = 0;
+  private long linesDelivered = 0;
+  private long linesLost = 0;
+  private long linesRateLimited = 0;
+  private long linesCut = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param clock
+   *          the clock to deliver the lines on.
+   * @param seed
+   *          the seed of the randomness (loss, latency).
+   */
+  public EmulatedChatServer(@Nonnull VirtualClock clock, long seed) {
+    this.clock = Objects.requireNonNull(clock);
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Set how many lines every player can send in a period.
+   *
+   * @param lines
+   *          how many lines can be sent in the period.
+   * @param period
+   *          the period.
+   * @param unit
+   *          the unit of {@code period}.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public synchronized EmulatedChatServer setRateLimit(int lines, long period,
+      @Nonnull TimeUnit unit) {
+    if (lines < 1 || period < 1) {
+      throw new IllegalArgumentException("lines and period must be positive");
+    }
+
+    this.rateLimitLines = lines;
+    this.rateLimitPeriod = unit.toMillis(period);
+    return this;
+  }
+
+  /**
+   * Set the longest line the server accepts. Longer lines are cut.
+   *
+   * @param maxLineLength
+   *          the longest line. 100 by default.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public synchronized EmulatedChatServer setMaxLineLength(int maxLineLength) {
+    if (maxLineLength < 1) {
+      throw new IllegalArgumentException("maxLineLength must be positive");
+    }
+
+    this.maxLineLength = maxLineLength;
+    return this;
+  }
+
+  /**
+   * Set the probability of losing a line without any reply.
+   *
+   * @param lossRate
+   *          the probability between 0 and 1.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public synchronized EmulatedChatServer setLossRate(double lossRate) {
+    if (lossRate < 0 || lossRate > 1) {
+      throw new IllegalArgumentException("lossRate must be between 0 and 1");
+    }
+
+    this.lossRate = lossRate;
+    return this;
+  }
+
+  /**
+   * Set the latency of the lines.
+   *
+   * @param min
+   *          the lowest latency.
+   * @param max
+   *          the highest latency.
+   * @param unit
+   *          the unit of {@code min} and {@code max}.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public synchronized EmulatedChatServer setLatency(long min, long max, @Nonnull TimeUnit unit) {
+    if (min < 0 || max < min) {
+      throw new IllegalArgumentException("latency must be 0 <= min <= max");
+    }
+
+    this.minLatency = unit.toMillis(min);
+    this.maxLatency = unit.toMillis(max);
+    return this;
+  }
+
+  /**
+   * Set whether the lines can overtake each other (like when the players are
+   * on different servers of the network).
+   *
+   * @param reordering
+   *          <code>true</code> to allow reordering. <code>false</code> by
+   *          default.
+   *
+   * @return
+   *         an instance of this.
+   */
+  @Nonnull
+  public synchronized EmulatedChatServer setReordering(boolean reordering) {
+    this.reordering = reordering;
+    return this;
+  }
+
+  /**
+   * Connect a new simulated player to the server.
+   *
+   * @param name
+   *          the name of the player.
+   *
+   * @return
+   *         the simulated player.
+   *
+   * @throws IllegalArgumentException
+   *           if a player with the same name is already connected.
+   */
+  @Nonnull
+  public synchronized EmulatedClient connect(@Nonnull String name) {
+    final String key = name.toLowerCase();
+    if (clients.containsKey(key)) {
+      throw new IllegalArgumentException(name + " is already connected");
+    }
+
+    EmulatedClient client = new EmulatedClient(this, name);
+    client.tokens = rateLimitLines;
+    client.lastRefill = clock.currentTimeMillis();
+
+    clients.put(key, client);
+    return client;
+  }
+
+  /**
+   * Disconnect the simulated player. Lines sent to the player are replied with
+   * "That player is not online!".
+   *
+   * @param name
+   *          the name of the player.
+   */
+  public synchronized void disconnect(@Nonnull String name) {
+    EmulatedClient client = clients.remove(name.toLowerCase());
+    if (client != null) {
+      lastDelivery.remove(client);
+      lastSender.remove(client);
+    }
+  }
+
+  /**
+   * Get a connected simulated player.
+   *
+   * @param name
+   *          the name of the player.
+   *
+   * @return
+   *         the player or <code>null</code> if not connected.
+   */
+  @Nullable
+  public synchronized EmulatedClient getClient(@Nonnull String name) {
+    return clients.get(name.toLowerCase());
+  }
+
+  /**
+   * Get how many lines have been sent by all the players.
+   *
+   * @return
+   *         how many lines have been sent.
+   */
+  public synchronized long getLinesSent() {
+    return linesSent;
+  }
+
+  /**
+   * Get how many private messages have been delivered.
+   *
+   * @return
+   *         how many private messages have been delivered.
+   */
+  public synchronized long getLinesDelivered() {
+    return linesDelivered;
+  }
+
+  /**
+   * Get how many lines have been lost without any reply.
+   *
+   * @return
+   *         how many lines have been lost.
+   */
+  public synchronized long getLinesLost() {
+    return linesLost;
+  }
+
+  /**
+   * Get how many lines have been dropped by the rate limit.
+   *
+   * @return
+   *         how many lines have been dropped by the rate limit.
+   */
+  public synchronized long getLinesRateLimited() {
+    return linesRateLimited;
+  }
+
+  /**
+   * Get how many lines have been cut, because they were too long.
+   *
+   * @return
+   *         how many lines have been cut.
+   */
+  public synchronized long getLinesCut() {
+    return linesCut;
+  }
+
+  synchronized void lineSent(@Nonnull EmulatedClient sender, @Nonnull String line) {
+    if (clients.get(sender.name.toLowerCase()) != sender) {
+      // disconnected
+      return;
+    }
+
+    linesSent++;
+
+    if (!tryConsumeToken(sender)) {
+      linesRateLimited++;
+      reply(sender, "You are sending commands too fast! Please slow down.");
+      return;
+    }
+
+    if (line.length() > maxLineLength) {
+      linesCut++;
+      line = line.substring(0, maxLineLength);
+    }
+
+    if (random.nextDouble() < lossRate) {
+      linesLost++;
+      return;
+    }
+
+    if (!line.startsWith("/")) {
+      return;
+    }
+
+    final String[] parts = line.split(" ", 3);
+    final String command = parts[0].toLowerCase();
+
+    final String target;
+    final String message;
+    if (command.equals("/r") && parts.length >= 2) {
+      target = lastSender.get(sender);
+      message = line.substring(line.indexOf(' ') + 1);
+
+    } else if ((command.equals("/msg") || command.equals("/w") || command.equals("/tell"))
+        && parts.length == 3) {
+      target = parts[1];
+      message = parts[2];
+
+    } else {
+      reply(sender, "Unknown command. Type \"/help\" for help.");
+      return;
+    }
+
+    final EmulatedClient receiver = target == null ? null : clients.get(target.toLowerCase());
+    if (receiver == null) {
+      reply(sender, "That player is not online!");
+      return;
+    }
+
+    lastSender.put(receiver, sender.name);
+    reply(sender, "To " + receiver.name + ": " + message);
+    deliver(receiver, "From " + sender.name + ": " + message);
+    linesDelivered++;
+  }
+
+  private boolean tryConsumeToken(@Nonnull EmulatedClient client) {
+    final long now = clock.currentTimeMillis();
+
+    client.tokens = Math.min(rateLimitLines,
+        client.tokens + (now - client.lastRefill) * (double) rateLimitLines / rateLimitPeriod);
+    client.lastRefill = now;
+
+    if (client.tokens < 1) {
+      return false;
+    }
+
+    client.tokens--;
+    return true;
+  }
+
+  private void reply(@Nonnull EmulatedClient client, @Nonnull String line) {
+    deliver(client, line);
+  }
+
+  private void deliver(@Nonnull EmulatedClient receiver, @Nonnull String line) {
+    final long now = clock.currentTimeMillis();
+    long time = now + minLatency
+        + (maxLatency > minLatency ? (long) (random.nextDouble() * (maxLatency - minLatency)) : 0);
+
+    if (!reordering) {
+      time = Math.max(time, lastDelivery.getOrDefault(receiver, 0L));
+      lastDelivery.put(receiver, time);
+    }
+
+    clock.schedule(() -> {
+      receiver.lineReceived(line);
+    }, time - now);
+  }
+}
@@ -0,0 +1,176 @@
+package com.aidn5.hypixelutils.v1.chatsocket.emulator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.HeadlessChatTransport;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * A simulated player connected to {@link EmulatedChatServer}.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see EmulatedChatServer#connect(String)
+ */
+@IHypixelUtils
+public class EmulatedClient {
+  /**
+   * how many received lines are kept for {@link #pollReceivedLine()}.
+   */
+  public static final int MAX_KEPT_LINES = 1000;
+
+  /**
+   * the name of the simulated player.
+   */
+  @Nonnull
+  public final String name;
+
+  @Nonnull
+  private final EmulatedChatServer server;
+  @Nonnull
+  private final Deque<String> receivedLines = new ArrayDeque<>();
+  @Nullable
+  private ILineReceiver lineReceiver = null;
+
+  // used by the server to apply the rate limit
+  double tokens;
+  long lastRefill;
+
+  EmulatedClient(@Nonnull EmulatedChatServer server, @Nonnull String name) {
+    this.server = Objects.requireNonNull(server);
+    this.name = Objects.requireNonNull(name);
+  }
+
+  /**
+   * Send a chat line (or a command) to the server. Works like
+   * {@code EntityPlayerSP#sendChatMessage(String)}.
+   *
+   * @param line
+   *          the line to send.
+   */
+  public void sendChatMessage(@Nonnull String line) {
+    server.lineSent(this, Objects.requireNonNull(line));
+  }
+
+  /**
+   * Set a listener to be called for every received line. The listener is
+   * called on the thread advancing the clock.
+   *
+   * @param receiver
+   *          the listener or <code>null</code> to keep the lines for
+   *          {@link #pollReceivedLine()} instead.
+   */
+  public void setLineReceiver(@Nullable ILineReceiver receiver) {
+    this.lineReceiver = receiver;
+  }
+
+  /**
+   * Get the oldest received line, which has not been polled yet. Only lines
+   * received while no {@link #setLineReceiver(ILineReceiver)} is set are kept.
+   *
+   * @return
+   *         the oldest received line or <code>null</code> if there is none.
+   */
+  @Nullable
+  public synchronized String pollReceivedLine() {
+    return receivedLines.pollFirst();
+  }
+
+  /**
+   * Create a transport connected to this simulated player. The lines of the
+   * transport are sent as this player and the received lines are passed to
+   * the transport (replacing {@link #setLineReceiver(ILineReceiver)}). Set it
+   * with {@link ChatTransport#set(ChatTransport)} to run ChatSocket as this
+   * player.
+   *
+   * <p>
+   * <i>Note: ChatSocket has only one transport per class loader. So, only one
+   * simulated player can run ChatSocket with this transport. Use
+   * {@link #createPeer(String)} to run ChatSocket as many players.</i>
+   *
+   * @param serverAddress
+   *          the address reported by the transport (e.g. "mc.hypixel.net").
+   *
+   * @return
+   *         the created transport. Already connected.
+   */
+  @Nonnull
+  public HeadlessChatTransport createTransport(@Nonnull String serverAddress) {
+    final HeadlessChatTransport transport = new HeadlessChatTransport(name, this::sendChatMessage);
+    setLineReceiver((client, line) -> transport.receiveLine(line));
+    transport.connected(serverAddress);
+
+    return transport;
+  }
+
+  /**
+   * Run ChatSocket as this player with its own copy of the ChatSocket classes.
+   * The peers of many players run side by side in the same process without
+   * sharing their transport, protocols or connections. The received lines are
+   * passed to the peer (replacing {@link #setLineReceiver(ILineReceiver)}).
+   *
+   * @param serverAddress
+   *          the address reported by the transport (e.g. "mc.hypixel.net").
+   *
+   * @return
+   *         the started peer.
+   */
+  @Nonnull
+  public IEmulatedPeer createPeer(@Nonnull String serverAddress) {
+    final IEmulatedPeer peer = EmulatedPeerLoader.newPeer();
+    peer.start(this, serverAddress);
+
+    return peer;
+  }
+
+  void lineReceived(@Nonnull String line) {
+    final ILineReceiver receiver = lineReceiver;
+    if (receiver != null) {
+      receiver.lineReceived(this, line);
+      return;
+    }
+
+    synchronized (this) {
+      if (receivedLines.size() >= MAX_KEPT_LINES) {
+        receivedLines.pollFirst();
+      }
+      receivedLines.addLast(line);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "EmulatedClient{" + name + "}";
+  }
+
+  /**
+   * Interface used to receive the lines sent to a simulated player.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   *
+   * @see EmulatedClient#setLineReceiver(ILineReceiver)
+   */
+  @IHypixelUtils
+  @FunctionalInterface
+  public interface ILineReceiver {
+    /**
+     * called when a line is received.
+     *
+     * @param client
+     *          the player, who has received the line.
+     * @param line
+     *          the received line (unformatted).
+     */
+    void lineReceived(@Nonnull EmulatedClient client, @Nonnull String line);
+  }
+}
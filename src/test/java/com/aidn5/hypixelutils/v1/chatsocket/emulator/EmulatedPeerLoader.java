@@ -0,0 +1,85 @@
+package com.aidn5.hypixelutils.v1.chatsocket.emulator;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.tools.AssetHelper;
+
+/**
+ * Loads a fresh copy of the ChatSocket classes for every simulated player.
+ * ChatSocket keeps its transport, protocols and connections in static fields,
+ * so one copy can only act as one player. The classes of the other packages
+ * (like {@link com.aidn5.hypixelutils.v1.tools.Clock} and the thread pools)
+ * and of this package are shared with the caller.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see EmulatedClient#createPeer(String)
+ */
+final class EmulatedPeerLoader extends ClassLoader {
+  private static final String CHATSOCKET = "com.aidn5.hypixelutils.v1.chatsocket.";
+  private static final String EMULATOR = CHATSOCKET + "emulator.";
+  private static final String PEER = EMULATOR + "peer.";
+  private static final String PEER_CLASS = PEER + "ChatSocketPeer";
+
+  private EmulatedPeerLoader(@Nonnull ClassLoader parent) {
+    super(parent);
+  }
+
+  /**
+   * Create a peer with its own copy of the ChatSocket classes.
+   *
+   * @return
+   *         a new peer, which is not started yet.
+   */
+  @Nonnull
+  static IEmulatedPeer newPeer() {
+    try {
+      final ClassLoader loader = new EmulatedPeerLoader(EmulatedPeerLoader.class.getClassLoader());
+      final Constructor<?> constructor = loader.loadClass(PEER_CLASS).getDeclaredConstructor();
+      return (IEmulatedPeer) constructor.newInstance();
+
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("could not load the peer", e);
+    }
+  }
+
+  private static boolean isolated(@Nonnull String name) {
+    return name.startsWith(CHATSOCKET) && (!name.startsWith(EMULATOR) || name.startsWith(PEER));
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    if (!isolated(name)) {
+      return super.loadClass(name, resolve);
+    }
+
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> c = findLoadedClass(name);
+      if (c == null) {
+        c = findClass(name);
+      }
+      if (resolve) {
+        resolveClass(c);
+      }
+      return c;
+    }
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    try {
+      // the bytes come from the parent, which has the classes on its class path
+      final byte[] bytes =
+          AssetHelper.getByteArray(EmulatedPeerLoader.class, name.replace('.', '/') + ".class");
+      return defineClass(name, bytes, 0, bytes.length);
+
+    } catch (IOException e) {
+      throw new ClassNotFoundException(name, e);
+    }
+  }
+}
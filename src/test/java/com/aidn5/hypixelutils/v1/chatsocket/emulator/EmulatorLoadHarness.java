@@ -0,0 +1,222 @@
+package com.aidn5.hypixelutils.v1.chatsocket.emulator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.tools.Clock;
+import com.aidn5.hypixelutils.v1.tools.InstrumentedExecutor;
+import com.aidn5.hypixelutils.v1.tools.Scheduler;
+import com.aidn5.hypixelutils.v1.tools.ThreadPools;
+import com.aidn5.hypixelutils.v1.tools.VirtualClock;
+
+/**
+ * Runnable load harness of ChatSocket on {@link EmulatedChatServer}. Every
+ * simulated player runs its own ChatSocket (see
+ * {@link EmulatedClient#createPeer(String)}) and accepts every connection.
+ * The players are connected in a ring: every player requests a connection from
+ * the next one and sends it a message every {@link #MESSAGE_EVERY}
+ * milliseconds, which is sent back. The harness prints the throughput and the
+ * latencies of the requests and the messages and the counters of the server.
+ *
+ * <p>
+ * The callbacks of ChatSocket run on the shared thread pools. The harness
+ * waits for them after every tick of the clock. So, runs with the same seed
+ * give nearly, but not always exactly, the same results.
+ *
+ * <p>
+ * <b>Usage:</b> {@code EmulatorLoadHarness [clients] [minutes] [seed]}.
+ * Defaults to 50 clients for 10 simulated minutes with the seed 42.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+public class EmulatorLoadHarness {
+  /**
+   * the time between two messages of the same connection in milliseconds.
+   */
+  private static final long MESSAGE_EVERY = 3000;
+  /**
+   * the time the requests of all players are spread over in milliseconds.
+   */
+  private static final long REQUEST_SPREAD = 10_000;
+  /**
+   * the longest real time to wait for the thread pools after a tick in
+   * milliseconds. Tasks waiting for the virtual clock would never finish.
+   */
+  private static final long IDLE_TIMEOUT = 1000;
+
+  private static final String MODID = "loadtest";
+  private static final String ACCEPTED = "ACCEPTED";
+
+  private EmulatorLoadHarness() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Run the harness.
+   *
+   * @param args
+   *          [clients] [minutes] [seed]
+   */
+  public static void main(String[] args) {
+    final int clients = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    final long minutes = args.length > 1 ? Long.parseLong(args[1]) : 10;
+    final long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+    final Results results = run(clients, minutes, seed);
+
+    if (results.accepted.get() == 0) {
+      throw new IllegalStateException("no connection has been accepted");
+    }
+    if (results.echoed.get() == 0) {
+      throw new IllegalStateException("no message has been sent back");
+    }
+  }
+
+  @Nonnull
+  private static Results run(int clients, long minutes, long seed) {
+    final VirtualClock clock = new VirtualClock(0);
+    final Clock previous = Clock.get();
+    Clock.set(clock);
+
+    final List<IEmulatedPeer> peers = new ArrayList<>(clients);
+    try {
+      final EmulatedChatServer server = new EmulatedChatServer(clock, seed)
+          .setRateLimit(4, 2, TimeUnit.SECONDS)
+          .setLatency(20, 200, TimeUnit.MILLISECONDS)
+          .setLossRate(0.01);
+
+      final List<EmulatedClient> players = new ArrayList<>(clients);
+      for (int i = 0; i < clients; i++) {
+        final EmulatedClient player = server.connect("player" + i);
+        final IEmulatedPeer peer = player.createPeer("mc.hypixel.net");
+        peer.listen(MODID);
+
+        players.add(player);
+        peers.add(peer);
+      }
+
+      final Results results = new Results();
+      for (int i = 0; i < clients; i++) {
+        final IEmulatedPeer peer = peers.get(i);
+        final String next = players.get((i + 1) % clients).name;
+
+        // spread the requests, so they are not rate limited all at once
+        Scheduler.schedule(() -> request(clock, peer, next, results),
+            i * REQUEST_SPREAD / clients, TimeUnit.MILLISECONDS);
+      }
+
+      final long start = System.nanoTime();
+      final long ticks = TimeUnit.MINUTES.toMillis(minutes) / VirtualClock.TICK_MILLIS;
+      for (long i = 0; i < ticks; i++) {
+        clock.advance(VirtualClock.TICK_MILLIS, TimeUnit.MILLISECONDS);
+        awaitIdle();
+      }
+      final long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      System.out.println(clients + " clients, " + minutes + " simulated minutes in " + took
+          + "ms: requests accepted=" + results.accepted + ", failed=" + results.failed
+          + ", latency avg=" + results.requestLatency.average() + "ms max="
+          + results.requestLatency.max() + "ms");
+      System.out.println("messages sent=" + results.sent + ", echoed=" + results.echoed
+          + ", throughput=" + (results.echoed.get() / Math.max(1, minutes)) + "/min"
+          + ", round trip avg=" + results.echoLatency.average() + "ms max="
+          + results.echoLatency.max() + "ms");
+      System.out.println("server sent=" + server.getLinesSent() + ", delivered="
+          + server.getLinesDelivered() + ", lost=" + server.getLinesLost() + ", rateLimited="
+          + server.getLinesRateLimited() + ", cut=" + server.getLinesCut());
+
+      return results;
+
+    } finally {
+      for (IEmulatedPeer peer : peers) {
+        peer.close();
+      }
+      Clock.set(previous);
+    }
+  }
+
+  private static void request(@Nonnull VirtualClock clock, @Nonnull IEmulatedPeer peer,
+      @Nonnull String user, @Nonnull Results results) {
+    final long requested = clock.currentTimeMillis();
+
+    peer.request(user, MODID, "ping", new IEmulatedPeer.IPeerListener() {
+      @Override
+      public void responded(@Nonnull String response) {
+        if (!ACCEPTED.equals(response)) {
+          results.failed.incrementAndGet();
+          return;
+        }
+
+        results.accepted.incrementAndGet();
+        results.requestLatency.add(clock.currentTimeMillis() - requested);
+
+        Scheduler.scheduleWithFixedDelay(() -> {
+          final byte[] message = ByteBuffer.allocate(8).putLong(clock.currentTimeMillis()).array();
+          if (peer.sendMessage(user, message)) {
+            results.sent.incrementAndGet();
+          }
+        }, 0, MESSAGE_EVERY, TimeUnit.MILLISECONDS);
+      }
+
+      @Override
+      public void messageReceived(@Nonnull byte[] message) {
+        results.echoed.incrementAndGet();
+        results.echoLatency.add(clock.currentTimeMillis() - ByteBuffer.wrap(message).getLong());
+      }
+    });
+  }
+
+  private static void awaitIdle() {
+    final InstrumentedExecutor[] pools =
+        {ThreadPools.threadPool, ThreadPools.blockingPool, ThreadPools.controlPool};
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT);
+
+    boolean idle;
+    do {
+      idle = true;
+      for (InstrumentedExecutor pool : pools) {
+        // a task of one pool may submit to the other one
+        if (pool.getCompletedTaskCount() < pool.getTaskCount()) {
+          idle = false;
+          Thread.yield();
+        }
+      }
+    } while (!idle && System.nanoTime() < deadline);
+  }
+
+  private static class Results {
+    final AtomicLong accepted = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong echoed = new AtomicLong();
+    final Latency requestLatency = new Latency();
+    final Latency echoLatency = new Latency();
+  }
+
+  private static class Latency {
+    private long total;
+    private long count;
+    private long maximum;
+
+    synchronized void add(long latency) {
+      total += latency;
+      count++;
+      maximum = Math.max(maximum, latency);
+    }
+
+    synchronized long max() {
+      return maximum;
+    }
+
+    synchronized long average() {
+      return count == 0 ? 0 : total / count;
+    }
+  }
+}
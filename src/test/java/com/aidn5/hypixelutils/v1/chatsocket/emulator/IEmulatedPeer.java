@@ -0,0 +1,111 @@
+package com.aidn5.hypixelutils.v1.chatsocket.emulator;
+
+import javax.annotation.Nonnull;
+
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * A simulated player running its own ChatSocket. Every peer is loaded by its
+ * own class loader (see {@link EmulatedClient#createPeer(String)}), so the
+ * transport, the protocols and the connections of the players do not share
+ * any state. Only the types of the JDK and of this package are passed between
+ * the peers and the caller.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see EmulatedClient#createPeer(String)
+ */
+@IHypixelUtils
+public interface IEmulatedPeer {
+  /**
+   * Connect ChatSocket of this peer to the simulated player.
+   * <p>
+   * <b><i>This is a backend method. DO NOT USE IT</i></b>
+   *
+   * @param client
+   *          the player to send and receive the lines as.
+   * @param serverAddress
+   *          the address reported by the transport (e.g. "mc.hypixel.net").
+   *
+   * @throws IllegalStateException
+   *           if the peer is already started.
+   */
+  void start(@Nonnull EmulatedClient client, @Nonnull String serverAddress)
+      throws IllegalStateException;
+
+  /**
+   * Accept every connection requested with the id and send every received
+   * message back.
+   *
+   * @param modid
+   *          the id to listen to.
+   */
+  void listen(@Nonnull String modid);
+
+  /**
+   * Request a connection from another player with
+   * {@link com.aidn5.hypixelutils.v1.chatsocket.client.RequestSendEvent}.
+   *
+   * @param user
+   *          the player to connect to.
+   * @param modid
+   *          the id the other player listens to.
+   * @param actionId
+   *          the extra field of the request.
+   * @param listener
+   *          informed about the response and the messages of the connection.
+   */
+  void request(@Nonnull String user, @Nonnull String modid, @Nonnull String actionId,
+      @Nonnull IPeerListener listener);
+
+  /**
+   * Send a message over the connection requested from the player.
+   *
+   * @param user
+   *          the player the connection was requested from.
+   * @param message
+   *          the message to send.
+   *
+   * @return
+   *         <code>true</code> if the message is sent, <code>false</code> if
+   *         there is no opened connection or the message could not be sent.
+   */
+  boolean sendMessage(@Nonnull String user, @Nonnull byte[] message);
+
+  /**
+   * Close the transport of this peer. The lines are neither sent nor received
+   * anymore.
+   */
+  void close();
+
+  /**
+   * Interface used to inform about a connection requested by
+   * {@link IEmulatedPeer#request(String, String, String, IPeerListener)}.
+   * Called on the threads of ChatSocket.
+   *
+   * @author aidn5
+   *
+   * @since 1.0
+   */
+  @IHypixelUtils
+  interface IPeerListener {
+    /**
+     * called when the other player has responded or the request has failed.
+     *
+     * @param response
+     *          the name of the
+     *          {@link com.aidn5.hypixelutils.v1.chatsocket.client.RequestSendEvent.RequestResponse}.
+     */
+    void responded(@Nonnull String response);
+
+    /**
+     * called when a whole message is received over the connection.
+     *
+     * @param message
+     *          the received message.
+     */
+    void messageReceived(@Nonnull byte[] message);
+  }
+}
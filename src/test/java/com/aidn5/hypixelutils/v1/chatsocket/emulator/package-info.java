@@ -0,0 +1,37 @@
+/**
+ * Package contains an emulated chat server to run many simulated clients in
+ * one JVM without a real server. The server applies configurable rate limits,
+ * line length limits, loss and latency. Everything runs on a
+ * {@link com.aidn5.hypixelutils.v1.tools.VirtualClock}, so hours of traffic
+ * are simulated in seconds and the same seed always gives the same result.
+ * Test-only. Every client can run its own ChatSocket with
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.emulator.EmulatedClient#createPeer(String)}.
+ * {@link com.aidn5.hypixelutils.v1.chatsocket.emulator.EmulatorLoadHarness}
+ * runs ChatSocket connections between many clients.
+ *
+ * <p>
+ * <b>Example:</b>
+ * <code><pre>
+ * VirtualClock clock = new VirtualClock(0);
+ * Clock.set(clock); // the timers of the library use it too
+ *
+ * EmulatedChatServer server = new EmulatedChatServer(clock, 42)
+ *     .setRateLimit(4, 2, TimeUnit.SECONDS)
+ *     .setLossRate(0.01);
+ *
+ * EmulatedClient alice = server.connect("alice");
+ * EmulatedClient bob = server.connect("bob");
+ * bob.setLineReceiver((client, line) -&gt; ...);
+ *
+ * alice.sendChatMessage("/msg bob hello");
+ * clock.advance(1, TimeUnit.HOURS);
+ * </pre></code>
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see com.aidn5.hypixelutils.v1.chatsocket.emulator.EmulatedChatServer
+ */
+
+package com.aidn5.hypixelutils.v1.chatsocket.emulator;
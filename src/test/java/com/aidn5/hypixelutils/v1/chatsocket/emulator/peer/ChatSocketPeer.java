@@ -0,0 +1,110 @@
+package com.aidn5.hypixelutils.v1.chatsocket.emulator.peer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.aidn5.hypixelutils.v1.chatsocket.ChatSocketFactory;
+import com.aidn5.hypixelutils.v1.chatsocket.client.Connection;
+import com.aidn5.hypixelutils.v1.chatsocket.emulator.EmulatedClient;
+import com.aidn5.hypixelutils.v1.chatsocket.emulator.IEmulatedPeer;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.ChatTransport;
+import com.aidn5.hypixelutils.v1.chatsocket.transport.HeadlessChatTransport;
+import com.aidn5.hypixelutils.v1.common.annotation.IHypixelUtils;
+
+/**
+ * Runs ChatSocket as one simulated player over {@link HeadlessChatTransport}.
+ * Loaded by its own class loader for every player. Use
+ * {@link EmulatedClient#createPeer(String)} instead of creating it directly.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ */
+@IHypixelUtils
+public class ChatSocketPeer implements IEmulatedPeer {
+  @Nonnull
+  private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+  @Nullable
+  private HeadlessChatTransport transport = null;
+
+  @Override
+  public synchronized void start(@Nonnull EmulatedClient client, @Nonnull String serverAddress)
+      throws IllegalStateException {
+    if (transport != null) {
+      throw new IllegalStateException("the peer is already started");
+    }
+
+    final HeadlessChatTransport transport =
+        new HeadlessChatTransport(client.name, client::sendChatMessage);
+    ChatTransport.set(transport);
+    this.transport = transport;
+
+    try {
+      // registers the protocols on the transport
+      Class.forName(ChatSocketFactory.class.getName());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
+    }
+
+    client.setLineReceiver((c, line) -> transport.receiveLine(line));
+    transport.connected(serverAddress);
+  }
+
+  @Override
+  public void listen(@Nonnull String modid) {
+    ChatSocketFactory.registerListener(modid, event -> {
+      final Connection connection = event.acceptConnection();
+      connection.setMessageReceiver((c, message) -> {
+        try {
+          c.sendMessage(message);
+        } catch (IOException e) {
+          // the requester counts the missing echo
+        }
+      });
+    });
+  }
+
+  @Override
+  public void request(@Nonnull String user, @Nonnull String modid, @Nonnull String actionId,
+      @Nonnull IPeerListener listener) {
+    Objects.requireNonNull(listener);
+
+    ChatSocketFactory.createRequest(modid, actionId).setIgnoreCache(true)
+        .sendNewRequest(user, (response, connection) -> {
+          if (connection != null) {
+            connection.setMessageReceiver((c, message) -> listener.messageReceived(message));
+            connections.put(user.toLowerCase(), connection);
+          }
+
+          listener.responded(response.name());
+        });
+  }
+
+  @Override
+  public boolean sendMessage(@Nonnull String user, @Nonnull byte[] message) {
+    final Connection connection = connections.get(user.toLowerCase());
+    if (connection == null || connection.connectionClosed()) {
+      return false;
+    }
+
+    try {
+      connection.sendMessage(message);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (transport != null) {
+      transport.close();
+    }
+    connections.clear();
+  }
+}
@@ -0,0 +1,13 @@
+/**
+ * Package contains the simulated players, which run ChatSocket. Every class
+ * in this package is loaded again for every player together with the
+ * ChatSocket classes. Test-only.
+ *
+ * @author aidn5
+ *
+ * @since 1.0
+ *
+ * @see com.aidn5.hypixelutils.v1.chatsocket.emulator.EmulatedClient#createPeer(String)
+ */
+
+package com.aidn5.hypixelutils.v1.chatsocket.emulator.peer;